@@ -24,6 +24,8 @@ public abstract class ConstraintSolver {
 
   protected String name;
 
+  private final SolverListeners listeners = new SolverListeners();
+
   /** result returned by a constraint solver */
   public static enum Result {
     SAT,
@@ -50,6 +52,12 @@ public abstract class ConstraintSolver {
    */
   public abstract Result solve(Expression<Boolean> f, Valuation result);
 
+  /**
+   * Asks a {@link #solve(Expression, Valuation)} running in another thread to stop early; it then
+   * returns {@link Result#DONT_KNOW}. Does nothing by default.
+   */
+  public void interrupt() {}
+
   /**
    * Create a solver context, which allows for incremental solving (i.e., via push and pop). This is
    * an optional operation.
@@ -61,6 +69,28 @@ public abstract class ConstraintSolver {
     throw new UnsupportedOperationException("Solver does not support incremental solving");
   }
 
+  /**
+   * Registers a listener for the queries of this solver. Contexts created by this solver report
+   * to it as well, if the solver passes them through {@link #instrument(SolverContext)}.
+   */
+  public void addListener(SolverListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(SolverListener listener) {
+    listeners.remove(listener);
+  }
+
+  protected final SolverListeners listeners() {
+    return listeners;
+  }
+
+  /** Makes {@code ctx} report to the listeners of this solver, too. */
+  protected <C extends SolverContext> C instrument(C ctx) {
+    ctx.inheritListeners(listeners);
+    return ctx;
+  }
+
   // LEGACY API
 
   @Deprecated
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A valuation backed by a live solver model. The value of a model variable is converted when it is
+ * first accessed and cached afterwards. Operations that need all values, such as iteration,
+ * printing and equality, convert the remaining variables first.
+ *
+ * <p>A model is only valid until the solver context that produced it changes. The context calls
+ * {@link #materialize()} before it invalidates the model; clients that hand the valuation to code
+ * outliving the model may call it earlier. Without a bound model, the valuation behaves like a
+ * plain {@link Valuation}. Serialization writes a plain {@link Valuation}.
+ *
+ * @see SolverContext#solveLazily(LazyValuation)
+ */
+public class LazyValuation extends Valuation {
+
+  /** Converts the model value of a single variable. */
+  @FunctionalInterface
+  public interface ModelReader {
+
+    /** Stores the model value of {@code var} in {@code target}. */
+    void read(Variable<?> var, Valuation target);
+  }
+
+  private transient Set<Variable<?>> pending = new LinkedHashSet<>();
+
+  private transient ModelReader reader;
+
+  /**
+   * Binds a model that provides values for {@code variables}. They replace the current values of
+   * the same variables. A previously bound model is materialized first.
+   */
+  public void bind(Collection<? extends Variable<?>> variables, ModelReader reader) {
+    materialize();
+    this.pending = new LinkedHashSet<>(variables);
+    this.reader = reader;
+  }
+
+  /** Converts all remaining model values and releases the model. */
+  public void materialize() {
+    if (reader == null) {
+      return;
+    }
+    for (Variable<?> var : new ArrayList<>(pending)) {
+      convert(var);
+    }
+    reader = null;
+  }
+
+  /** Whether all values are converted, i.e., no model is bound. */
+  public boolean isMaterialized() {
+    return reader == null;
+  }
+
+  private void convert(Variable<?> var) {
+    if (reader != null && pending.contains(var)) {
+      reader.read(var, this);
+      pending.remove(var);
+    }
+  }
+
+  /** Copies all values into a plain {@link Valuation}. */
+  public Valuation toValuation() {
+    Valuation copy = new Valuation();
+    copy.putAll(this);
+    return copy;
+  }
+
+  @Override
+  public <E> ValuationEntry<E> getEntry(Variable<E> var) {
+    convert(var);
+    return super.getEntry(var);
+  }
+
+  @Override
+  public <E> E getValue(Variable<E> var) {
+    convert(var);
+    return super.getValue(var);
+  }
+
+  @Override
+  public <E> void setValue(Variable<E> var, E value) {
+    pending.remove(var);
+    super.setValue(var, value);
+  }
+
+  @Override
+  public boolean containsValueFor(Variable<?> v) {
+    return pending.contains(v) || super.containsValueFor(v);
+  }
+
+  @Override
+  public Set<Variable<?>> getVariables() {
+    if (pending.isEmpty()) {
+      return super.getVariables();
+    }
+    Set<Variable<?>> variables = new LinkedHashSet<>(super.getVariables());
+    variables.addAll(pending);
+    return variables;
+  }
+
+  @Override
+  public Collection<ValuationEntry<?>> entries() {
+    materialize();
+    return super.entries();
+  }
+
+  @Override
+  public Iterator<ValuationEntry<?>> iterator() {
+    materialize();
+    return super.iterator();
+  }
+
+  @Override
+  public void putAll(Valuation v, boolean override) {
+    for (ValuationEntry<?> e : v) {
+      if (override || !containsValueFor(e.getVariable())) {
+        addEntry(e);
+      }
+    }
+  }
+
+  @Override
+  public Expression<?> apply(Variable<?> var) {
+    convert(var);
+    return super.apply(var);
+  }
+
+  @Override
+  public Object getValue(String varName) {
+    if (!pending.isEmpty()) {
+      for (Variable<?> var : new ArrayList<>(pending)) {
+        if (var.getName().equals(varName)) {
+          convert(var);
+        }
+      }
+    }
+    return super.getValue(varName);
+  }
+
+  @Override
+  @Deprecated
+  @SuppressWarnings("rawtypes")
+  public Set<Map.Entry<Variable, Object>> entrySet() {
+    materialize();
+    return super.entrySet();
+  }
+
+  @Override
+  public int hashCode() {
+    materialize();
+    return super.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    materialize();
+    if (obj instanceof LazyValuation) {
+      ((LazyValuation) obj).materialize();
+    }
+    return super.equals(obj);
+  }
+
+  @Override
+  public void print(Appendable a) throws IOException {
+    materialize();
+    super.print(a);
+  }
+
+  private Object writeReplace() {
+    return toValuation();
+  }
+}
@@ -26,6 +26,8 @@ import java.util.List;
 /** Solver context to support incremental solving (i.e., with backtracking). */
 public abstract class SolverContext {
 
+  private final SolverListeners listeners = new SolverListeners();
+
   public abstract void push();
 
   public abstract void pop(int n);
@@ -40,6 +42,16 @@ public abstract class SolverContext {
 
   public abstract Result solve(Valuation val);
 
+  /**
+   * Like {@link #solve(Valuation)}, but a context may bind its native model to {@code model}
+   * instead of converting all values up front. The context materializes the model before it
+   * becomes invalid, e.g., on {@link #pop()} or {@link #dispose()}. By default, the model is
+   * converted eagerly.
+   */
+  public Result solveLazily(LazyValuation model) {
+    return solve(model);
+  }
+
   @SafeVarargs
   public final void add(Expression<Boolean>... expressions) {
     add(Arrays.asList(expressions));
@@ -77,4 +89,28 @@ public abstract class SolverContext {
   }
 
   public abstract void dispose();
+
+  /**
+   * Asks a {@link #solve(Valuation)} running in another thread to stop early; it then returns
+   * {@link Result#DONT_KNOW}. The assertions of this context are kept. Does nothing by default.
+   */
+  public void interrupt() {}
+
+  /** Registers a listener for the queries and stack operations of this context. */
+  public void addListener(SolverListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(SolverListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** The listeners of this context, including those inherited from the creating solver. */
+  protected final SolverListeners listeners() {
+    return listeners;
+  }
+
+  void inheritListeners(SolverListeners solverListeners) {
+    listeners.inherit(solverListeners);
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.api;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+
+/**
+ * Receives timing and stack events from a {@link ConstraintSolver} or a {@link SolverContext}.
+ * Events are delivered on the thread that issued the query, so implementations shared between
+ * solvers have to be thread-safe. All methods do nothing by default.
+ */
+public interface SolverListener {
+
+  /**
+   * Called after a phase of a query has finished.
+   *
+   * @param phase the phase
+   * @param nanos the wall time spent in the phase, in nanoseconds
+   */
+  default void phaseFinished(SolverPhase phase, long nanos) {}
+
+  /**
+   * Called after a query has been answered.
+   *
+   * @param result the result of the query
+   * @param nanos the wall time of the whole query, in nanoseconds
+   */
+  default void queryFinished(Result result, long nanos) {}
+
+  /**
+   * Called after a new scope has been pushed.
+   *
+   * @param depth the stack depth after the push
+   */
+  default void pushed(int depth) {}
+
+  /**
+   * Called after scopes have been popped.
+   *
+   * @param levels the number of popped scopes
+   * @param depth the stack depth after the pop
+   */
+  default void popped(int levels, int depth) {}
+}
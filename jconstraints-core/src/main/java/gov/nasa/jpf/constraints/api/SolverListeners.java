@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.api;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The {@link SolverListener}s of a solver or solver context. Solver bindings report their phases
+ * through this class. While no listener is registered, {@link #start()} does not read the clock
+ * and the report methods return immediately.
+ *
+ * <pre>
+ *   long start = listeners.start();
+ *   Status status = solver.check();
+ *   listeners.phaseFinished(SolverPhase.CHECK, start);
+ * </pre>
+ */
+public final class SolverListeners {
+
+  /** Returned by {@link #start()} if nothing is listening. */
+  public static final long NOT_TIMED = Long.MIN_VALUE;
+
+  private final List<SolverListener> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile SolverListeners parent;
+
+  public void add(SolverListener listener) {
+    listeners.add(listener);
+  }
+
+  public void remove(SolverListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Also notify the listeners of {@code parent}, e.g., those of the solver owning a context. */
+  void inherit(SolverListeners parent) {
+    this.parent = parent;
+  }
+
+  public boolean isEmpty() {
+    SolverListeners p = parent;
+    return listeners.isEmpty() && (p == null || p.isEmpty());
+  }
+
+  /** Returns the start time of a phase, or {@link #NOT_TIMED} if nothing is listening. */
+  public long start() {
+    return isEmpty() ? NOT_TIMED : System.nanoTime();
+  }
+
+  public void phaseFinished(SolverPhase phase, long start) {
+    if (start == NOT_TIMED) {
+      return;
+    }
+    long nanos = System.nanoTime() - start;
+    for (SolverListeners l = this; l != null; l = l.parent) {
+      for (SolverListener listener : l.listeners) {
+        listener.phaseFinished(phase, nanos);
+      }
+    }
+  }
+
+  public void queryFinished(Result result, long start) {
+    if (start == NOT_TIMED) {
+      return;
+    }
+    long nanos = System.nanoTime() - start;
+    for (SolverListeners l = this; l != null; l = l.parent) {
+      for (SolverListener listener : l.listeners) {
+        listener.queryFinished(result, nanos);
+      }
+    }
+  }
+
+  public void pushed(int depth) {
+    for (SolverListeners l = this; l != null; l = l.parent) {
+      for (SolverListener listener : l.listeners) {
+        listener.pushed(depth);
+      }
+    }
+  }
+
+  public void popped(int levels, int depth) {
+    for (SolverListeners l = this; l != null; l = l.parent) {
+      for (SolverListener listener : l.listeners) {
+        listener.popped(levels, depth);
+      }
+    }
+  }
+}
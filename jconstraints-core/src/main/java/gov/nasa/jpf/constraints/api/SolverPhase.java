@@ -17,8 +17,16 @@
  * limitations under the License.
  */
 
-package gov.nasa.jpf.constraints.solvers.encapsulation.messages;
+package gov.nasa.jpf.constraints.api;
 
-import java.io.Serializable;
-
-public class StopSolvingMessage implements Serializable {}
+/** The phases of a query that are reported to a {@link SolverListener}. */
+public enum SolverPhase {
+  /** Translating jConstraints expressions into the solver's representation. */
+  TRANSLATION,
+  /** The satisfiability check inside the native solver. */
+  CHECK,
+  /** Reading the model of the solver back into a {@link Valuation}. */
+  MODEL_PARSING,
+  /** Re-evaluating the query under the returned model. */
+  MODEL_VALIDATION
+}
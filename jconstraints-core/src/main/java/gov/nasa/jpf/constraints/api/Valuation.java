@@ -161,10 +161,10 @@ public class Valuation extends AbstractPrintable
   }
 
   public void putAll(Valuation v, boolean override) {
-    for (Map.Entry<Variable<?>, ValuationEntry<?>> e : v.entries.entrySet()) {
-      Variable<?> var = e.getKey();
-      if (override || !entries.containsKey(e.getKey())) {
-        entries.put(var, e.getValue().clone());
+    for (ValuationEntry<?> e : v) {
+      Variable<?> var = e.getVariable();
+      if (override || !entries.containsKey(var)) {
+        entries.put(var, e.clone());
       }
     }
   }
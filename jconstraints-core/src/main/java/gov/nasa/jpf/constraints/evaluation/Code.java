@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.evaluation.VariableLayout.Storage;
+import gov.nasa.jpf.constraints.types.Type;
+
+/**
+ * A compiled subexpression. The function has one of the four shapes below, chosen by {@link
+ * #storage}; the conversions box or unbox only where the shapes of producer and consumer differ.
+ */
+final class Code {
+
+  @FunctionalInterface
+  interface BoolCode {
+    boolean eval(EvaluationFrame frame);
+  }
+
+  @FunctionalInterface
+  interface LongCode {
+    long eval(EvaluationFrame frame);
+  }
+
+  @FunctionalInterface
+  interface DoubleCode {
+    double eval(EvaluationFrame frame);
+  }
+
+  @FunctionalInterface
+  interface RefCode {
+    Object eval(EvaluationFrame frame);
+  }
+
+  final Storage storage;
+  final Type<?> type;
+  private final Object function;
+
+  private Code(Storage storage, Type<?> type, Object function) {
+    this.storage = storage;
+    this.type = type;
+    this.function = function;
+  }
+
+  static Code of(Type<?> type, BoolCode function) {
+    return new Code(Storage.BOOL, type, function);
+  }
+
+  static Code of(Type<?> type, LongCode function) {
+    return new Code(Storage.LONG, type, function);
+  }
+
+  static Code of(Type<?> type, DoubleCode function) {
+    return new Code(Storage.DOUBLE, type, function);
+  }
+
+  static Code of(Type<?> type, RefCode function) {
+    return new Code(Storage.REF, type, function);
+  }
+
+  BoolCode asBool() {
+    if (storage == Storage.BOOL) {
+      return (BoolCode) function;
+    }
+    RefCode ref = asRef();
+    return f -> (Boolean) ref.eval(f);
+  }
+
+  LongCode asLong() {
+    if (storage == Storage.LONG) {
+      return (LongCode) function;
+    }
+    RefCode ref = asRef();
+    return f -> EvaluationFrame.toLong(ref.eval(f));
+  }
+
+  DoubleCode asDouble() {
+    if (storage == Storage.DOUBLE) {
+      return (DoubleCode) function;
+    }
+    RefCode ref = asRef();
+    return f -> ((Number) ref.eval(f)).doubleValue();
+  }
+
+  RefCode asRef() {
+    switch (storage) {
+      case BOOL:
+        BoolCode bool = (BoolCode) function;
+        return f -> bool.eval(f);
+      case LONG:
+        LongCode integer = (LongCode) function;
+        return f -> EvaluationFrame.boxLong(type, integer.eval(f));
+      case DOUBLE:
+        DoubleCode fp = (DoubleCode) function;
+        return f -> EvaluationFrame.boxDouble(type, fp.eval(f));
+      default:
+        return (RefCode) function;
+    }
+  }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.casts.CastOperation;
+import gov.nasa.jpf.constraints.evaluation.Code.BoolCode;
+import gov.nasa.jpf.constraints.evaluation.Code.DoubleCode;
+import gov.nasa.jpf.constraints.evaluation.Code.LongCode;
+import gov.nasa.jpf.constraints.evaluation.Code.RefCode;
+import gov.nasa.jpf.constraints.evaluation.VariableLayout.Slot;
+import gov.nasa.jpf.constraints.evaluation.VariableLayout.Storage;
+import gov.nasa.jpf.constraints.exceptions.ModDivZeroException;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorNegation;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.IfThenElse;
+import gov.nasa.jpf.constraints.expressions.MemoizingExpressionVisitor;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.NumericType;
+import gov.nasa.jpf.constraints.types.Type;
+import java.math.BigInteger;
+
+/**
+ * Translates an expression into {@link Code}. Nodes over booleans, fixed-width bitvectors and
+ * floating-point numbers get unboxed implementations; numeric nodes over other types operate on
+ * boxed values through their {@link NumericType}. All remaining nodes are evaluated by their own
+ * {@code evaluate} method on a valuation view of the frame.
+ *
+ * <p>Results and exceptions are those of {@link Expression#evaluate} or, in SMT mode, of {@link
+ * Expression#evaluateSMT}; in particular, both operands of a propositional compound are always
+ * evaluated.
+ */
+class CodeGenerator extends MemoizingExpressionVisitor<Code, Void> {
+
+  private final VariableLayout layout;
+
+  private final boolean smt;
+
+  private CodeGenerator plain;
+
+  CodeGenerator(VariableLayout layout, boolean smt) {
+    this.layout = layout;
+    this.smt = smt;
+  }
+
+  Code generate(Expression<?> expression) {
+    return visit(expression, null);
+  }
+
+  @Override
+  public <E> Code visit(Variable<E> v, Void data) {
+    Slot slot = layout.slot(v);
+    Type<E> type = v.getType();
+    switch (slot.getStorage()) {
+      case BOOL:
+        return Code.of(type, (BoolCode) f -> f.getBoolean(slot));
+      case LONG:
+        return Code.of(type, (LongCode) f -> f.getLong(slot));
+      case DOUBLE:
+        return Code.of(type, (DoubleCode) f -> f.getDouble(slot));
+      default:
+        return Code.of(type, (RefCode) f -> f.getObject(slot));
+    }
+  }
+
+  @Override
+  public <E> Code visit(Constant<E> c, Void data) {
+    Object value = c.getValue();
+    Type<E> type = c.getType();
+    Storage storage = value != null ? Storage.of(type) : Storage.REF;
+    switch (storage) {
+      case BOOL:
+        boolean bool = (Boolean) value;
+        return Code.of(type, (BoolCode) f -> bool);
+      case LONG:
+        long integer = EvaluationFrame.toLong(value);
+        return Code.of(type, (LongCode) f -> integer);
+      case DOUBLE:
+        double fp = ((Number) value).doubleValue();
+        return Code.of(type, (DoubleCode) f -> fp);
+      default:
+        return Code.of(type, (RefCode) f -> value);
+    }
+  }
+
+  @Override
+  public Code visit(Negation n, Void data) {
+    BoolCode negated = visit(n.getNegated(), data).asBool();
+    return Code.of(BuiltinTypes.BOOL, (BoolCode) f -> !negated.eval(f));
+  }
+
+  @Override
+  public Code visit(PropositionalCompound n, Void data) {
+    BoolCode left = visit(n.getLeft(), data).asBool();
+    BoolCode right = visit(n.getRight(), data).asBool();
+    BoolCode code;
+    switch (n.getOperator()) {
+      case AND:
+        code = f -> left.eval(f) & right.eval(f);
+        break;
+      case OR:
+        code = f -> left.eval(f) | right.eval(f);
+        break;
+      case IMPLY:
+        code = f -> !left.eval(f) | right.eval(f);
+        break;
+      case EQUIV:
+        code = f -> left.eval(f) == right.eval(f);
+        break;
+      case XOR:
+        code = f -> left.eval(f) ^ right.eval(f);
+        break;
+      default:
+        return fallback(n);
+    }
+    return Code.of(BuiltinTypes.BOOL, code);
+  }
+
+  @Override
+  public Code visit(NumericBooleanExpression n, Void data) {
+    Type<?> type = n.getLeft().getType();
+    if (!type.equals(n.getRight().getType()) || !(type instanceof NumericType)) {
+      return fallback(n);
+    }
+    Code left = visit(n.getLeft(), data);
+    Code right = visit(n.getRight(), data);
+    NumericComparator comparator = n.getComparator();
+    BoolCode code;
+    switch (Storage.of(type)) {
+      case LONG:
+        code = compareLongs(comparator, left.asLong(), right.asLong());
+        break;
+      case DOUBLE:
+        DoubleCode l = left.asDouble();
+        DoubleCode r = right.asDouble();
+        code = f -> comparator.eval(Double.compare(l.eval(f), r.eval(f)));
+        break;
+      default:
+        @SuppressWarnings("unchecked")
+        NumericType<Object> numeric = (NumericType<Object>) type;
+        RefCode lr = left.asRef();
+        RefCode rr = right.asRef();
+        code = f -> comparator.eval(numeric.compare(unwrap(lr.eval(f)), unwrap(rr.eval(f))));
+    }
+    if (smt) {
+      BoolCode unguarded = code;
+      code =
+          f -> {
+            try {
+              return unguarded.eval(f);
+            } catch (ModDivZeroException e) {
+              return true;
+            }
+          };
+    }
+    return Code.of(BuiltinTypes.BOOL, code);
+  }
+
+  private static BoolCode compareLongs(NumericComparator comparator, LongCode l, LongCode r) {
+    switch (comparator) {
+      case EQ:
+        return f -> l.eval(f) == r.eval(f);
+      case NE:
+        return f -> l.eval(f) != r.eval(f);
+      case LT:
+        return f -> l.eval(f) < r.eval(f);
+      case LE:
+        return f -> l.eval(f) <= r.eval(f);
+      case GT:
+        return f -> l.eval(f) > r.eval(f);
+      case GE:
+        return f -> l.eval(f) >= r.eval(f);
+      default:
+        return f -> comparator.eval(Long.compare(l.eval(f), r.eval(f)));
+    }
+  }
+
+  private static Object unwrap(Object value) {
+    return value instanceof Constant ? ((Constant<?>) value).getValue() : value;
+  }
+
+  @Override
+  public <E> Code visit(NumericCompound<E> n, Void data) {
+    Type<E> type = n.getType();
+    NumericOperator operator = n.getOperator();
+    Storage storage = Storage.of(type);
+    if (operator == NumericOperator.MOD
+        && (storage == Storage.DOUBLE || BuiltinTypes.UINT16.equals(type))) {
+      // these types reject MOD at evaluation time
+      storage = Storage.REF;
+    }
+    Code left = visit(n.getLeft(), data);
+    Code right = visit(n.getRight(), data);
+    switch (storage) {
+      case LONG:
+        return Code.of(type, narrow(type, longArithmetic(operator, left.asLong(), right.asLong())));
+      case DOUBLE:
+        DoubleCode result = doubleArithmetic(operator, left.asDouble(), right.asDouble());
+        return Code.of(type, round(type, result));
+      default:
+        return Code.of(type, boxedArithmetic(type, operator, left.asRef(), right.asRef()));
+    }
+  }
+
+  private static LongCode longArithmetic(NumericOperator operator, LongCode l, LongCode r) {
+    switch (operator) {
+      case PLUS:
+        return f -> l.eval(f) + r.eval(f);
+      case MINUS:
+        return f -> l.eval(f) - r.eval(f);
+      case MUL:
+        return f -> l.eval(f) * r.eval(f);
+      case DIV:
+        return f -> l.eval(f) / r.eval(f);
+      case REM:
+        return f -> l.eval(f) % r.eval(f);
+      case MOD:
+        return f -> Math.floorMod(l.eval(f), r.eval(f));
+      default:
+        throw new IllegalStateException("Unknown numeric operator " + operator);
+    }
+  }
+
+  private static DoubleCode doubleArithmetic(NumericOperator operator, DoubleCode l, DoubleCode r) {
+    switch (operator) {
+      case PLUS:
+        return f -> l.eval(f) + r.eval(f);
+      case MINUS:
+        return f -> l.eval(f) - r.eval(f);
+      case MUL:
+        return f -> l.eval(f) * r.eval(f);
+      case DIV:
+        return f -> l.eval(f) / r.eval(f);
+      case REM:
+        return f -> l.eval(f) % r.eval(f);
+      default:
+        throw new IllegalStateException("Unknown numeric operator " + operator);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RefCode boxedArithmetic(
+      Type<?> type, NumericOperator operator, RefCode l, RefCode r) {
+    NumericType<Object> numeric = (NumericType<Object>) type;
+    switch (operator) {
+      case PLUS:
+        return f -> numeric.plus(l.eval(f), r.eval(f));
+      case MINUS:
+        return f -> numeric.minus(l.eval(f), r.eval(f));
+      case MUL:
+        return f -> numeric.mul(l.eval(f), r.eval(f));
+      case DIV:
+        return f -> {
+          Object lv = l.eval(f);
+          Object rv = r.eval(f);
+          if (rv == BigInteger.ZERO) {
+            throw new ModDivZeroException();
+          }
+          return numeric.div(lv, rv);
+        };
+      case REM:
+        return f -> numeric.rem(l.eval(f), r.eval(f));
+      case MOD:
+        return f -> {
+          Object lv = l.eval(f);
+          Object rv = r.eval(f);
+          if (rv.equals(BigInteger.ZERO)) {
+            throw new ModDivZeroException();
+          }
+          return numeric.mod(lv, rv);
+        };
+      default:
+        throw new IllegalStateException("Unknown numeric operator " + operator);
+    }
+  }
+
+  @Override
+  public <E> Code visit(UnaryMinus<E> n, Void data) {
+    Type<E> type = n.getType();
+    Code negated = visit(n.getNegated(), data);
+    switch (Storage.of(type)) {
+      case LONG:
+        LongCode l = negated.asLong();
+        return Code.of(type, narrow(type, f -> -l.eval(f)));
+      case DOUBLE:
+        DoubleCode d = negated.asDouble();
+        return Code.of(type, (DoubleCode) f -> -d.eval(f));
+      default:
+        @SuppressWarnings("unchecked")
+        NumericType<Object> numeric = (NumericType<Object>) type;
+        RefCode r = negated.asRef();
+        return Code.of(type, (RefCode) f -> numeric.negate(r.eval(f)));
+    }
+  }
+
+  @Override
+  public <E> Code visit(BitvectorExpression<E> bv, Void data) {
+    Type<E> type = bv.getType();
+    if (Storage.of(type) != Storage.LONG) {
+      return fallback(bv);
+    }
+    LongCode l = visit(bv.getLeft(), data).asLong();
+    LongCode r = visit(bv.getRight(), data).asLong();
+    boolean wide = BuiltinTypes.SINT64.equals(type);
+    LongCode code;
+    switch (bv.getOperator()) {
+      case AND:
+        code = f -> l.eval(f) & r.eval(f);
+        break;
+      case OR:
+        code = f -> l.eval(f) | r.eval(f);
+        break;
+      case XOR:
+        code = f -> l.eval(f) ^ r.eval(f);
+        break;
+      // narrower types shift as int, which masks the shift distance to five bits
+      case SHIFTL:
+        code = wide ? f -> l.eval(f) << r.eval(f) : f -> (int) l.eval(f) << (int) r.eval(f);
+        break;
+      case SHIFTR:
+        code = wide ? f -> l.eval(f) >> r.eval(f) : f -> (int) l.eval(f) >> (int) r.eval(f);
+        break;
+      case SHIFTUR:
+        code = wide ? f -> l.eval(f) >>> r.eval(f) : f -> (int) l.eval(f) >>> (int) r.eval(f);
+        break;
+      default:
+        return fallback(bv);
+    }
+    return Code.of(type, narrow(type, code));
+  }
+
+  @Override
+  public <E> Code visit(BitvectorNegation<E> n, Void data) {
+    Type<E> type = n.getType();
+    if (Storage.of(type) != Storage.LONG) {
+      return fallback(n);
+    }
+    LongCode negated = visit(n.getNegated(), data).asLong();
+    return Code.of(type, narrow(type, f -> ~negated.eval(f)));
+  }
+
+  @Override
+  public <E> Code visit(IfThenElse<E> n, Void data) {
+    Type<E> type = n.getType();
+    BoolCode cond = visit(n.getIf(), data).asBool();
+    Code thenCode = visit(n.getThen(), data);
+    Code elseCode = visit(n.getElse(), data);
+    switch (Storage.of(type)) {
+      case BOOL:
+        BoolCode tb = thenCode.asBool();
+        BoolCode eb = elseCode.asBool();
+        return Code.of(type, (BoolCode) f -> cond.eval(f) ? tb.eval(f) : eb.eval(f));
+      case LONG:
+        LongCode tl = thenCode.asLong();
+        LongCode el = elseCode.asLong();
+        return Code.of(type, (LongCode) f -> cond.eval(f) ? tl.eval(f) : el.eval(f));
+      case DOUBLE:
+        DoubleCode td = thenCode.asDouble();
+        DoubleCode ed = elseCode.asDouble();
+        return Code.of(type, (DoubleCode) f -> cond.eval(f) ? td.eval(f) : ed.eval(f));
+      default:
+        RefCode tr = thenCode.asRef();
+        RefCode er = elseCode.asRef();
+        return Code.of(type, (RefCode) f -> cond.eval(f) ? tr.eval(f) : er.eval(f));
+    }
+  }
+
+  @Override
+  public <F, E> Code visit(CastExpression<F, E> cast, Void data) {
+    // evaluateSMT of a cast evaluates its operand with evaluate
+    CodeGenerator operandGenerator = smt ? plain() : this;
+    RefCode casted = operandGenerator.generate(cast.getCasted()).asRef();
+    @SuppressWarnings("unchecked")
+    CastOperation<Object, ? extends E> op = (CastOperation<Object, ? extends E>) cast.getCastOp();
+    return Code.of(cast.getType(), (RefCode) f -> op.cast(casted.eval(f)));
+  }
+
+  private CodeGenerator plain() {
+    if (plain == null) {
+      plain = new CodeGenerator(layout, false);
+    }
+    return plain;
+  }
+
+  @Override
+  protected <E> Code defaultVisit(Expression<E> expression, Void data) {
+    return fallback(expression);
+  }
+
+  private Code fallback(Expression<?> expression) {
+    RefCode code =
+        smt ? f -> expression.evaluateSMT(f.view()) : f -> expression.evaluate(f.view());
+    return Code.of(expression.getType(), code);
+  }
+
+  private static LongCode narrow(Type<?> type, LongCode code) {
+    if (BuiltinTypes.SINT32.equals(type)) {
+      return f -> (int) code.eval(f);
+    }
+    if (BuiltinTypes.SINT8.equals(type)) {
+      return f -> (byte) code.eval(f);
+    }
+    if (BuiltinTypes.SINT16.equals(type)) {
+      return f -> (short) code.eval(f);
+    }
+    if (BuiltinTypes.UINT16.equals(type)) {
+      return f -> (char) code.eval(f);
+    }
+    return code;
+  }
+
+  private static DoubleCode round(Type<?> type, DoubleCode code) {
+    if (BuiltinTypes.FLOAT.equals(type)) {
+      // double results of +, -, *, / and % on floats round to the float result
+      return f -> (float) code.eval(f);
+    }
+    return code;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.evaluation.Code.BoolCode;
+
+/**
+ * A boolean expression compiled against a {@link VariableLayout}. Instances are immutable and may
+ * be shared between threads; frames may not.
+ */
+public final class CompiledPredicate {
+
+  private final Expression<Boolean> source;
+  private final VariableLayout layout;
+  private final BoolCode code;
+
+  CompiledPredicate(Expression<Boolean> source, VariableLayout layout, BoolCode code) {
+    this.source = source;
+    this.layout = layout;
+    this.code = code;
+  }
+
+  public Expression<Boolean> getSource() {
+    return source;
+  }
+
+  public VariableLayout getLayout() {
+    return layout;
+  }
+
+  /** Evaluates the predicate on a frame of this predicate's layout. */
+  public boolean test(EvaluationFrame frame) {
+    if (frame.getLayout() != layout) {
+      throw new IllegalArgumentException("Frame belongs to a different variable layout");
+    }
+    return code.eval(frame);
+  }
+
+  /**
+   * Evaluates the predicate on a valuation. A {@link SlotValuation} of this predicate's layout is
+   * read directly; any other valuation is copied into a new frame first.
+   */
+  public boolean test(Valuation values) {
+    if (values instanceof SlotValuation && ((SlotValuation) values).getLayout() == layout) {
+      return code.eval(((SlotValuation) values).getFrame());
+    }
+    return code.eval(EvaluationFrame.of(layout, values));
+  }
+}
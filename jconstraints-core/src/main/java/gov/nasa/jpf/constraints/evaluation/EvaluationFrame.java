@@ -0,0 +1,333 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.evaluation.VariableLayout.Slot;
+import gov.nasa.jpf.constraints.evaluation.VariableLayout.Storage;
+import gov.nasa.jpf.constraints.exceptions.EvaluationException;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+import java.util.Arrays;
+
+/**
+ * Values of the variables of a {@link VariableLayout}, stored unboxed where the layout allows it.
+ * Frames are not thread-safe; use one frame per thread and reuse it across evaluations. {@link
+ * #snapshot()} copies a frame in constant time; the arrays are copied on the next write to either
+ * frame.
+ */
+public final class EvaluationFrame {
+
+  private final VariableLayout layout;
+
+  private boolean[] bools;
+  private long[] longs;
+  private double[] doubles;
+  private Object[] refs;
+  private long[] defined;
+
+  private boolean shared;
+
+  private Valuation view;
+
+  public EvaluationFrame(VariableLayout layout) {
+    this.layout = layout;
+    this.bools = new boolean[layout.count(Storage.BOOL)];
+    this.longs = new long[layout.count(Storage.LONG)];
+    this.doubles = new double[layout.count(Storage.DOUBLE)];
+    this.refs = new Object[layout.count(Storage.REF)];
+    this.defined = new long[(layout.size() + 63) >>> 6];
+  }
+
+  private EvaluationFrame(EvaluationFrame original) {
+    this.layout = original.layout;
+    this.bools = original.bools;
+    this.longs = original.longs;
+    this.doubles = original.doubles;
+    this.refs = original.refs;
+    this.defined = original.defined;
+    this.view = original.view;
+    this.shared = true;
+    original.shared = true;
+  }
+
+  /** A frame for {@code layout} holding the values of {@code values}. */
+  public static EvaluationFrame of(VariableLayout layout, Valuation values) {
+    EvaluationFrame frame = new EvaluationFrame(layout);
+    frame.load(values);
+    return frame;
+  }
+
+  public VariableLayout getLayout() {
+    return layout;
+  }
+
+  /**
+   * Replaces the content of this frame by the values of {@code values}. Variables without a slot
+   * in the layout are ignored, loading never changes the layout.
+   */
+  public void load(Valuation values) {
+    clear();
+    for (ValuationEntry<?> e : values) {
+      Slot slot = layout.find(e.getVariable());
+      if (slot != null) {
+        setObject(slot, e.getValue());
+      }
+    }
+  }
+
+  /** Removes all values. */
+  public void clear() {
+    if (shared) {
+      bools = new boolean[bools.length];
+      longs = new long[longs.length];
+      doubles = new double[doubles.length];
+      refs = new Object[refs.length];
+      defined = new long[defined.length];
+      shared = false;
+    } else {
+      Arrays.fill(defined, 0L);
+      Arrays.fill(refs, null);
+    }
+    view = null;
+  }
+
+  /** Returns an independent copy of this frame without copying its content yet. */
+  public EvaluationFrame snapshot() {
+    return new EvaluationFrame(this);
+  }
+
+  public <E> void setValue(Variable<E> var, E value) {
+    setObject(layout.slot(var), value);
+  }
+
+  /** Returns the boxed value of {@code var}. */
+  public Object getValue(Variable<?> var) {
+    Slot slot = layout.find(var);
+    if (slot == null || !isDefined(slot)) {
+      throw missing(var);
+    }
+    return getObject(slot);
+  }
+
+  public boolean containsValueFor(Variable<?> var) {
+    Slot slot = layout.find(var);
+    return slot != null && isDefined(slot);
+  }
+
+  public boolean isDefined(Slot slot) {
+    int word = slot.getOrdinal() >>> 6;
+    return word < defined.length && (defined[word] & (1L << slot.getOrdinal())) != 0;
+  }
+
+  public void setBoolean(Slot slot, boolean value) {
+    define(slot);
+    bools[slot.getIndex()] = value;
+  }
+
+  public void setLong(Slot slot, long value) {
+    define(slot);
+    longs[slot.getIndex()] = value;
+  }
+
+  public void setDouble(Slot slot, double value) {
+    define(slot);
+    doubles[slot.getIndex()] = value;
+  }
+
+  /** Stores a boxed value, unboxing it if the slot has primitive storage. */
+  public void setObject(Slot slot, Object value) {
+    if (value == null && slot.getStorage() != Storage.REF) {
+      undefine(slot);
+      return;
+    }
+    switch (slot.getStorage()) {
+      case BOOL:
+        setBoolean(slot, (Boolean) value);
+        break;
+      case LONG:
+        setLong(slot, toLong(value));
+        break;
+      case DOUBLE:
+        setDouble(slot, ((Number) value).doubleValue());
+        break;
+      default:
+        define(slot);
+        refs[slot.getIndex()] = value;
+    }
+  }
+
+  public boolean getBoolean(Slot slot) {
+    checkDefined(slot);
+    return bools[slot.getIndex()];
+  }
+
+  public long getLong(Slot slot) {
+    checkDefined(slot);
+    return longs[slot.getIndex()];
+  }
+
+  public double getDouble(Slot slot) {
+    checkDefined(slot);
+    return doubles[slot.getIndex()];
+  }
+
+  /** Returns the value of a defined slot, boxed to the Java class of its type. */
+  public Object getObject(Slot slot) {
+    checkDefined(slot);
+    Type<?> type = slot.getVariable().getType();
+    switch (slot.getStorage()) {
+      case BOOL:
+        return bools[slot.getIndex()];
+      case LONG:
+        return boxLong(type, longs[slot.getIndex()]);
+      case DOUBLE:
+        return boxDouble(type, doubles[slot.getIndex()]);
+      default:
+        return refs[slot.getIndex()];
+    }
+  }
+
+  /** Copies all values into a new {@link Valuation}. */
+  public Valuation toValuation() {
+    Valuation result = new Valuation();
+    for (Slot slot : layout.slots()) {
+      if (isDefined(slot)) {
+        copyTo(result, slot.getVariable(), getObject(slot));
+      }
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> void copyTo(Valuation target, Variable<E> var, Object value) {
+    target.setValue(var, (E) value);
+  }
+
+  /** A valuation with the content of this frame, kept until the frame is modified. */
+  Valuation view() {
+    if (view == null) {
+      view = toValuation();
+    }
+    return view;
+  }
+
+  private void define(Slot slot) {
+    unshare();
+    int word = slot.getOrdinal() >>> 6;
+    if (word >= defined.length) {
+      defined = Arrays.copyOf(defined, Math.max(word + 1, defined.length * 2));
+    }
+    ensureCapacity(slot);
+    defined[word] |= 1L << slot.getOrdinal();
+    view = null;
+  }
+
+  private void undefine(Slot slot) {
+    unshare();
+    int word = slot.getOrdinal() >>> 6;
+    if (word < defined.length) {
+      defined[word] &= ~(1L << slot.getOrdinal());
+    }
+    view = null;
+  }
+
+  private void unshare() {
+    if (shared) {
+      bools = bools.clone();
+      longs = longs.clone();
+      doubles = doubles.clone();
+      refs = refs.clone();
+      defined = defined.clone();
+      shared = false;
+    }
+  }
+
+  private void ensureCapacity(Slot slot) {
+    int index = slot.getIndex();
+    switch (slot.getStorage()) {
+      case BOOL:
+        if (index >= bools.length) {
+          bools = Arrays.copyOf(bools, grow(bools.length, index));
+        }
+        break;
+      case LONG:
+        if (index >= longs.length) {
+          longs = Arrays.copyOf(longs, grow(longs.length, index));
+        }
+        break;
+      case DOUBLE:
+        if (index >= doubles.length) {
+          doubles = Arrays.copyOf(doubles, grow(doubles.length, index));
+        }
+        break;
+      default:
+        if (index >= refs.length) {
+          refs = Arrays.copyOf(refs, grow(refs.length, index));
+        }
+    }
+  }
+
+  private static int grow(int length, int index) {
+    return Math.max(index + 1, length * 2);
+  }
+
+  private void checkDefined(Slot slot) {
+    if (!isDefined(slot)) {
+      throw missing(slot.getVariable());
+    }
+  }
+
+  private static EvaluationException missing(Variable<?> var) {
+    return new EvaluationException("Valuation has no value for: " + var.getName());
+  }
+
+  static long toLong(Object value) {
+    if (value instanceof Character) {
+      return (Character) value;
+    }
+    return ((Number) value).longValue();
+  }
+
+  static Object boxLong(Type<?> type, long value) {
+    if (BuiltinTypes.SINT32.equals(type)) {
+      return (int) value;
+    }
+    if (BuiltinTypes.SINT64.equals(type)) {
+      return value;
+    }
+    if (BuiltinTypes.SINT8.equals(type)) {
+      return (byte) value;
+    }
+    if (BuiltinTypes.SINT16.equals(type)) {
+      return (short) value;
+    }
+    return (char) value;
+  }
+
+  static Object boxDouble(Type<?> type, double value) {
+    if (BuiltinTypes.FLOAT.equals(type)) {
+      return (float) value;
+    }
+    return value;
+  }
+}
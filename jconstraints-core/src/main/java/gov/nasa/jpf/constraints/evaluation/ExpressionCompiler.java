@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+
+/**
+ * Compiles boolean expressions into reusable evaluators. The expression tree is walked once; the
+ * result is a tree of closures that read variables from frame slots and compute on primitive
+ * values wherever the type is a fixed-width bitvector, a floating-point type or boolean.
+ *
+ * <p>A compiled predicate returns the same results as {@link Expression#evaluate} (or {@link
+ * Expression#evaluateSMT} for {@link #compileSMT}) and throws the same exceptions.
+ */
+public final class ExpressionCompiler {
+
+  private ExpressionCompiler() {}
+
+  /** Compiles {@code expression} with the semantics of {@link Expression#evaluate}. */
+  public static CompiledPredicate compile(Expression<Boolean> expression) {
+    return compile(expression, VariableLayout.of(expression));
+  }
+
+  /** Compiles {@code expression} against a given, possibly shared layout. */
+  public static CompiledPredicate compile(Expression<Boolean> expression, VariableLayout layout) {
+    return compile(expression, layout, false);
+  }
+
+  /** Compiles {@code expression} with the semantics of {@link Expression#evaluateSMT}. */
+  public static CompiledPredicate compileSMT(Expression<Boolean> expression) {
+    return compileSMT(expression, VariableLayout.of(expression));
+  }
+
+  /** Compiles {@code expression} against a given, possibly shared layout. */
+  public static CompiledPredicate compileSMT(
+      Expression<Boolean> expression, VariableLayout layout) {
+    return compile(expression, layout, true);
+  }
+
+  private static CompiledPredicate compile(
+      Expression<Boolean> expression, VariableLayout layout, boolean smt) {
+    // frames only load variables known to the layout, so fallback nodes need theirs as well
+    for (Variable<?> v : ExpressionUtil.freeVariables(expression)) {
+      layout.slot(v);
+    }
+    Code code = new CodeGenerator(layout, smt).generate(expression);
+    return new CompiledPredicate(expression, layout, code.asBool());
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.evaluation.VariableLayout.Slot;
+import gov.nasa.jpf.constraints.exceptions.EvaluationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A valuation that stores its values in an {@link EvaluationFrame}. Each variable has a dense slot
+ * in a {@link VariableLayout}, which may be shared between many valuations, e.g., all models of one
+ * solver context. Lookups are array accesses, booleans and fixed-width numbers are stored unboxed,
+ * and {@link #snapshot()} takes constant time.
+ *
+ * <p>Entries returned by {@link #getEntry}, {@link #entries()} and {@link #iterator()} are copies;
+ * modifying them does not modify the valuation. Serialization writes a plain {@link Valuation}.
+ */
+public class SlotValuation extends Valuation {
+
+  private final EvaluationFrame frame;
+
+  public SlotValuation() {
+    this(new VariableLayout());
+  }
+
+  public SlotValuation(VariableLayout layout) {
+    this(new EvaluationFrame(layout));
+  }
+
+  private SlotValuation(EvaluationFrame frame) {
+    this.frame = frame;
+  }
+
+  /** A valuation for {@code layout} holding the values of {@code values}. */
+  public static SlotValuation of(VariableLayout layout, Valuation values) {
+    SlotValuation result = new SlotValuation(layout);
+    result.putAll(values);
+    return result;
+  }
+
+  public VariableLayout getLayout() {
+    return frame.getLayout();
+  }
+
+  /** The frame holding the values; writes to it are writes to this valuation. */
+  public EvaluationFrame getFrame() {
+    return frame;
+  }
+
+  /** Returns an independent copy; the values are copied on the next write to either valuation. */
+  public SlotValuation snapshot() {
+    return new SlotValuation(frame.snapshot());
+  }
+
+  /** Copies all values into a plain {@link Valuation}. */
+  public Valuation toValuation() {
+    return frame.toValuation();
+  }
+
+  @Override
+  public <E> ValuationEntry<E> getEntry(Variable<E> var) {
+    Slot slot = getLayout().find(var);
+    if (slot == null || !frame.isDefined(slot)) {
+      return null;
+    }
+    return entry(slot);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <E> E getValue(Variable<E> var) {
+    return (E) frame.getValue(var);
+  }
+
+  @Override
+  public <E> void setValue(Variable<E> var, E value) {
+    frame.setValue(var, value);
+  }
+
+  public boolean getBoolean(Variable<Boolean> var) {
+    return frame.getBoolean(find(var));
+  }
+
+  /** Returns the value of a variable of fixed-width bitvector type, widened to {@code long}. */
+  public long getLong(Variable<?> var) {
+    return frame.getLong(find(var));
+  }
+
+  /** Returns the value of a variable of floating-point type, widened to {@code double}. */
+  public double getDouble(Variable<?> var) {
+    return frame.getDouble(find(var));
+  }
+
+  public void setBoolean(Variable<Boolean> var, boolean value) {
+    frame.setBoolean(slot(var, VariableLayout.Storage.BOOL), value);
+  }
+
+  /**
+   * Sets the value of a variable of fixed-width bitvector type. {@code value} must be in the range
+   * of the type.
+   */
+  public void setLong(Variable<?> var, long value) {
+    frame.setLong(slot(var, VariableLayout.Storage.LONG), value);
+  }
+
+  /** Sets the value of a variable of floating-point type. */
+  public void setDouble(Variable<?> var, double value) {
+    frame.setDouble(slot(var, VariableLayout.Storage.DOUBLE), value);
+  }
+
+  private Slot find(Variable<?> var) {
+    Slot slot = getLayout().find(var);
+    if (slot == null) {
+      throw new EvaluationException("Valuation has no value for: " + var.getName());
+    }
+    return slot;
+  }
+
+  private Slot slot(Variable<?> var, VariableLayout.Storage storage) {
+    if (VariableLayout.Storage.of(var.getType()) != storage) {
+      throw new IllegalArgumentException("Variable " + var + " has no " + storage + " slot");
+    }
+    return getLayout().slot(var);
+  }
+
+  @Override
+  public boolean containsValueFor(Variable<?> v) {
+    return frame.containsValueFor(v);
+  }
+
+  @Override
+  public Set<Variable<?>> getVariables() {
+    Set<Variable<?>> variables = new LinkedHashSet<>();
+    for (Slot slot : getLayout().slots()) {
+      if (frame.isDefined(slot)) {
+        variables.add(slot.getVariable());
+      }
+    }
+    return variables;
+  }
+
+  @Override
+  public Collection<ValuationEntry<?>> entries() {
+    List<ValuationEntry<?>> entries = new ArrayList<>();
+    for (Slot slot : getLayout().slots()) {
+      if (frame.isDefined(slot)) {
+        entries.add(entry(slot));
+      }
+    }
+    return Collections.unmodifiableList(entries);
+  }
+
+  @Override
+  public Iterator<ValuationEntry<?>> iterator() {
+    return entries().iterator();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <E> ValuationEntry<E> entry(Slot slot) {
+    return ValuationEntry.create((Variable<E>) slot.getVariable(), (E) frame.getObject(slot));
+  }
+
+  @Override
+  public void putAll(Valuation v, boolean override) {
+    for (ValuationEntry<?> e : v) {
+      if (override || !containsValueFor(e.getVariable())) {
+        frame.setObject(getLayout().slot(e.getVariable()), e.getValue());
+      }
+    }
+  }
+
+  @Override
+  public Expression<?> apply(Variable<?> var) {
+    ValuationEntry<?> e = getEntry(var);
+    return e == null ? var : e.valueConstant();
+  }
+
+  @Override
+  public Object getValue(String varName) {
+    for (Slot slot : getLayout().slots()) {
+      if (frame.isDefined(slot) && slot.getVariable().getName().equals(varName)) {
+        return frame.getObject(slot);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  @Deprecated
+  @SuppressWarnings("rawtypes")
+  public Set<Map.Entry<Variable, Object>> entrySet() {
+    Set<Map.Entry<Variable, Object>> entries = new HashSet<>();
+    for (ValuationEntry<?> e : entries()) {
+      entries.add(e.toEntry());
+    }
+    return entries;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 0;
+    for (Slot slot : getLayout().slots()) {
+      if (frame.isDefined(slot)) {
+        hash += slot.getVariable().hashCode() ^ Objects.hashCode(frame.getObject(slot));
+      }
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    SlotValuation other = (SlotValuation) obj;
+    int count = 0;
+    for (Slot slot : getLayout().slots()) {
+      if (frame.isDefined(slot)) {
+        Variable<?> var = slot.getVariable();
+        if (!other.containsValueFor(var)
+            || !Objects.equals(frame.getObject(slot), other.frame.getValue(var))) {
+          return false;
+        }
+        count++;
+      }
+    }
+    return count == other.getVariables().size();
+  }
+
+  @Override
+  public void print(Appendable a) throws IOException {
+    boolean first = true;
+    for (ValuationEntry<?> e : entries()) {
+      if (first) {
+        first = false;
+      } else {
+        a.append(',');
+      }
+      a.append(e.getVariable().getName()).append(":=").append(String.valueOf(e.getValue()));
+    }
+  }
+
+  private Object writeReplace() {
+    return toValuation();
+  }
+}
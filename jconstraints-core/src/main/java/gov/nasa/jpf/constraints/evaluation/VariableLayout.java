@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every variable a dense slot. Booleans, fixed-width bitvector integers and floating-point
+ * numbers get slots in primitive arrays of an {@link EvaluationFrame}; all other values are stored
+ * boxed. Slots are never removed, so a layout can be shared and extended while frames and compiled
+ * expressions built from it remain valid.
+ */
+public final class VariableLayout {
+
+  /** How the value of a variable is stored in a frame. */
+  public enum Storage {
+    BOOL,
+    LONG,
+    DOUBLE,
+    REF;
+
+    /** The storage used for values of {@code type}. */
+    public static Storage of(Type<?> type) {
+      if (BuiltinTypes.BOOL.equals(type)) {
+        return BOOL;
+      }
+      if (BuiltinTypes.SINT8.equals(type)
+          || BuiltinTypes.SINT16.equals(type)
+          || BuiltinTypes.UINT16.equals(type)
+          || BuiltinTypes.SINT32.equals(type)
+          || BuiltinTypes.SINT64.equals(type)) {
+        return LONG;
+      }
+      if (BuiltinTypes.DOUBLE.equals(type) || BuiltinTypes.FLOAT.equals(type)) {
+        return DOUBLE;
+      }
+      return REF;
+    }
+  }
+
+  /** The position of one variable in a layout. */
+  public static final class Slot {
+    private final Variable<?> variable;
+    private final int ordinal;
+    private final Storage storage;
+    private final int index;
+
+    private Slot(Variable<?> variable, int ordinal, Storage storage, int index) {
+      this.variable = variable;
+      this.ordinal = ordinal;
+      this.storage = storage;
+      this.index = index;
+    }
+
+    public Variable<?> getVariable() {
+      return variable;
+    }
+
+    /** The position among all slots of the layout, in order of registration. */
+    public int getOrdinal() {
+      return ordinal;
+    }
+
+    public Storage getStorage() {
+      return storage;
+    }
+
+    /** The position in the array for {@link #getStorage()}. */
+    public int getIndex() {
+      return index;
+    }
+  }
+
+  private final Map<Variable<?>, Slot> slots = new ConcurrentHashMap<>();
+
+  private final List<Slot> ordered = new ArrayList<>();
+
+  private final int[] counts = new int[Storage.values().length];
+
+  /** A layout with a slot for every free variable of {@code expressions}. */
+  public static VariableLayout of(Expression<?>... expressions) {
+    VariableLayout layout = new VariableLayout();
+    for (Expression<?> e : expressions) {
+      for (Variable<?> v : ExpressionUtil.freeVariables(e)) {
+        layout.slot(v);
+      }
+    }
+    return layout;
+  }
+
+  /** Returns the slot of {@code variable}, registering it if necessary. */
+  public Slot slot(Variable<?> variable) {
+    Slot slot = slots.get(variable);
+    return slot != null ? slot : register(variable);
+  }
+
+  /** Returns the slot of {@code variable}, or {@code null} if it has none. */
+  public Slot find(Variable<?> variable) {
+    return slots.get(variable);
+  }
+
+  private synchronized Slot register(Variable<?> variable) {
+    Slot slot = slots.get(variable);
+    if (slot == null) {
+      Storage storage = Storage.of(variable.getType());
+      slot = new Slot(variable, ordered.size(), storage, counts[storage.ordinal()]++);
+      ordered.add(slot);
+      slots.put(variable, slot);
+    }
+    return slot;
+  }
+
+  /** The number of slots. */
+  public synchronized int size() {
+    return ordered.size();
+  }
+
+  /** The number of slots using {@code storage}. */
+  public synchronized int count(Storage storage) {
+    return counts[storage.ordinal()];
+  }
+
+  /** The slot with the given ordinal. */
+  public synchronized Slot get(int ordinal) {
+    return ordered.get(ordinal);
+  }
+
+  /** All slots, in order of registration. */
+  public synchronized List<Slot> slots() {
+    return Collections.unmodifiableList(new ArrayList<>(ordered));
+  }
+}
@@ -17,8 +17,11 @@
  * limitations under the License.
  */
 
-package gov.nasa.jpf.constraints.solvers.encapsulation.messages;
+package gov.nasa.jpf.constraints.exceptions;
 
-import java.io.Serializable;
-
-public class StartSolvingMessage implements Serializable {}
+/** Signals that a solver gave up on a query because it exceeded its time limit. */
+public class SolverTimeoutException extends Exception {
+  public SolverTimeoutException(String msg) {
+    super(msg);
+  }
+}
@@ -183,7 +183,11 @@ public abstract class AbstractExpressionVisitor<R, D> implements ExpressionVisit
     throw new UnsupportedOperationException();
   }
 
-  protected final R visit(Expression<?> expression, D data) {
+  /**
+   * Visits a child expression. All child visits go through this method, so subclasses may override
+   * it to intercept them, e.g., to reuse results for shared subexpressions.
+   */
+  protected R visit(Expression<?> expression, D data) {
     return expression.accept(this, data);
   }
 
@@ -52,6 +52,8 @@ public class BitvectorExpression<E> extends AbstractExpression<E> {
   private final Expression<E> left;
   private final Expression<E> right;
 
+  private transient int cachedHashCode;
+
   public BitvectorExpression(Expression<E> left, BitvectorOperator op, Expression<E> right) {
     this.op = op;
     this.left = left;
@@ -166,11 +168,15 @@ public class BitvectorExpression<E> extends AbstractExpression<E> {
    */
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + ((left == null) ? 0 : left.hashCode());
     result = prime * result + ((op == null) ? 0 : op.hashCode());
     result = prime * result + ((right == null) ? 0 : right.hashCode());
+    cachedHashCode = result;
     return result;
   }
 
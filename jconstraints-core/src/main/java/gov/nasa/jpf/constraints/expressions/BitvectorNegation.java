@@ -36,6 +36,8 @@ public class BitvectorNegation<E> extends AbstractExpression<E> {
 
   private final Expression<E> negated;
 
+  private transient int cachedHashCode;
+
   public BitvectorNegation(Expression<E> negated) {
     assert negated.getType() instanceof BVIntegerType;
 
@@ -108,9 +110,13 @@ public class BitvectorNegation<E> extends AbstractExpression<E> {
    */
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + ((negated == null) ? 0 : negated.hashCode());
+    cachedHashCode = result;
     return result;
   }
 
@@ -45,6 +45,8 @@ public class CastExpression<F, E> extends AbstractExpression<E> {
   private final Type<E> toType;
   private final CastOperation<? super F, ? extends E> castOp;
 
+  private transient int cachedHashCode;
+
   public CastExpression(
       Expression<F> casted, Type<E> toType, CastOperation<? super F, ? extends E> castOp) {
     this.casted = casted;
@@ -132,11 +134,15 @@ public class CastExpression<F, E> extends AbstractExpression<E> {
    */
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + ((castOp == null) ? 0 : castOp.hashCode());
     result = prime * result + ((casted == null) ? 0 : casted.hashCode());
     result = prime * result + ((toType == null) ? 0 : toType.hashCode());
+    cachedHashCode = result;
     return result;
   }
 
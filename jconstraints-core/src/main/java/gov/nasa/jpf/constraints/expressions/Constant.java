@@ -97,6 +97,9 @@ public class Constant<E> extends AbstractExpression<E> {
 
   @Override
   public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (obj == null) {
       return false;
     }
@@ -36,6 +36,8 @@ public class IfThenElse<E> extends AbstractExpression<E> {
   private final Expression<E> thenExpr;
   private final Expression<E> elseExpr;
 
+  private transient int cachedHashCode;
+
   public IfThenElse(
       Type<E> type, Expression<Boolean> ifCond, Expression<E> thenExpr, Expression<E> elseExpr) {
     this.type = type;
@@ -133,15 +135,22 @@ public class IfThenElse<E> extends AbstractExpression<E> {
 
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     int hash = 3;
     hash = 53 * hash + Objects.hashCode(this.ifCond);
     hash = 53 * hash + Objects.hashCode(this.thenExpr);
     hash = 53 * hash + Objects.hashCode(this.elseExpr);
+    cachedHashCode = hash;
     return hash;
   }
 
   @Override
   public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (obj == null) {
       return false;
     }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.expressions;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A visitor that computes the result of every inner node only once per traversal. Expressions
+ * produced by let-flattening or by symbolic execution share subexpressions, and their expansion
+ * into a tree can be exponentially larger than the shared graph. Results are keyed by node
+ * identity, so the cost of a traversal is linear in the number of distinct nodes.
+ *
+ * <p>The memo ignores the {@code data} argument: subclasses must either produce results that do not
+ * depend on it, or visit such subtrees through {@link #visitUnshared}. Call {@link #resetMemo()}
+ * at the start of every traversal; results may depend on state that changes between traversals.
+ */
+public abstract class MemoizingExpressionVisitor<R, D> extends AbstractExpressionVisitor<R, D> {
+
+  private final Map<Expression<?>, R> memo = new IdentityHashMap<>();
+
+  private int unshared = 0;
+
+  @Override
+  protected final R visit(Expression<?> expression, D data) {
+    if (unshared > 0 || expression instanceof Variable || expression instanceof Constant) {
+      return expression.accept(this, data);
+    }
+    R result = memo.get(expression);
+    if (result == null && !memo.containsKey(expression)) {
+      result = visitShared(expression, data);
+      memo.put(expression, result);
+    }
+    return result;
+  }
+
+  /**
+   * Computes the result for an inner node that is not memoized yet. Subclasses may override this to
+   * consult a longer-lived cache; it is never called inside {@link #visitUnshared}.
+   */
+  protected R visitShared(Expression<?> expression, D data) {
+    return expression.accept(this, data);
+  }
+
+  /**
+   * Visits {@code expression} without reading or writing the memo in its whole subtree, e.g., for
+   * the body of a quantifier, where variables are bound differently than outside.
+   */
+  protected final R visitUnshared(Expression<?> expression, D data) {
+    unshared++;
+    try {
+      return expression.accept(this, data);
+    } finally {
+      unshared--;
+    }
+  }
+
+  /** Forgets all memoized results. */
+  protected void resetMemo() {
+    memo.clear();
+  }
+}
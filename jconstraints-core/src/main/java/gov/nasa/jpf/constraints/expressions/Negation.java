@@ -32,6 +32,8 @@ public class Negation extends AbstractBoolExpression {
 
   private final Expression<Boolean> negated;
 
+  private transient int cachedHashCode;
+
   public static Negation create(final Expression<Boolean> negated) {
     return new Negation(negated);
   }
@@ -61,9 +63,13 @@ public class Negation extends AbstractBoolExpression {
 
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + negated.hashCode();
+    cachedHashCode = result;
     return result;
   }
 
@@ -44,6 +44,8 @@ public class NumericBooleanExpression extends AbstractBoolExpression {
   private final NumericComparator operator;
   private final Expression<?> right;
 
+  private transient int cachedHashCode;
+
   public NumericBooleanExpression(
       Expression<?> left, NumericComparator operator, Expression<?> right) {
     assert !(left != null && left.getType() instanceof BuiltinTypes.BoolType
@@ -129,10 +131,14 @@ public class NumericBooleanExpression extends AbstractBoolExpression {
 
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     int hash = 3;
     hash = 43 * hash + this.left.hashCode();
     hash = 43 * hash + this.operator.hashCode();
     hash = 43 * hash + this.right.hashCode();
+    cachedHashCode = hash;
     return hash;
   }
 
@@ -39,6 +39,8 @@ public class NumericCompound<E> extends AbstractExpression<E> {
   private final Expression<E> left;
   private final Expression<E> right;
 
+  private transient int cachedHashCode;
+
   public NumericCompound(Expression<E> left, NumericOperator operator, Expression<E> right) {
     assert left.getType() instanceof NumericType;
     assert right.getType().equals(left.getType());
@@ -179,11 +181,15 @@ public class NumericCompound<E> extends AbstractExpression<E> {
    */
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + left.hashCode();
     result = prime * result + operator.hashCode();
     result = prime * result + right.hashCode();
+    cachedHashCode = result;
     return result;
   }
 
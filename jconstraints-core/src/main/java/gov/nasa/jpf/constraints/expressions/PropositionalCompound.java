@@ -34,6 +34,8 @@ public class PropositionalCompound extends AbstractBoolExpression {
   private final LogicalOperator operator;
   private final Expression<Boolean> right;
 
+  private transient int cachedHashCode;
+
   public PropositionalCompound(
       Expression<Boolean> left, LogicalOperator operator, Expression<Boolean> right) {
     this.operator = operator;
@@ -135,11 +137,15 @@ public class PropositionalCompound extends AbstractBoolExpression {
    */
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + ((left == null) ? 0 : left.hashCode());
     result = prime * result + ((operator == null) ? 0 : operator.hashCode());
     result = prime * result + ((right == null) ? 0 : right.hashCode());
+    cachedHashCode = result;
     return result;
   }
 
@@ -36,6 +36,8 @@ public class QuantifierExpression extends AbstractBoolExpression {
   private final List<? extends Variable<?>> boundVariables;
   private final Expression<Boolean> body;
 
+  private transient int cachedHashCode;
+
   public QuantifierExpression(
       Quantifier quantifier, List<? extends Variable<?>> boundVariables, Expression<Boolean> body) {
     this.quantifier = quantifier;
@@ -57,6 +59,9 @@ public class QuantifierExpression extends AbstractBoolExpression {
 
   @Override
   public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
     if (obj == null) {
       return false;
     }
@@ -83,10 +88,14 @@ public class QuantifierExpression extends AbstractBoolExpression {
 
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     int hash = 3;
     hash = 43 * hash + quantifier.hashCode();
     hash = 43 * hash + boundVariables.hashCode();
     hash = 43 * hash + body.hashCode();
+    cachedHashCode = hash;
     return hash;
   }
 
@@ -19,12 +19,14 @@
 
 package gov.nasa.jpf.constraints.expressions;
 
+import dk.brics.automaton.RunAutomaton;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.ExpressionVisitor;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.Variable;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Optional;
 
 public class RegExBooleanExpression extends AbstractBoolExpression {
   public static RegExBooleanExpression create(Expression<?> left, Expression<?> right) {
@@ -33,6 +35,7 @@ public class RegExBooleanExpression extends AbstractBoolExpression {
 
   private final Expression<?> left;
   private final Expression<?> right;
+  private transient volatile Optional<RunAutomaton> automaton;
 
   public RegExBooleanExpression(Expression<?> left, Expression<?> right) {
     this.left = left;
@@ -51,14 +54,34 @@ public class RegExBooleanExpression extends AbstractBoolExpression {
   public Boolean evaluate(Valuation values) {
     String stringExpression = (String) left.evaluate(values);
     String regexExpression = (String) right.evaluate(values);
-    return stringExpression.matches(regexExpression);
+    return RegExMatchers.matches(stringExpression, regexExpression);
   }
 
   @Override
   public Boolean evaluateSMT(Valuation values) {
     String stringExpression = (String) left.evaluateSMT(values);
+    Optional<RunAutomaton> compiled = automaton();
+    if (compiled.isPresent()) {
+      return compiled.get().run(stringExpression);
+    }
     String regexExpression = (String) right.evaluateSMT(values);
-    return stringExpression.matches(regexExpression);
+    return RegExMatchers.matches(stringExpression, regexExpression);
+  }
+
+  /**
+   * The automaton for a regex operand without free variables, compiled on first use. Evaluation
+   * through it follows SMT-LIB semantics, including complement and exact intersection.
+   */
+  private Optional<RunAutomaton> automaton() {
+    Optional<RunAutomaton> result = automaton;
+    if (result == null) {
+      result =
+          right instanceof AbstractRegExExpression
+              ? Optional.ofNullable(RegExMatchers.compile(right))
+              : Optional.empty();
+      automaton = result;
+    }
+    return result;
   }
 
   @Override
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.expressions;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RunAutomaton;
+import gov.nasa.jpf.constraints.api.Expression;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled matchers for {@link RegExBooleanExpression}.
+ *
+ * <p>Java patterns are kept in a bounded, concurrent cache keyed by the regex string. Regex
+ * expression trees without free variables can instead be compiled into a minimized {@link
+ * RunAutomaton}, which matches in linear time and follows the SMT-LIB semantics of the operators.
+ */
+public final class RegExMatchers {
+
+  /** Maximum number of compiled patterns kept in the cache. */
+  public static final int MAX_CACHED_PATTERNS = 1024;
+
+  private static final LoadingCache<String, Pattern> PATTERNS =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_PATTERNS)
+          .build(CacheLoader.from(Pattern::compile));
+
+  private RegExMatchers() {}
+
+  /** Equivalent to {@code input.matches(regex)}, but compiles every regex only once. */
+  public static boolean matches(String input, String regex) {
+    return pattern(regex).matcher(input).matches();
+  }
+
+  /** Returns the cached compiled form of {@code regex}. */
+  public static Pattern pattern(String regex) {
+    try {
+      return PATTERNS.getUnchecked(regex);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Compiles a regex expression tree into a minimized deterministic automaton.
+   *
+   * @return the automaton, or {@code null} if the tree contains variables or nodes that have no
+   *     automaton counterpart
+   */
+  public static RunAutomaton compile(Expression<?> regex) {
+    Automaton a = toAutomaton(regex);
+    if (a == null) {
+      return null;
+    }
+    a.minimize();
+    return new RunAutomaton(a, false);
+  }
+
+  private static Automaton toAutomaton(Expression<?> regex) {
+    if (regex instanceof Constant) {
+      Object value = ((Constant<?>) regex).getValue();
+      return value instanceof String ? Automaton.makeString((String) value) : null;
+    }
+    if (regex instanceof RegexOperatorExpression) {
+      return operatorAutomaton((RegexOperatorExpression) regex);
+    }
+    if (regex instanceof RegexCompoundExpression) {
+      RegexCompoundExpression compound = (RegexCompoundExpression) regex;
+      Automaton left = toAutomaton(compound.getLeft());
+      Automaton right = left != null ? toAutomaton(compound.getRight()) : null;
+      if (right == null) {
+        return null;
+      }
+      switch (compound.getOperator()) {
+        case CONCAT:
+          return left.concatenate(right);
+        case UNION:
+          return left.union(right);
+        case INTERSECTION:
+          return left.intersection(right);
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+
+  private static Automaton operatorAutomaton(RegexOperatorExpression regex) {
+    switch (regex.getOperator()) {
+      case ALL:
+        return Automaton.makeAnyString();
+      case ALLCHAR:
+        return Automaton.makeAnyChar();
+      case NOSTR:
+        return Automaton.makeEmpty();
+      case RANGE:
+        return Automaton.makeCharRange(regex.getCh1(), regex.getCh2());
+      case STRTORE:
+        if (regex.getS() != null) {
+          return Automaton.makeString(regex.getS());
+        }
+        return toAutomaton(regex.getLeft());
+      default:
+        break;
+    }
+    Automaton inner = toAutomaton(regex.getLeft());
+    if (inner == null) {
+      return null;
+    }
+    switch (regex.getOperator()) {
+      case KLEENESTAR:
+        return inner.repeat();
+      case KLEENEPLUS:
+        return inner.repeat(1);
+      case OPTIONAL:
+        return inner.optional();
+      case LOOP:
+        return inner.repeat(regex.getLow(), regex.getHigh());
+      case COMPLEMENT:
+        return inner.complement();
+      default:
+        return null;
+    }
+  }
+}
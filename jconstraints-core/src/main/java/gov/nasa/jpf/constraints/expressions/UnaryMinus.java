@@ -37,6 +37,8 @@ public class UnaryMinus<E> extends AbstractExpression<E> {
 
   private final Expression<E> negated;
 
+  private transient int cachedHashCode;
+
   public UnaryMinus(Expression<E> negated) {
     this.negated = negated;
   }
@@ -66,9 +68,13 @@ public class UnaryMinus<E> extends AbstractExpression<E> {
 
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + negated.hashCode();
+    cachedHashCode = result;
     return result;
   }
 
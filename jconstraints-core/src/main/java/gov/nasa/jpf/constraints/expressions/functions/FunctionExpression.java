@@ -34,6 +34,8 @@ public class FunctionExpression<T> extends AbstractExpression<T> {
   private final Function<T> function;
   private final Expression<?>[] args;
 
+  private transient int cachedHashCode;
+
   public FunctionExpression(Function<T> function, Expression<?>... args) {
     if (function.getArity() != args.length) {
       throw new IllegalArgumentException(
@@ -148,10 +150,14 @@ public class FunctionExpression<T> extends AbstractExpression<T> {
    */
   @Override
   public int hashCode() {
+    if (cachedHashCode != 0) {
+      return cachedHashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + Arrays.hashCode(args);
     result = prime * result + ((function == null) ? 0 : function.hashCode());
+    cachedHashCode = result;
     return result;
   }
 
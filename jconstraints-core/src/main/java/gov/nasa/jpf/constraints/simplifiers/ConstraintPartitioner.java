@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.simplifiers;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.functions.Function;
+import gov.nasa.jpf.constraints.expressions.functions.FunctionExpression;
+import gov.nasa.jpf.constraints.simplifiers.datastructures.UnionFind;
+import gov.nasa.jpf.constraints.util.ExpressionTraversal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits a conjunction into independent clusters, i.e., groups of conjuncts that transitively
+ * share no free variables or uninterpreted function symbols with any other group. A conjunction is
+ * satisfiable iff all of its clusters are, so clusters can be solved (and their results reused)
+ * separately.
+ *
+ * <p>Unlike {@link ExpressionTailoringUtil}, which recomputes a slice for one set of variables,
+ * this computes all slices in a single pass using a {@link UnionFind} over variables and function
+ * symbols.
+ */
+public class ConstraintPartitioner {
+
+  private ConstraintPartitioner() {}
+
+  /** Splits nested conjunctions into their conjuncts. Duplicates are dropped. */
+  public static List<Expression<Boolean>> conjuncts(
+      Collection<? extends Expression<Boolean>> assertions) {
+    Set<Expression<Boolean>> result = new LinkedHashSet<>();
+    for (Expression<Boolean> a : assertions) {
+      ExpressionTraversal.conjuncts(a, result);
+    }
+    return new ArrayList<>(result);
+  }
+
+  /**
+   * Partitions {@code conjuncts} into independent clusters. Clusters and the conjuncts within
+   * them keep the order of the input; conjuncts without free variables and function applications
+   * form singleton clusters.
+   */
+  public static List<List<Expression<Boolean>>> partition(
+      List<? extends Expression<Boolean>> conjuncts) {
+    // nodes are variables and functions; functions are identified by name like in SMT-LIB
+    UnionFind<Object> uf = new UnionFind<>();
+    Map<String, Function<?>> functions = new HashMap<>();
+    List<Object> anchors = new ArrayList<>(conjuncts.size());
+    for (Expression<Boolean> c : conjuncts) {
+      Set<Object> symbols = new HashSet<>();
+      Set<Variable<?>> vars = new HashSet<>();
+      c.collectFreeVariables(vars);
+      symbols.addAll(vars);
+      ExpressionTraversal.preOrder(
+          c,
+          n -> {
+            if (n instanceof FunctionExpression) {
+              Function<?> f = ((FunctionExpression<?>) n).getFunction();
+              symbols.add(functions.computeIfAbsent(f.getName(), k -> f));
+            }
+            return true;
+          });
+      Object anchor = null;
+      for (Object s : symbols) {
+        anchor = anchor == null ? uf.find(s) : uf.union(anchor, s);
+      }
+      anchors.add(anchor);
+    }
+
+    Map<Object, List<Expression<Boolean>>> clusters = new LinkedHashMap<>();
+    for (int i = 0; i < conjuncts.size(); i++) {
+      Expression<Boolean> c = conjuncts.get(i);
+      Object key = anchors.get(i) == null ? c : uf.find(anchors.get(i));
+      clusters.computeIfAbsent(key, k -> new ArrayList<>()).add(c);
+    }
+    return new ArrayList<>(clusters.values());
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.simplifiers.datastructures;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Disjoint-set forest with path halving and union by size. Elements are added on first use. */
+public class UnionFind<T> {
+
+  private final Map<T, T> parent = new HashMap<>();
+
+  private final Map<T, Integer> size = new HashMap<>();
+
+  /** Returns the representative of the set containing {@code e}. */
+  public T find(T e) {
+    T p = parent.get(e);
+    if (p == null) {
+      parent.put(e, e);
+      size.put(e, 1);
+      return e;
+    }
+    T cur = e;
+    while (!p.equals(cur)) {
+      T grand = parent.get(p);
+      parent.put(cur, grand);
+      cur = grand;
+      p = parent.get(cur);
+    }
+    return cur;
+  }
+
+  /** Merges the sets containing {@code a} and {@code b} and returns the new representative. */
+  public T union(T a, T b) {
+    T ra = find(a);
+    T rb = find(b);
+    if (ra.equals(rb)) {
+      return ra;
+    }
+    int sa = size.get(ra);
+    int sb = size.get(rb);
+    if (sa < sb) {
+      T tmp = ra;
+      ra = rb;
+      rb = tmp;
+    }
+    parent.put(rb, ra);
+    size.put(ra, sa + sb);
+    size.remove(rb);
+    return ra;
+  }
+
+  public boolean connected(T a, T b) {
+    return find(a).equals(find(b));
+  }
+}
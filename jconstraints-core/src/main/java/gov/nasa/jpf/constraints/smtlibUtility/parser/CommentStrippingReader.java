@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.parser;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Removes SMT-LIB line comments ({@code ;} up to the end of the line) while streaming. Semicolons
+ * inside string literals and {@code |quoted symbols|} are kept; line breaks are preserved.
+ */
+class CommentStrippingReader extends FilterReader {
+
+  private static final int NORMAL = 0;
+  private static final int STRING = 1;
+  private static final int QUOTED = 2;
+  private static final int COMMENT = 3;
+
+  private int state = NORMAL;
+
+  private char[] chunk = new char[0];
+
+  CommentStrippingReader(Reader in) {
+    super(in);
+  }
+
+  @Override
+  public int read() throws IOException {
+    char[] c = new char[1];
+    int n;
+    while ((n = read(c, 0, 1)) == 0) {
+      // loop until a character survives filtering
+    }
+    return n < 0 ? -1 : c[0];
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (chunk.length < len) {
+      chunk = new char[len];
+    }
+    while (true) {
+      int n = in.read(chunk, 0, len);
+      if (n < 0) {
+        return -1;
+      }
+      int written = 0;
+      for (int i = 0; i < n; i++) {
+        char c = chunk[i];
+        switch (state) {
+          case COMMENT:
+            if (c != '\n' && c != '\r') {
+              continue;
+            }
+            state = NORMAL;
+            break;
+          case STRING:
+            if (c == '"') {
+              state = NORMAL;
+            }
+            break;
+          case QUOTED:
+            if (c == '|') {
+              state = NORMAL;
+            }
+            break;
+          default:
+            if (c == ';') {
+              state = COMMENT;
+              continue;
+            } else if (c == '"') {
+              state = STRING;
+            } else if (c == '|') {
+              state = QUOTED;
+            }
+        }
+        cbuf[off + written++] = c;
+      }
+      if (written > 0) {
+        return written;
+      }
+    }
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    char[] buf = new char[(int) Math.min(n, 8192)];
+    long skipped = 0;
+    while (skipped < n) {
+      int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+      if (r < 0) {
+        break;
+      }
+      skipped += r;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readAheadLimit) throws IOException {
+    throw new IOException("mark() not supported");
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("reset() not supported");
+  }
+}
@@ -30,9 +30,12 @@ import gov.nasa.jpf.constraints.types.NumericType;
 import gov.nasa.jpf.constraints.types.Type;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -49,6 +52,10 @@ import org.smtlib.impl.Sort;
 
 public class SMTLIBParser {
 
+  // initial capacity of the lexer buffer when streaming; it grows on demand
+  private static final int DEFAULT_STREAM_BUFFER = 1 << 16;
+  private static final int STREAM_BUFFER_LIMIT = 1 << 24;
+
   private final Set<Variable> letContext;
   public SMTProblem problem;
 
@@ -59,33 +66,47 @@ public class SMTLIBParser {
 
   public static SMTProblem parseSMTProgramFromFile(final String fileName)
       throws IOException, SMTLIBParserException {
-    String input =
-        Files.readAllLines(Paths.get(fileName)).stream()
-            .reduce(
-                "",
-                (a, b) -> {
-                  String processed = "";
-                  if (!b.startsWith(";")) {
-                    processed = b;
-                    if (processed.contains(" ;")) {
-                      processed = processed.split(" ;")[0];
-                      processed += "\n";
-                    } else if (processed.endsWith(";")) {
-                      processed = processed.substring(0, processed.length() - 1);
-                    }
-                  }
-                  return a + processed;
-                });
-    return parseSMTProgram(input);
+    return parseSMTProgram(Paths.get(fileName));
+  }
+
+  /**
+   * Parses an SMT-LIB file without loading it into a single string first. Line comments are
+   * dropped while reading.
+   */
+  public static SMTProblem parseSMTProgram(final Path file)
+      throws IOException, SMTLIBParserException {
+    long size = Files.size(file);
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return parseSMTProgram(reader, (int) Math.min(size, STREAM_BUFFER_LIMIT));
+    }
+  }
+
+  /**
+   * Parses an SMT-LIB program read from {@code input}. Line comments are dropped while reading.
+   * The reader is not closed.
+   */
+  public static SMTProblem parseSMTProgram(final Reader input)
+      throws IOException, SMTLIBParserException {
+    return parseSMTProgram(input, DEFAULT_STREAM_BUFFER);
+  }
+
+  private static SMTProblem parseSMTProgram(final Reader input, int initialBuffer)
+      throws IOException, SMTLIBParserException {
+    return parse(new CommentStrippingReader(input), Math.max(initialBuffer, 1));
   }
 
   public static SMTProblem parseSMTProgram(final String input)
       throws IOException, SMTLIBParserException {
+    return parse(new StringReader(input), input.length());
+  }
+
+  private static SMTProblem parse(final Reader input, int initialBuffer)
+      throws IOException, SMTLIBParserException {
     final SMT smt = new SMT();
 
     final ISource toBeParsed =
         smt.smtConfig.smtFactory.createSource(
-            new CharSequenceReader(new StringReader(input), input.length(), 100, 2), null);
+            new CharSequenceReader(input, initialBuffer, 100, 2), null);
     final IParser parser = smt.smtConfig.smtFactory.createParser(smt.smtConfig, toBeParsed);
     final SMTLIBParser smtParser = new SMTLIBParser();
 
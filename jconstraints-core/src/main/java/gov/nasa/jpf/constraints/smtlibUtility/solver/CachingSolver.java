@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * Wraps a solver and answers repeated queries from a {@link QueryCache}. Queries are keyed on
+ * their {@link CanonicalQuery canonical form}, so queries that only differ in variable names or
+ * conjunct order hit the same entry. Only SAT and UNSAT answers are cached.
+ */
+public class CachingSolver extends ConstraintSolver {
+
+  public static final String NAME = "cache-wrapper";
+
+  private final ConstraintSolver back;
+
+  private final QueryCache cache;
+
+  public CachingSolver(ConstraintSolver back, QueryCache cache) {
+    this.back = back;
+    this.cache = cache;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  public QueryCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    return solveCached(Collections.singletonList(f), result, val -> back.solve(f, val));
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return new CachingSolverContext(back.createContext(), this);
+  }
+
+  Result solveCached(
+      Collection<? extends Expression<Boolean>> assertions,
+      Valuation result,
+      Function<Valuation, Result> backSolve) {
+    CanonicalQuery query = CanonicalQuery.of(assertions);
+    if (query == null) {
+      return backSolve.apply(result);
+    }
+    QueryCache.Entry hit = cache.get(query.getKey());
+    if (hit != null) {
+      if (hit.getResult() != Result.SAT || result == null) {
+        return hit.getResult();
+      }
+      if (hit.getModel() != null) {
+        query.fromCanonical(hit.getModel(), result);
+        return Result.SAT;
+      }
+    }
+    Result res = backSolve.apply(result);
+    if (res == Result.UNSAT) {
+      cache.put(query.getKey(), new QueryCache.Entry(res, null));
+    } else if (res == Result.SAT) {
+      Valuation model = result == null ? null : query.toCanonical(result);
+      if (hit == null || model != null) {
+        cache.put(query.getKey(), new QueryCache.Entry(res, model));
+      }
+    }
+    return res;
+  }
+}
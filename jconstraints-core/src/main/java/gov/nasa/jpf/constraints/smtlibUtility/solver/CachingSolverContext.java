@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * Solver context of the {@link CachingSolver}. Assertions are forwarded to the back context and
+ * mirrored locally; the mirrored assertion stack is the cache key at solve time.
+ */
+public class CachingSolverContext extends SolverContext {
+
+  private final SolverContext backCtx;
+
+  private final CachingSolver solver;
+
+  private final Stack<List<Expression<Boolean>>> assertions = new Stack<>();
+
+  public CachingSolverContext(SolverContext backCtx, CachingSolver solver) {
+    this.backCtx = backCtx;
+    this.solver = solver;
+    assertions.push(new LinkedList<>());
+  }
+
+  @Override
+  public void push() {
+    backCtx.push();
+    assertions.push(new LinkedList<>());
+  }
+
+  @Override
+  public void pop(int n) {
+    backCtx.pop(n);
+    for (int i = 0; i < n; i++) {
+      assertions.pop();
+    }
+  }
+
+  @Override
+  public ConstraintSolver.Result solve(Valuation val) {
+    List<Expression<Boolean>> all = new ArrayList<>();
+    for (List<Expression<Boolean>> level : assertions) {
+      all.addAll(level);
+    }
+    return solver.solveCached(all, val, backCtx::solve);
+  }
+
+  @Override
+  public void add(List<Expression<Boolean>> expressions) {
+    assertions.peek().addAll(expressions);
+    backCtx.add(expressions);
+  }
+
+  @Override
+  public void dispose() {
+    backCtx.dispose();
+  }
+}
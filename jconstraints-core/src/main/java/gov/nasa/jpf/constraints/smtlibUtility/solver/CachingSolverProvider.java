@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provider for the {@link CachingSolver}. Options: {@code cache-wrapper.back} (the wrapped
+ * solver), {@code cache-wrapper.size} (maximum number of entries, default 10000) and {@code
+ * cache-wrapper.file} (loaded on creation and written back on JVM shutdown).
+ */
+public class CachingSolverProvider implements ConstraintSolverProvider {
+
+  public static final int DEFAULT_SIZE = 10000;
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  @Override
+  public String[] getNames() {
+    return new String[] {CachingSolver.NAME};
+  }
+
+  @Override
+  public ConstraintSolver createSolver(Properties config) {
+    String backName = config.getProperty(CachingSolver.NAME + ".back");
+    int size =
+        Integer.parseInt(
+            config.getProperty(CachingSolver.NAME + ".size", Integer.toString(DEFAULT_SIZE)));
+    String file = config.getProperty(CachingSolver.NAME + ".file", null);
+
+    ConstraintSolver back = ConstraintSolverFactory.createSolver(backName, config);
+    QueryCache cache = new QueryCache(size);
+    if (file != null) {
+      Path path = Paths.get(file);
+      cache.load(path);
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    try {
+                      cache.save(path);
+                    } catch (IOException e) {
+                      logger.log(Level.WARNING, "Cannot write query cache " + path, e);
+                    }
+                  }));
+    }
+    return new CachingSolver(back, cache);
+  }
+}
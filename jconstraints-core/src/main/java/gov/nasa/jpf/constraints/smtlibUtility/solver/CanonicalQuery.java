@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.solver;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.util.ExpressionTraversal;
+import gov.nasa.jpf.constraints.util.RenameVarVisitor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Canonical form of a conjunctive query, used as a cache key.
+ *
+ * <p>Conjuncts are ordered by their variable-anonymized shape and de-duplicated, then free
+ * variables are renamed to {@code _v0, _v1, ...} in order of first occurrence. Two queries that
+ * only differ in variable names or conjunct order thus share a key. The mapping between original
+ * and canonical variables is kept to translate models in both directions.
+ */
+public final class CanonicalQuery {
+
+  private static final String PREFIX = "_v";
+
+  private final String key;
+
+  private final Map<String, Variable<?>> toCanonical;
+
+  private final Map<String, Variable<?>> fromCanonical;
+
+  private CanonicalQuery(
+      String key, Map<String, Variable<?>> toCanonical, Map<String, Variable<?>> fromCanonical) {
+    this.key = key;
+    this.toCanonical = toCanonical;
+    this.fromCanonical = fromCanonical;
+  }
+
+  /**
+   * Computes the canonical form of the conjunction of {@code assertions}.
+   *
+   * @return the canonical query, or {@code null} if the query cannot be canonicalized (e.g., it
+   *     contains let expressions or two free variables sharing a name)
+   */
+  public static CanonicalQuery of(Collection<? extends Expression<Boolean>> assertions) {
+    try {
+      return canonicalize(assertions);
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static CanonicalQuery canonicalize(
+      Collection<? extends Expression<Boolean>> assertions) {
+    List<Expression<Boolean>> conjuncts = new ArrayList<>();
+    for (Expression<Boolean> a : assertions) {
+      ExpressionTraversal.conjuncts(a, conjuncts);
+    }
+
+    Map<Expression<Boolean>, String> shapes = new LinkedHashMap<>();
+    for (Expression<Boolean> c : conjuncts) {
+      if (!shapes.containsKey(c)) {
+        shapes.put(c, RenameVarVisitor.getInstance().apply(c, n -> "_").toString(flags()));
+      }
+    }
+    List<Expression<Boolean>> ordered = new ArrayList<>(shapes.keySet());
+    // stable sort: conjuncts with identical shapes keep their relative order
+    ordered.sort(Comparator.comparing(shapes::get));
+
+    Set<Variable<?>> free = new LinkedHashSet<>();
+    for (Expression<Boolean> c : ordered) {
+      c.collectFreeVariables(free);
+    }
+    Map<String, Variable<?>> toCanonical = new HashMap<>();
+    Map<String, Variable<?>> fromCanonical = new HashMap<>();
+    for (Variable<?> v : free) {
+      Variable<?> canon = Variable.create(v.getType(), PREFIX + toCanonical.size());
+      if (toCanonical.put(v.getName(), canon) != null) {
+        return null;
+      }
+      fromCanonical.put(canon.getName(), v);
+    }
+
+    StringBuilder key = new StringBuilder();
+    List<String> constants = new ArrayList<>();
+    for (Expression<Boolean> c : ordered) {
+      Expression<Boolean> renamed =
+          RenameVarVisitor.getInstance().apply(c, n -> toCanonical.get(n).getName());
+      key.append(renamed.toString(flags())).append('\n');
+      collectConstants(renamed, constants);
+    }
+    // constants print without their type, so record types (and string lengths) separately
+    key.append(constants);
+    return new CanonicalQuery(key.toString(), toCanonical, fromCanonical);
+  }
+
+  private static int flags() {
+    return Expression.DEFAULT_FLAGS | Expression.INCLUDE_VARIABLE_TYPE;
+  }
+
+  private static void collectConstants(Expression<?> e, List<String> out) {
+    ExpressionTraversal.preOrder(
+        e,
+        n -> {
+          if (n instanceof Constant) {
+            Constant<?> c = (Constant<?>) n;
+            out.add(c.getType().getName() + ":" + String.valueOf(c.getValue()).length());
+            return false;
+          }
+          return true;
+        });
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /** Rewrites a model over the original variables into one over the canonical variables. */
+  public Valuation toCanonical(Valuation model) {
+    Valuation result = new Valuation();
+    for (ValuationEntry<?> e : model) {
+      Variable<?> canon = toCanonical.get(e.getVariable().getName());
+      if (canon != null) {
+        result.setCastedValue(canon, e.getValue());
+      }
+    }
+    return result;
+  }
+
+  /** Copies a model over the canonical variables into {@code target} using original variables. */
+  public void fromCanonical(Valuation model, Valuation target) {
+    for (ValuationEntry<?> e : model) {
+      Variable<?> orig = fromCanonical.get(e.getVariable().getName());
+      if (orig != null) {
+        target.setCastedValue(orig, e.getValue());
+      }
+    }
+  }
+}
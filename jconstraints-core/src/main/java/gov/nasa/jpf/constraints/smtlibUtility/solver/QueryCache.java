@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.solver;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Valuation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache from canonical query keys (see {@link CanonicalQuery}) to solver results. Only
+ * definite answers are stored; models are kept over canonical variables.
+ */
+public class QueryCache {
+
+  /** A cached answer. The model is {@code null} for UNSAT entries. */
+  public static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Result result;
+
+    private final Valuation model;
+
+    public Entry(Result result, Valuation model) {
+      this.result = result;
+      this.model = model;
+    }
+
+    public Result getResult() {
+      return result;
+    }
+
+    public Valuation getModel() {
+      return model;
+    }
+  }
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  private final int capacity;
+
+  private final LinkedHashMap<String, Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  public QueryCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("cache capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.entries =
+        new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > QueryCache.this.capacity;
+          }
+        };
+  }
+
+  public synchronized Entry get(String key) {
+    Entry e = entries.get(key);
+    if (e == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return e;
+  }
+
+  public synchronized void put(String key, Entry entry) {
+    entries.put(key, entry);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Adds the entries stored in {@code file} to this cache. A missing file is not an error; an
+   * unreadable one is logged and ignored.
+   */
+  @SuppressWarnings("unchecked")
+  public void load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try (InputStream in = Files.newInputStream(file);
+        ObjectInputStream ois = new ObjectInputStream(in)) {
+      Map<String, Entry> stored = (Map<String, Entry>) ois.readObject();
+      synchronized (this) {
+        entries.putAll(stored);
+      }
+      logger.log(
+          Level.FINE, "Loaded {0} cached queries from {1}", new Object[] {stored.size(), file});
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.log(Level.WARNING, "Ignoring unreadable query cache " + file, e);
+    }
+  }
+
+  /** Writes the current entries to {@code file}, replacing it atomically where supported. */
+  public void save(Path file) throws IOException {
+    LinkedHashMap<String, Entry> snapshot;
+    synchronized (this) {
+      snapshot = new LinkedHashMap<>(entries);
+    }
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(tmp);
+        ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(snapshot);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
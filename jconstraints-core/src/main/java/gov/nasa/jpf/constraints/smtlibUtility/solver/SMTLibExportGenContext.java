@@ -21,91 +21,71 @@ package gov.nasa.jpf.constraints.smtlibUtility.solver;
 
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.types.BuiltinTypes;
-import java.io.PrintStream;
-import java.util.LinkedList;
-import java.util.List;
-
+import gov.nasa.jpf.constraints.util.ScopedMap;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Streams SMT-LIB statements to an {@link Appendable}. Declared symbols are tracked in a hashed,
+ * scope-aware map, so a variable occurrence costs a single lookup regardless of the number of
+ * scopes. Output is only flushed on {@link #solve()} and {@link #flushOutput()}; pass a buffered
+ * {@link java.io.Writer} to avoid a system call per statement.
+ */
 public class SMTLibExportGenContext {
 
-  private class VarContext {
-
-    private final VarContext next;
-
-    private final List<Variable> defined = new LinkedList<>();
-
-    private final List<Variable> pending = new LinkedList<>();
-
-    private VarContext(VarContext next) {
-      this.next = next;
-    }
-
-    private boolean isDefined(Variable var) {
-      return defined.contains(var)
-          || pending.contains(var)
-          || (next != null && next.isDefined(var));
-    }
-
-    private void add(Variable var) {
-      if (!isDefined(var)) {
-        pending.add(var);
-      }
-    }
+  /** Symbols declared so far, mapped to the scope depth of their declaration. */
+  private final ScopedMap<Variable<?>, Integer> declared = new ScopedMap<>();
 
-    private void addLocal(Variable var) {
-      defined.add(var);
-    }
-
-    private void flush() {
-      for (Variable v : pending) {
-        out.println("(declare-const " + v.getName() + " " + type(v) + ")");
-        defined.add(v);
-      }
-      pending.clear();
-    }
-  }
+  /** Variables used by the current statement that still need a declaration. */
+  private final Set<Variable<?>> pending = new LinkedHashSet<>();
 
   private int statementLevel = 0;
 
-  private final PrintStream out;
-
-  private StringBuilder statementBuffer = new StringBuilder();
+  private final Appendable out;
 
-  private VarContext varContext = new VarContext(null);
+  private final StringBuilder statementBuffer = new StringBuilder();
 
-  public SMTLibExportGenContext(PrintStream out) {
+  public SMTLibExportGenContext(Appendable out) {
     this.out = out;
   }
 
+  private boolean isDefined(Variable<?> var) {
+    return declared.containsKey(var) || pending.contains(var);
+  }
+
   void appendVar(Variable<?> var) {
-    varContext.add(var);
-    statementBuffer.append(" " + var.getName());
+    if (!isDefined(var)) {
+      pending.add(var);
+    }
+    statementBuffer.append(' ').append(var.getName());
   }
 
   void appendLocalVarDecl(Variable v) {
-    varContext.addLocal(v);
-    statementBuffer.append(" (" + v.getName() + " " + type(v) + ")");
+    registerLocalSymbol(v);
+    statementBuffer.append(" (").append(v.getName()).append(' ').append(type(v)).append(')');
   }
 
   void registerLocalSymbol(Variable v) {
-    varContext.addLocal(v);
+    declared.put(v, declared.depth());
   }
 
   void append(String s) {
-    statementBuffer.append(" ");
-    statementBuffer.append(s);
+    statementBuffer.append(' ').append(s);
   }
 
   void open(String s) {
     if (statementLevel > 0) {
-      statementBuffer.append(" ");
+      statementBuffer.append(' ');
     }
-    statementBuffer.append("(");
-    statementBuffer.append(s);
+    statementBuffer.append('(').append(s);
     statementLevel++;
   }
 
   void close() {
-    statementBuffer.append(")");
+    statementBuffer.append(')');
     statementLevel--;
     if (statementLevel < 0) {
       throw new IllegalStateException(
@@ -115,29 +95,56 @@ public class SMTLibExportGenContext {
   }
 
   void push() {
-    this.varContext.flush();
-    out.println("(push)");
-    this.varContext = new VarContext(this.varContext);
+    flushDeclarations();
+    writeLine("(push)");
+    declared.pushScope();
   }
 
   void pop(int n) {
     for (int i = 0; i < n; i++) {
-      out.println("(pop)");
-      if (this.varContext.next != null) {
-        this.varContext = this.varContext.next;
+      writeLine("(pop)");
+      if (declared.depth() > 0) {
+        declared.popScope();
       }
     }
   }
 
   public void solve() {
-    out.println("(check-sat)");
-    out.flush();
+    writeLine("(check-sat)");
+    flushOutput();
   }
 
   public void flush() {
-    this.varContext.flush();
-    out.println(statementBuffer.toString());
-    statementBuffer = new StringBuilder();
+    flushDeclarations();
+    writeLine(statementBuffer);
+    statementBuffer.setLength(0);
+  }
+
+  private void flushDeclarations() {
+    for (Variable<?> v : pending) {
+      writeLine("(declare-const " + v.getName() + " " + type(v) + ")");
+      declared.put(v, declared.depth());
+    }
+    pending.clear();
+  }
+
+  private void writeLine(CharSequence line) {
+    try {
+      out.append(line).append('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Flushes the underlying output if it is {@link Flushable}. */
+  public void flushOutput() {
+    if (out instanceof Flushable) {
+      try {
+        ((Flushable) out).flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
   }
 
   private String type(Variable v) {
@@ -19,15 +19,15 @@
 
 package gov.nasa.jpf.constraints.smtlibUtility.solver;
 
-import static gov.nasa.jpf.constraints.util.CharsetIO.wrapInUTF8PrintStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.LinkedList;
@@ -48,7 +48,7 @@ public class SMTLibExportSolverContext extends SolverContext {
 
   private Stack<List<Expression>> ctxKopie = new Stack<>();
 
-  public SMTLibExportSolverContext(SolverContext backCtx, PrintStream out) {
+  public SMTLibExportSolverContext(SolverContext backCtx, Appendable out) {
     this.backCtx = backCtx;
     this.genCtx = new SMTLibExportGenContext(out);
     this.visitor = new SMTLibExportVisitor(genCtx);
@@ -91,7 +91,7 @@ public class SMTLibExportSolverContext extends SolverContext {
 
   @Override
   public void dispose() {
-    // nothing
+    genCtx.flushOutput();
   }
 
   public void setSingleQuery(String folder, String prefix) {
@@ -103,9 +103,8 @@ public class SMTLibExportSolverContext extends SolverContext {
     Path newFileName =
         Paths.get(singleQueryFolder, queryPrefix + "_" + Integer.toString(queryCounter) + ".smt2");
     newFileName.toFile().getAbsoluteFile().getParentFile().mkdirs();
-    try (FileOutputStream fos = new FileOutputStream(newFileName.toFile())) {
-      PrintStream pw = wrapInUTF8PrintStream(fos);
-      SMTLibExportGenContext queryCtx = new SMTLibExportGenContext(pw);
+    try (Writer w = Files.newBufferedWriter(newFileName, UTF_8)) {
+      SMTLibExportGenContext queryCtx = new SMTLibExportGenContext(w);
       SMTLibExportVisitor queryVisitor = new SMTLibExportVisitor(queryCtx);
       for (List<Expression> level : ctxKopie) {
         for (Expression e : level) {
@@ -19,14 +19,15 @@
 
 package gov.nasa.jpf.constraints.smtlibUtility.solver;
 
-import static gov.nasa.jpf.constraints.util.CharsetIO.openInUTF8PrintStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
 import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintStream;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Properties;
 
 public class SMTLibExportSolverProvider implements ConstraintSolverProvider {
@@ -43,15 +44,17 @@ public class SMTLibExportSolverProvider implements ConstraintSolverProvider {
     String singleQueryFolder =
         config.getProperty(SMTLibExportWrapper.NAME + ".singleQueryFolder", null);
     ConstraintSolver back = ConstraintSolverFactory.createSolver(backName);
-    PrintStream out = System.out;
+    Appendable out = System.out;
     String prefix = null;
     if (resultFile != null) {
       File outfile = new File(resultFile);
       outfile.getAbsoluteFile().getParentFile().mkdirs();
       prefix = outfile.getName().split("\\.")[0];
       try {
-        out = openInUTF8PrintStream(outfile);
-      } catch (FileNotFoundException e) {
+        BufferedWriter writer = Files.newBufferedWriter(outfile.toPath(), UTF_8);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(writer)));
+        out = writer;
+      } catch (IOException e) {
         System.err.println("Cannot write to: " + resultFile);
         out = System.out;
       }
@@ -62,4 +65,12 @@ public class SMTLibExportSolverProvider implements ConstraintSolverProvider {
     }
     return smtWrapper;
   }
+
+  private static void closeQuietly(BufferedWriter writer) {
+    try {
+      writer.close();
+    } catch (IOException e) {
+      // the JVM is shutting down, nothing left to do
+    }
+  }
 }
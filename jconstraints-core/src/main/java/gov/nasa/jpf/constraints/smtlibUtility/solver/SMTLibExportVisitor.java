@@ -53,23 +53,130 @@ import gov.nasa.jpf.constraints.expressions.functions.FunctionExpression;
 import gov.nasa.jpf.constraints.types.BVIntegerType;
 import gov.nasa.jpf.constraints.types.BuiltinTypes;
 import gov.nasa.jpf.constraints.types.Type;
+import gov.nasa.jpf.constraints.util.ExpressionTraversal;
 import java.math.BigInteger;
-
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints expressions in SMT-LIB syntax. The visitor does not recurse: visiting a child only
+ * schedules it, and output that follows a child is scheduled behind it, so the nesting depth of
+ * an expression is not limited by the thread stack.
+ */
 public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
+  /** Prefix of the let-bound names of shared subexpressions. */
+  static final String SHARED_PREFIX = "_jc_shared_";
+
   private final SMTLibExportGenContext ctx;
 
+  /** Let-bound names of the shared subexpressions of the current assertion. */
+  private final Map<Expression<?>, String> sharedNames = new IdentityHashMap<>();
+
+  /** Number of enclosing quantifiers and lets, below which names are not substituted. */
+  private int binderDepth = 0;
+
+  /** Expressions and output actions left to process, the next one on top. */
+  private final Deque<Object> work = new ArrayDeque<>();
+
+  /** Work scheduled by the expression being printed, in output order. */
+  private final List<Object> scheduled = new ArrayList<>();
+
   public SMTLibExportVisitor(SMTLibExportGenContext ctx) {
     this.ctx = ctx;
   }
 
+  /**
+   * Exports {@code e} as an assertion. Subexpressions that occur more than once are bound by
+   * {@code let} and printed once, so the output is linear in the size of the expression graph.
+   */
   public void transform(Expression<?> e) {
-    ctx.open("assert");
-    defaultVisit(e, null);
-    ctx.close();
+    List<Expression<?>> shared =
+        ExpressionTraversal.sharedSubexpressions(e, SMTLibExportVisitor::isNotBinder);
+    open("assert");
+    for (int i = 0; i < shared.size(); i++) {
+      Expression<?> s = shared.get(i);
+      String name = SHARED_PREFIX + i;
+      open("let");
+      open("");
+      open(name);
+      visit(s, null);
+      close();
+      close();
+      later(() -> sharedNames.put(s, name));
+    }
+    visit(e, null);
+    for (int i = 0; i < shared.size(); i++) {
+      close();
+    }
+    close();
+    run();
+    sharedNames.clear();
     ctx.flush();
   }
 
+  private void run() {
+    schedule();
+    while (!work.isEmpty()) {
+      Object next = work.pop();
+      if (next instanceof Runnable) {
+        ((Runnable) next).run();
+      } else {
+        print((Expression<?>) next);
+        schedule();
+      }
+    }
+  }
+
+  /** Moves the scheduled work on top of the stack, keeping its order. */
+  private void schedule() {
+    for (int i = scheduled.size() - 1; i >= 0; i--) {
+      work.push(scheduled.get(i));
+    }
+    scheduled.clear();
+  }
+
+  private void print(Expression<?> expression) {
+    // variables bound below a quantifier or let may shadow those of a shared subexpression
+    String name = binderDepth == 0 ? sharedNames.get(expression) : null;
+    if (name != null) {
+      ctx.append(name);
+    } else {
+      expression.accept(this, null);
+    }
+  }
+
+  private void later(Runnable action) {
+    scheduled.add(action);
+  }
+
+  private void open(String op) {
+    later(() -> ctx.open(op));
+  }
+
+  private void close() {
+    later(ctx::close);
+  }
+
+  private void append(String s) {
+    later(() -> ctx.append(s));
+  }
+
+  private static boolean isNotBinder(Expression<?> e) {
+    return !(e instanceof QuantifierExpression || e instanceof LetExpression);
+  }
+
+  /** Schedules {@code expression} to be printed after the output scheduled so far. */
+  @Override
+  protected Void visit(Expression<?> expression, Void v) {
+    scheduled.add(expression);
+    return null;
+  }
+
   @Override
   public <E> Void visit(Variable<E> var, Void v) {
     ctx.appendVar(var);
@@ -104,18 +211,18 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(Negation n, Void v) {
-    ctx.open("not");
+    open("not");
     visit(n.getNegated(), v);
-    ctx.close();
+    close();
     return null;
   }
 
   @Override
   public Void visit(NumericBooleanExpression n, Void v) {
-    ctx.open(numComp(n.getComparator(), n.getLeft().getType()));
+    open(numComp(n.getComparator(), n.getLeft().getType()));
     visit(n.getLeft(), v);
     visit(n.getRight(), v);
-    ctx.close();
+    close();
     return null;
   }
 
@@ -148,19 +255,19 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(RegExBooleanExpression n, Void v) {
-    ctx.open("str.in.re");
+    open("str.in.re");
     visit(n.getLeft(), v);
     visit(n.getRight(), v);
-    ctx.close();
+    close();
     return null;
   }
 
   @Override
   public Void visit(StringBooleanExpression n, Void v) {
-    ctx.open(stringComp(n.getOperator()));
+    open(stringComp(n.getOperator()));
     visit(n.getLeft(), v);
     visit(n.getRight(), v);
-    ctx.close();
+    close();
     return null;
   }
 
@@ -181,7 +288,7 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(StringIntegerExpression n, Void v) {
-    ctx.open(stringIntOp(n.getOperator()));
+    open(stringIntOp(n.getOperator()));
     visit(n.getLeft(), v);
     if (StringIntegerOperator.INDEXOF.equals(n.getOperator())) {
       visit(n.getRight(), v);
@@ -189,7 +296,7 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
         visit(n.getOffset(), v);
       }
     }
-    ctx.close();
+    close();
     return null;
   }
 
@@ -209,12 +316,12 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(StringCompoundExpression stringCompoundExpression, Void data) {
-    ctx.open(stringCompoundOp(stringCompoundExpression.getOperator()));
+    open(stringCompoundOp(stringCompoundExpression.getOperator()));
 
     for (Expression child : stringCompoundExpression.getChildren()) {
       visit(child, data);
     }
-    ctx.close();
+    close();
     return null;
   }
 
@@ -242,11 +349,11 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(RegexCompoundExpression n, Void data) {
-    ctx.open(regexCompoundOp(n.getOperator()));
+    open(regexCompoundOp(n.getOperator()));
     for (Expression child : n.getChildren()) {
       visit(child, data);
     }
-    ctx.close();
+    close();
     return null;
   }
 
@@ -294,9 +401,9 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
   public Void visit(RegexOperatorExpression n, Void data) {
     String operator = regexOp(n.getOperator());
     if (n.getOperator().equals(RegExOperator.ALLCHAR)) {
-      ctx.append(operator);
+      append(operator);
     } else {
-      ctx.open(operator);
+      open(operator);
       switch (n.getOperator()) {
         case KLEENESTAR:
           visit(n.getLeft(), data);
@@ -307,14 +414,14 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
         case LOOP:
           throw new UnsupportedOperationException("");
         case RANGE:
-          ctx.append("\"" + n.getCh1() + "\"");
-          ctx.append("\"" + n.getCh2() + "\"");
+          append("\"" + n.getCh1() + "\"");
+          append("\"" + n.getCh2() + "\"");
           break;
         case OPTIONAL:
           visit(n.getLeft(), data);
           break;
         case STRTORE:
-          ctx.append("\"" + n.getS() + "\"");
+          append("\"" + n.getS() + "\"");
           break;
         case ALLCHAR:
           break;
@@ -328,7 +435,7 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
         default:
           throw new UnsupportedOperationException();
       }
-      ctx.close();
+      close();
     }
     return null;
   }
@@ -365,10 +472,10 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public <E> Void visit(NumericCompound<E> n, Void v) {
-    ctx.open(numOp(n.getOperator(), n.getType()));
+    open(numOp(n.getOperator(), n.getType()));
     visit(n.getLeft(), v);
     visit(n.getRight(), v);
-    ctx.close();
+    close();
     return null;
   }
 
@@ -401,10 +508,10 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(PropositionalCompound n, Void v) {
-    ctx.open(logicOp(n.getOperator()));
+    open(logicOp(n.getOperator()));
     visit(n.getLeft(), v);
     visit(n.getRight(), v);
-    ctx.close();
+    close();
     return null;
   }
 
@@ -427,32 +534,32 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public <E> Void visit(IfThenElse<E> n, Void v) {
-    ctx.open("ite");
+    open("ite");
     visit(n.getIf(), v);
     visit(n.getThen(), v);
     visit(n.getElse(), v);
-    ctx.close();
+    close();
     return null;
   }
 
   @Override
   public <E> Void visit(UnaryMinus<E> n, Void v) {
     if (n.getNegated().getType() instanceof BVIntegerType) {
-      ctx.open("bvneg");
+      open("bvneg");
     } else {
-      ctx.open("-");
+      open("-");
     }
     visit(n.getNegated(), v);
-    ctx.close();
+    close();
     return null;
   }
 
   @Override
   public <E> Void visit(BitvectorExpression<E> n, Void v) {
-    ctx.open(bvOp((n.getOperator())));
+    open(bvOp((n.getOperator())));
     visit(n.getLeft(), v);
     visit(n.getRight(), v);
-    ctx.close();
+    close();
     return null;
   }
 
@@ -477,21 +584,23 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public <E> Void visit(BitvectorNegation<E> n, Void v) {
-    ctx.open("bvnot");
+    open("bvnot");
     visit(n.getNegated(), v);
-    ctx.close();
+    close();
     return null;
   }
 
   @Override
   public Void visit(QuantifierExpression q, Void v) {
     // TODO: this is untested!
-    ctx.open("" + q.getQuantifier());
+    open("" + q.getQuantifier());
     for (Variable<?> var : q.getBoundVariables()) {
-      ctx.appendLocalVarDecl(var);
+      later(() -> ctx.appendLocalVarDecl(var));
     }
+    later(() -> binderDepth++);
     visit(q.getBody());
-    ctx.close();
+    later(() -> binderDepth--);
+    close();
     return null;
   }
 
@@ -504,65 +613,67 @@ public class SMTLibExportVisitor extends AbstractExpressionVisitor<Void, Void> {
 
   @Override
   public Void visit(LetExpression n, Void v) {
-    ctx.open("let");
-    ctx.open("");
+    later(() -> binderDepth++);
+    open("let");
+    open("");
     for (Variable<?> var : n.getParameters()) {
-      ctx.registerLocalSymbol(var);
-      ctx.open(var.getName());
+      later(() -> ctx.registerLocalSymbol(var));
+      open(var.getName());
       // FIXME: can this be null?
       visit(n.getParameterValues().get(var), v);
-      ctx.close();
+      close();
     }
-    ctx.close();
+    close();
     visit(n.getMainValue(), v);
-    ctx.close();
+    close();
+    later(() -> binderDepth--);
     return null;
   }
 
   @Override
   protected <E> Void defaultVisit(Expression<E> expression, Void v) {
-    visit(expression, v);
-    return null;
+    throw new UnsupportedOperationException(
+        "SMTLib export does not support " + expression.getClass().getSimpleName());
   }
 
   /* Below this line should only be private casting methods
   %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%*/
   private Void castIntegerSINTX(CastExpression cast, int bits) {
-    ctx.open(String.format("(_ int2bv %d)", bits));
+    open(String.format("(_ int2bv %d)", bits));
     visit(cast.getCasted());
-    ctx.close();
+    close();
     return null;
   }
 
   private Void castSINTXInteger(CastExpression cast) {
-    ctx.open("ite");
-    ctx.open("bvslt");
+    open("ite");
+    open("bvslt");
     visit(cast.getCasted());
     visit(Constant.create(BuiltinTypes.SINT32, 0));
-    ctx.close();
-    ctx.open("-");
-    ctx.open("bv2nat");
+    close();
+    open("-");
+    open("bv2nat");
     visit(cast.getCasted());
-    ctx.close();
-    ctx.close();
-    ctx.open("bv2nat");
+    close();
+    close();
+    open("bv2nat");
     visit(cast.getCasted());
-    ctx.close();
-    ctx.close();
+    close();
+    close();
     return null;
   }
 
   private Void castSignExtend(CastExpression cast, int bits) {
-    ctx.open(String.format("(_ sign_extend %d)", bits));
+    open(String.format("(_ sign_extend %d)", bits));
     visit(cast.getCasted());
-    ctx.close();
+    close();
     return null;
   }
 
   private Void castZeroExtend(CastExpression cast, int bits) {
-    ctx.open(String.format("(_ zero_extend %d)", bits));
+    open(String.format("(_ zero_extend %d)", bits));
     visit(cast.getCasted());
-    ctx.close();
+    close();
     return null;
   }
 }
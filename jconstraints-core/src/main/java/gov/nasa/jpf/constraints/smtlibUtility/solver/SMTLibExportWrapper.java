@@ -23,7 +23,6 @@ import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
-import java.io.PrintStream;
 
 public class SMTLibExportWrapper extends ConstraintSolver {
 
@@ -31,7 +30,7 @@ public class SMTLibExportWrapper extends ConstraintSolver {
 
   private final ConstraintSolver back;
 
-  private final PrintStream out;
+  private final Appendable out;
   private String singleQueryFolder = null;
   private String queryPrefix = null;
 
@@ -40,7 +39,7 @@ public class SMTLibExportWrapper extends ConstraintSolver {
     return NAME;
   }
 
-  public SMTLibExportWrapper(ConstraintSolver back, PrintStream out) {
+  public SMTLibExportWrapper(ConstraintSolver back, Appendable out) {
     this.back = back;
     this.out = out;
   }
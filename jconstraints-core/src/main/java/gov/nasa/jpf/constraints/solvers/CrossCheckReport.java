@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outcome of {@link SolvingService#crossCheck}: the answer, wall time and model validity of every
+ * solver on one query.
+ */
+public class CrossCheckReport {
+
+  /** Validity of the model returned with a SAT answer. */
+  public enum ModelStatus {
+    /** The model satisfies the query under {@code evaluateSMT}. */
+    VALID,
+    /** The model violates the query. */
+    INVALID,
+    /** The model lacks values for some free variables or cannot be evaluated. */
+    UNCHECKED,
+    /** The answer was not SAT. */
+    NONE
+  }
+
+  /** Result of a single solver. */
+  public static final class Entry {
+
+    private final String solver;
+
+    private final Result result;
+
+    private final long wallTimeMillis;
+
+    private final ModelStatus modelStatus;
+
+    private final boolean timedOut;
+
+    private final Throwable error;
+
+    Entry(
+        String solver,
+        Result result,
+        long wallTimeMillis,
+        ModelStatus modelStatus,
+        boolean timedOut,
+        Throwable error) {
+      this.solver = solver;
+      this.result = result;
+      this.wallTimeMillis = wallTimeMillis;
+      this.modelStatus = modelStatus;
+      this.timedOut = timedOut;
+      this.error = error;
+    }
+
+    public String getSolver() {
+      return solver;
+    }
+
+    public Result getResult() {
+      return result;
+    }
+
+    public long getWallTimeMillis() {
+      return wallTimeMillis;
+    }
+
+    public ModelStatus getModelStatus() {
+      return modelStatus;
+    }
+
+    public boolean isTimedOut() {
+      return timedOut;
+    }
+
+    /** The exception thrown by the solver, or {@code null}. */
+    public Throwable getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(solver).append(": ").append(result).append(" in ").append(wallTimeMillis);
+      sb.append(" ms");
+      if (modelStatus != ModelStatus.NONE) {
+        sb.append(", model ").append(modelStatus);
+      }
+      if (timedOut) {
+        sb.append(", timed out");
+      }
+      if (error != null) {
+        sb.append(", error: ").append(error);
+      }
+      return sb.toString();
+    }
+  }
+
+  private final List<Entry> entries;
+
+  CrossCheckReport(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /** The definite answers (SAT or UNSAT) given by at least one solver. */
+  public Set<Result> getDefiniteResults() {
+    Set<Result> results = EnumSet.noneOf(Result.class);
+    for (Entry e : entries) {
+      if (e.result == Result.SAT || e.result == Result.UNSAT) {
+        results.add(e.result);
+      }
+    }
+    return results;
+  }
+
+  /** True if one solver answered SAT and another UNSAT. */
+  public boolean hasResultMismatch() {
+    return getDefiniteResults().size() > 1;
+  }
+
+  /** Entries whose SAT model does not satisfy the query. */
+  public List<Entry> getInvalidModels() {
+    List<Entry> invalid = new ArrayList<>();
+    for (Entry e : entries) {
+      if (e.modelStatus == ModelStatus.INVALID) {
+        invalid.add(e);
+      }
+    }
+    return invalid;
+  }
+
+  /** True if the solvers disagree or some solver returned an invalid model. */
+  public boolean hasMismatch() {
+    return hasResultMismatch() || !getInvalidModels().isEmpty();
+  }
+
+  /** The agreed definite answer, or DONT_KNOW if there is none or the solvers disagree. */
+  public Result getConsensus() {
+    Set<Result> results = getDefiniteResults();
+    return results.size() == 1 ? results.iterator().next() : Result.DONT_KNOW;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(hasMismatch() ? "MISMATCH" : "consistent").append(" (").append(getConsensus());
+    sb.append(")");
+    for (Entry e : entries) {
+      sb.append("\n  ").append(e);
+    }
+    return sb.toString();
+  }
+}
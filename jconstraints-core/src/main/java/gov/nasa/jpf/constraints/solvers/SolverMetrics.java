@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.SolverListener;
+import gov.nasa.jpf.constraints.api.SolverPhase;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SolverListener} aggregating per-phase times, query results and push/pop counts. It is
+ * thread-safe and can be shared between solvers and contexts.
+ */
+public class SolverMetrics implements SolverListener {
+
+  private final Map<SolverPhase, LongAdder> phaseNanos = new EnumMap<>(SolverPhase.class);
+  private final Map<SolverPhase, LongAdder> phaseCounts = new EnumMap<>(SolverPhase.class);
+  private final Map<Result, LongAdder> results = new EnumMap<>(Result.class);
+  private final LongAdder queryNanos = new LongAdder();
+  private final LongAdder pushes = new LongAdder();
+  private final LongAdder pops = new LongAdder();
+  private final AtomicInteger depth = new AtomicInteger();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+
+  public SolverMetrics() {
+    for (SolverPhase p : SolverPhase.values()) {
+      phaseNanos.put(p, new LongAdder());
+      phaseCounts.put(p, new LongAdder());
+    }
+    for (Result r : Result.values()) {
+      results.put(r, new LongAdder());
+    }
+  }
+
+  @Override
+  public void phaseFinished(SolverPhase phase, long nanos) {
+    phaseNanos.get(phase).add(nanos);
+    phaseCounts.get(phase).increment();
+  }
+
+  @Override
+  public void queryFinished(Result result, long nanos) {
+    results.get(result).increment();
+    queryNanos.add(nanos);
+  }
+
+  @Override
+  public void pushed(int depth) {
+    pushes.increment();
+    this.depth.set(depth);
+    maxDepth.accumulateAndGet(depth, Math::max);
+  }
+
+  @Override
+  public void popped(int levels, int depth) {
+    pops.add(levels);
+    this.depth.set(depth);
+  }
+
+  public long getTime(SolverPhase phase, TimeUnit unit) {
+    return unit.convert(phaseNanos.get(phase).sum(), TimeUnit.NANOSECONDS);
+  }
+
+  /** The number of times {@code phase} has finished. */
+  public long getCount(SolverPhase phase) {
+    return phaseCounts.get(phase).sum();
+  }
+
+  public long getQueryTime(TimeUnit unit) {
+    return unit.convert(queryNanos.sum(), TimeUnit.NANOSECONDS);
+  }
+
+  public long getQueries() {
+    long sum = 0;
+    for (LongAdder a : results.values()) {
+      sum += a.sum();
+    }
+    return sum;
+  }
+
+  public long getQueries(Result result) {
+    return results.get(result).sum();
+  }
+
+  public long getPushes() {
+    return pushes.sum();
+  }
+
+  /** The number of popped scopes; {@code pop(n)} counts {@code n} times. */
+  public long getPops() {
+    return pops.sum();
+  }
+
+  /** The stack depth reported by the most recent push or pop. */
+  public int getDepth() {
+    return depth.get();
+  }
+
+  public int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  public void reset() {
+    for (SolverPhase p : SolverPhase.values()) {
+      phaseNanos.get(p).reset();
+      phaseCounts.get(p).reset();
+    }
+    for (LongAdder a : results.values()) {
+      a.reset();
+    }
+    queryNanos.reset();
+    pushes.reset();
+    pops.reset();
+    depth.set(0);
+    maxDepth.set(0);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("queries: ").append(getQueries());
+    for (Result r : Result.values()) {
+      sb.append(", ").append(r).append(": ").append(getQueries(r));
+    }
+    sb.append(", total: ").append(getQueryTime(TimeUnit.MILLISECONDS)).append(" ms");
+    for (SolverPhase p : SolverPhase.values()) {
+      sb.append("\n")
+          .append(p)
+          .append(": ")
+          .append(getTime(p, TimeUnit.MILLISECONDS))
+          .append(" ms (")
+          .append(getCount(p))
+          .append(")");
+    }
+    sb.append("\npush: ").append(getPushes());
+    sb.append(", pop: ").append(getPops());
+    sb.append(", max depth: ").append(getMaxDepth());
+    return sb.toString();
+  }
+}
@@ -23,15 +23,29 @@ import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.smtlibUtility.SMTProblem;
+import gov.nasa.jpf.constraints.solvers.CrossCheckReport.ModelStatus;
 import gov.nasa.jpf.constraints.solvers.dontknow.DontKnowSolverProvider;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class SolvingService extends ConstraintSolver {
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
   ArrayList<String> supportedSolvers;
   Set<ConstraintSolver> solvers;
 
@@ -80,8 +94,15 @@ public class SolvingService extends ConstraintSolver {
       if (allowed != null && !allowed.contains(name) || toBeIngored.contains(name)) {
         continue;
       }
+      ConstraintSolver solver;
+      try {
+        solver = ConstraintSolverFactory.createSolver(name);
+      } catch (RuntimeException e) {
+        // e.g. wrappers without a configured back solver
+        logger.log(Level.FINE, "Skipping solver " + name, e);
+        continue;
+      }
       supportedSolvers.add(name);
-      ConstraintSolver solver = ConstraintSolverFactory.createSolver(name);
       if (!solverClasses.contains(solver.getClass())) {
         solvers.add(solver);
         solverClasses.add(solver.getClass());
@@ -124,6 +145,93 @@ public class SolvingService extends ConstraintSolver {
     return result.iterator().next();
   }
 
+  /**
+   * Runs all solvers on {@code expr} in parallel and reports their answers, wall times and model
+   * validity. Unlike {@link #solveAll}, mismatches do not abort the check but are listed in the
+   * report. Solvers still running after {@code timeout} are interrupted and reported as timed out;
+   * use {@link gov.nasa.jpf.constraints.solvers.encapsulation.ProcessWrapperSolver}s to isolate
+   * solvers that do not react to interrupts.
+   */
+  public CrossCheckReport crossCheck(Expression<Boolean> expr, long timeout, TimeUnit unit) {
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            Math.max(1, solvers.size()),
+            r -> {
+              Thread t = new Thread(r, "jconstraints-crosscheck");
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      List<ConstraintSolver> ordered = new ArrayList<>(solvers);
+      List<Future<CrossCheckReport.Entry>> futures = new ArrayList<>();
+      for (ConstraintSolver solver : ordered) {
+        futures.add(pool.submit(() -> runChecked(solver, expr)));
+      }
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      List<CrossCheckReport.Entry> entries = new ArrayList<>();
+      for (int i = 0; i < ordered.size(); i++) {
+        entries.add(await(ordered.get(i), futures.get(i), deadline, unit.toMillis(timeout)));
+      }
+      return new CrossCheckReport(entries);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  public CrossCheckReport crossCheck(SMTProblem problem, long timeout, TimeUnit unit) {
+    return crossCheck(problem.getAllAssertionsAsConjunction(), timeout, unit);
+  }
+
+  private static CrossCheckReport.Entry runChecked(ConstraintSolver solver, Expression<Boolean> f) {
+    Valuation model = new Valuation();
+    long start = System.nanoTime();
+    try {
+      Result res = solver.solve(f, model);
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      ModelStatus status = res == Result.SAT ? checkModel(f, model) : ModelStatus.NONE;
+      return new CrossCheckReport.Entry(solver.getName(), res, millis, status, false, null);
+    } catch (RuntimeException | Error e) {
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      return new CrossCheckReport.Entry(
+          solver.getName(), Result.DONT_KNOW, millis, ModelStatus.NONE, false, e);
+    }
+  }
+
+  private static CrossCheckReport.Entry await(
+      ConstraintSolver solver,
+      Future<CrossCheckReport.Entry> future,
+      long deadline,
+      long timeoutMillis) {
+    try {
+      return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      return new CrossCheckReport.Entry(
+          solver.getName(), Result.DONT_KNOW, timeoutMillis, ModelStatus.NONE, true, null);
+    } catch (ExecutionException e) {
+      return new CrossCheckReport.Entry(
+          solver.getName(), Result.DONT_KNOW, 0, ModelStatus.NONE, false, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return new CrossCheckReport.Entry(
+          solver.getName(), Result.DONT_KNOW, 0, ModelStatus.NONE, false, e);
+    }
+  }
+
+  private static ModelStatus checkModel(Expression<Boolean> f, Valuation model) {
+    for (Variable<?> v : ExpressionUtil.freeVariables(f)) {
+      if (!model.containsValueFor(v)) {
+        return ModelStatus.UNCHECKED;
+      }
+    }
+    try {
+      return Boolean.TRUE.equals(f.evaluateSMT(model)) ? ModelStatus.VALID : ModelStatus.INVALID;
+    } catch (RuntimeException e) {
+      return ModelStatus.UNCHECKED;
+    }
+  }
+
   @Override
   public Result solve(Expression<Boolean> f, Valuation result) {
     return solveAll(f, result);
@@ -23,16 +23,28 @@ import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.exceptions.SolverTimeoutException;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Stack;
+import java.util.logging.Logger;
 
+/**
+ * Solver context backed by a dedicated {@link SolverRunner} process that keeps a solver context of
+ * the encapsulated solver alive. Push, pop and add are forwarded as they happen, so a check only
+ * ships the new assertions and the solver keeps its state between checks. The assertion stack is
+ * mirrored locally and replayed into a fresh process if the old one timed out or crashed.
+ */
 public class ProcessWrapperContext extends SolverContext {
 
+  private static final Logger logger = Logger.getLogger("constraints");
+
   private final ProcessWrapperSolver solver;
-  private Stack<List<Expression>> stack;
-  private List<Expression> current;
+  private Stack<List<Expression<Boolean>>> stack;
+  private List<Expression<Boolean>> current;
+  private volatile SolverProcess process;
 
   public ProcessWrapperContext(String name) {
     solver = new ProcessWrapperSolver(name);
@@ -57,6 +69,13 @@ public class ProcessWrapperContext extends SolverContext {
   public void push() {
     stack.push(current);
     current = new LinkedList<>();
+    if (isConnected()) {
+      try {
+        process.push();
+      } catch (IOException e) {
+        disconnect(e);
+      }
+    }
   }
 
   @Override
@@ -64,26 +83,41 @@ public class ProcessWrapperContext extends SolverContext {
     for (int i = 0; i < n; i++) {
       current = stack.pop();
     }
+    if (isConnected()) {
+      try {
+        process.pop(n);
+      } catch (IOException e) {
+        disconnect(e);
+      }
+    }
   }
 
   @Override
   public Result solve(Valuation val) {
-    Expression test = getCurrentExpression();
-    Result res = solver.solve(test, val);
-    //    if (res.equals(Result.SAT)) {
-    //      assert (Boolean) test.evaluate(val);
-    //    }
-    return res;
+    try {
+      if (!isConnected()) {
+        connect();
+      }
+      Result res = process.check(val);
+      assert SolverProcess.isValidModel(getCurrentExpression(), res, val);
+      return res;
+    } catch (IOException e) {
+      disconnect(e);
+      return Result.DONT_KNOW;
+    } catch (SolverTimeoutException e) {
+      // the process is broken now, the next check replays the stack into a new one
+      return Result.DONT_KNOW;
+    }
   }
 
-  public Expression getCurrentExpression() {
-    Expression test = ExpressionUtil.TRUE;
-    for (List<Expression> list : stack) {
-      for (Expression e : list) {
+  public Expression<Boolean> getCurrentExpression() {
+    Expression<Boolean> test = ExpressionUtil.TRUE;
+    for (List<Expression<Boolean>> list : stack) {
+      for (Expression<Boolean> e : list) {
         test = ExpressionUtil.and(test, e);
       }
     }
-    for (Expression e : current) {
+    for (Expression<Boolean> e : current) {
       test = ExpressionUtil.and(test, e);
     }
     return test;
@@ -92,11 +126,60 @@ public class ProcessWrapperContext extends SolverContext {
   @Override
   public void add(List<Expression<Boolean>> expressions) {
     current.addAll(expressions);
+    if (isConnected()) {
+      try {
+        process.add(expressions);
+      } catch (IOException e) {
+        disconnect(e);
+      }
+    }
   }
 
   @Override
   public void dispose() {
     stack = new Stack<>();
     current = new LinkedList<>();
+    if (process != null) {
+      process.stop();
+      process = null;
+    }
+  }
+
+  /** Kills the runner process, the next check replays the assertions into a new one. */
+  @Override
+  public void interrupt() {
+    SolverProcess p = process;
+    if (p != null) {
+      p.interrupt();
+    }
+  }
+
+  private boolean isConnected() {
+    return process != null && process.isUsable();
+  }
+
+  /** Starts a new runner process and replays the local assertion stack into it. */
+  private void connect() throws IOException {
+    if (process != null) {
+      process.destroy();
+    }
+    process = SolverProcess.start(solver.processCommand(), solver.hardTimeoutMillis());
+    for (List<Expression<Boolean>> level : stack) {
+      if (!level.isEmpty()) {
+        process.add(level);
+      }
+      process.push();
+    }
+    if (!current.isEmpty()) {
+      process.add(current);
+    }
+  }
+
+  private void disconnect(IOException cause) {
+    logger.warning("Lost connection to solver process: " + cause);
+    if (process != null) {
+      process.destroy();
+      process = null;
+    }
   }
 }
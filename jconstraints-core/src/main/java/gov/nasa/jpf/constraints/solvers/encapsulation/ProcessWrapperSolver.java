@@ -23,42 +23,64 @@ import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
-import gov.nasa.jpf.constraints.api.ValuationEntry;
-import gov.nasa.jpf.constraints.solvers.encapsulation.messages.StartSolvingMessage;
-import gov.nasa.jpf.constraints.solvers.encapsulation.messages.StopSolvingMessage;
-import gov.nasa.jpf.constraints.solvers.encapsulation.messages.TimeOutSolvingMessage;
-import java.io.BufferedInputStream;
+import gov.nasa.jpf.constraints.exceptions.SolverTimeoutException;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
+/**
+ * Runs the encapsulated solver in a pool of {@link SolverRunner} subprocesses. Queries from
+ * different threads are dispatched to idle workers concurrently. Workers that time out or crash are
+ * replaced in the background, so callers never wait for a JVM restart as long as another worker is
+ * available. The pool size defaults to 1 and can be set with {@code
+ * -Djconstraints.wrapper.workers}.
+ */
 public class ProcessWrapperSolver extends ConstraintSolver {
 
+  private static final Logger logger = Logger.getLogger("constraints");
+
   private final String solverName;
   String javaClassPath;
   private String jConstraintsExtensionsPath;
   private static int TIMEOUT = 60;
+  private static int WORKERS = 1;
+  private static final long HARD_TIMEOUT_GRACE_MILLIS = 5000;
   private String javaBinary;
+  private int poolSize;
+  private int timeout;
 
-  private Process solver;
-  private ObjectOutputStream inObject;
-  private BufferedInputStream bes;
-  private BufferedInputStream bos;
-  private ObjectInputStream outObject;
+  private final BlockingQueue<SolverProcess> idle = new LinkedBlockingQueue<>();
+  private final Set<SolverProcess> workers = ConcurrentHashMap.newKeySet();
+  // number of workers that are alive or currently starting
+  private final AtomicInteger launched = new AtomicInteger(0);
+  private final AtomicBoolean hookRegistered = new AtomicBoolean(false);
+  private final ExecutorService launcher =
+      Executors.newCachedThreadPool(
+          r -> {
+            Thread t = new Thread(r, "solver-process-launcher");
+            t.setDaemon(true);
+            return t;
+          });
+  private volatile IOException launchError;
+  private volatile boolean closed;
 
   public ProcessWrapperSolver(String solver) {
     super.name = solver + "prozess";
     this.solverName = solver;
-    inObject = null;
-    bes = null;
-    bos = null;
-    outObject = null;
 
     List<String> env = ManagementFactory.getRuntimeMXBean().getInputArguments();
     jConstraintsExtensionsPath = "";
@@ -66,10 +88,15 @@ public class ProcessWrapperSolver extends ConstraintSolver {
       if (s.startsWith("-Djconstraints.wrapper.timeout")) {
         TIMEOUT = Integer.parseInt(s.split("=")[1]);
       }
+      if (s.startsWith("-Djconstraints.wrapper.workers")) {
+        WORKERS = Integer.parseInt(s.split("=")[1]);
+      }
     }
 
     javaClassPath = System.getProperty("java.class.path");
     javaBinary = "java";
+    poolSize = Math.max(1, WORKERS);
+    timeout = TIMEOUT;
   }
 
   public ProcessWrapperSolver(String solver, String javaBinary) {
@@ -79,19 +106,63 @@ public class ProcessWrapperSolver extends ConstraintSolver {
     }
   }
 
+  public ProcessWrapperSolver(String solver, String javaBinary, int workers) {
+    this(solver, javaBinary);
+    if (workers < 1) {
+      throw new IllegalArgumentException("At least one worker process is required");
+    }
+    this.poolSize = workers;
+  }
+
   @Override
-  public synchronized Result solve(Expression<Boolean> f, Valuation result) {
+  public Result solve(Expression<Boolean> f, Valuation result) {
     try {
-      return runSolverProcess(f, result);
-    } catch (IOException | ClassNotFoundException e) {
+      return solveOrTimeout(f, result);
+    } catch (SolverTimeoutException e) {
+      return Result.DONT_KNOW;
+    }
+  }
+
+  /**
+   * Like {@link #solve(Expression, Valuation)}, but reports a worker that exceeded the timeout with
+   * an exception instead of {@link Result#DONT_KNOW}.
+   */
+  public Result solveOrTimeout(Expression<Boolean> f, Valuation result)
+      throws SolverTimeoutException {
+    SolverProcess worker;
+    try {
+      worker = acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Result.DONT_KNOW;
+    }
+    if (worker == null) {
+      if (closed) {
+        logger.warning("Solver processes have been shut down");
+      } else {
+        logger.severe("Cannot start solver process: " + launchError);
+      }
+      return Result.DONT_KNOW;
+    }
+    try {
+      return worker.solve(f, result);
+    } catch (IOException e) {
       logCallToSolver(f);
       e.printStackTrace();
+      worker.destroy();
       return Result.DONT_KNOW;
-    } catch (InterruptedException e) {
-      solver = null;
-      outObject = null;
-      System.out.println("Restart required");
-      return solve(f, result);
+    } finally {
+      release(worker);
+    }
+  }
+
+  /** Kills the workers that are busy with a query, they are replaced in the background. */
+  @Override
+  public void interrupt() {
+    for (SolverProcess worker : workers) {
+      if (!idle.contains(worker)) {
+        worker.interrupt();
+      }
     }
   }
 
@@ -100,83 +171,140 @@ public class ProcessWrapperSolver extends ConstraintSolver {
     return new ProcessWrapperContext(solverName, javaBinary);
   }
 
-  private Result runSolverProcess(Expression f, Valuation result)
-      throws IOException, InterruptedException, ClassNotFoundException {
-    if (solver == null) {
-      ProcessBuilder pb = new ProcessBuilder();
-      pb.command(
-          javaBinary,
-          "-ea",
-          "-cp",
-          javaClassPath,
-          "gov.nasa.jpf.constraints.solvers.encapsulation.SolverRunner",
-          "-s",
-          solverName,
-          "-t",
-          Integer.toString(TIMEOUT));
-      solver = pb.start();
-      registerShutdown(solver);
-
-      OutputStream inSolver = solver.getOutputStream();
-      inObject = new ObjectOutputStream(inSolver);
-      InputStream errSolver = solver.getErrorStream();
-      bes = new BufferedInputStream(errSolver);
-      InputStream outSolver = solver.getInputStream();
-      bos = new BufferedInputStream(outSolver);
-    }
-    if (solver.isAlive()) {
-      inObject.writeObject(f);
-      inObject.flush();
-      while (bos.available() == 0 && bes.available() == 0) {
-        // Thread.sleep(5);
+  /** Starts all worker processes in the background without waiting for them. */
+  public void prewarm() {
+    replenish();
+  }
+
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * Sets the per-query timeout of worker processes in seconds. Only applies to workers started
+   * afterwards, so call this before the first query or {@link #prewarm()}.
+   */
+  public void setTimeout(int seconds) {
+    if (seconds < 1) {
+      throw new IllegalArgumentException("Timeout must be at least one second");
+    }
+    this.timeout = seconds;
+  }
+
+  public int getTimeout() {
+    return timeout;
+  }
+
+  private SolverProcess acquire() throws InterruptedException {
+    if (closed) {
+      return null;
+    }
+    replenish();
+    SolverProcess worker;
+    while ((worker = idle.poll(1, TimeUnit.SECONDS)) == null) {
+      if (closed || (launchError != null && launched.get() == 0)) {
+        return null;
       }
-      if (!checkBes(bes, f)) {
-        if (outObject == null) {
-          outObject = new ObjectInputStream(bos);
-        }
-        Object start = (StartSolvingMessage) outObject.readObject();
+    }
+    return worker;
+  }
+
+  private void release(SolverProcess worker) {
+    if (worker.isUsable() && !closed) {
+      idle.offer(worker);
+    } else {
+      worker.destroy();
+      workers.remove(worker);
+      launched.decrementAndGet();
+      replenish();
+    }
+  }
+
+  private void replenish() {
+    if (hookRegistered.compareAndSet(false, true)) {
+      registerShutdown();
+    }
+    while (!launcher.isShutdown()) {
+      int n = launched.get();
+      if (n >= poolSize) {
+        return;
       }
-      while (bos.available() == 0 && bes.available() == 0) {
-        Thread.sleep(1);
+      if (launched.compareAndSet(n, n + 1)) {
+        launcher.execute(this::launchWorker);
       }
-      if (!checkBes(bes, f)) {
-        Object done = outObject.readObject();
-        if (done instanceof StopSolvingMessage) {
-          Object o = outObject.readObject();
-
-          if (o instanceof SolvingResult) {
-            SolvingResult res = (SolvingResult) o;
-            if (res.getResult().equals(Result.SAT) && result != null) {
-              for (ValuationEntry e : res.getVal()) {
-                result.addEntry(e);
-              }
-              try {
-                assert (Boolean) f.evaluateSMT(result);
-              } catch (UnsupportedOperationException e) {
-                // This might happen if something in the expression does not support the valuation.
-              }
-            }
-            return res.getResult();
-          }
-        } else if (done instanceof TimeOutSolvingMessage) {
-          System.out.println("Timeout in process Solver");
-          solver.destroyForcibly();
-        }
+    }
+  }
+
+  private void launchWorker() {
+    try {
+      SolverProcess worker = SolverProcess.start(processCommand(), hardTimeoutMillis());
+      workers.add(worker);
+      launchError = null;
+      if (closed) {
+        // shutdown() may have missed this worker
+        worker.stop();
+        return;
       }
+      idle.offer(worker);
+    } catch (IOException e) {
+      launchError = e;
+      launched.decrementAndGet();
     }
-    return Result.DONT_KNOW;
   }
 
+  /** The parent-side bound on a query: the runner's own timeout plus a grace period. */
+  long hardTimeoutMillis() {
+    return TimeUnit.SECONDS.toMillis(timeout) + HARD_TIMEOUT_GRACE_MILLIS;
+  }
+
+  List<String> processCommand() {
+    return Arrays.asList(
+        javaBinary,
+        "-ea",
+        "-cp",
+        javaClassPath,
+        "gov.nasa.jpf.constraints.solvers.encapsulation.SolverRunner",
+        "-s",
+        solverName,
+        "-t",
+        Integer.toString(timeout));
+  }
+
+  /**
+   * Stops all workers, killing those that do not exit within a second. Later queries return {@link
+   * Result#DONT_KNOW}.
+   */
   public void shutdown() throws IOException {
-    if (solver != null && solver.isAlive()) {
-      StopSolvingMessage ssm = new StopSolvingMessage();
-      ObjectOutputStream os = new ObjectOutputStream(solver.getOutputStream());
-      os.writeObject(ssm);
-      os.flush();
+    closed = true;
+    launcher.shutdownNow();
+    idle.clear();
+    for (SolverProcess worker : workers) {
+      worker.stop();
+    }
+    for (SolverProcess worker : workers) {
+      try {
+        if (!worker.awaitExit(1, TimeUnit.SECONDS)) {
+          worker.destroy();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        worker.destroy();
+      }
+    }
+  }
+
+  /** The number of worker processes that are still running. */
+  int liveWorkers() {
+    int n = 0;
+    for (SolverProcess worker : workers) {
+      if (worker.isAlive()) {
+        n++;
+      }
     }
+    return n;
   }
 
-  private void registerShutdown(Process solver) {
+  private void registerShutdown() {
     Runtime.getRuntime()
         .addShutdownHook(
             new Thread(
@@ -185,27 +313,13 @@ public class ProcessWrapperSolver extends ConstraintSolver {
                     shutdown();
                   } catch (IOException e) {
                     e.printStackTrace();
-                    solver.destroyForcibly();
+                    for (SolverProcess worker : workers) {
+                      worker.destroy();
+                    }
                   }
                 }));
   }
 
-  private boolean checkBes(BufferedInputStream bes, Object f) throws IOException {
-    if (bes.available() > 0) {
-      ObjectInputStream errObject = new ObjectInputStream(bes);
-      try {
-        Object err = errObject.readObject();
-        Exception e = (Exception) err;
-        e.printStackTrace();
-      } catch (ClassNotFoundException e) {
-        System.out.println("f: " + f);
-        logCallToSolver(f);
-      }
-      throw new IOException();
-    }
-    return false;
-  }
-
   private void logCallToSolver(Object f) {
     String fileName = "/tmp/serialized_" + solverName + Long.toString(System.nanoTime());
     try (FileOutputStream fo = new FileOutputStream(fileName)) {
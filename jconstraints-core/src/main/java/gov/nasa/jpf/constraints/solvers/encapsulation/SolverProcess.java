@@ -0,0 +1,250 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.exceptions.SolverTimeoutException;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireFormat;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireReader;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireWriter;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * A single {@link SolverRunner} subprocess. Communication uses the framed {@link WireFormat}
+ * protocol, so a caller waiting for a result sleeps in the read instead of polling the pipe. A
+ * process that timed out or failed to communicate is marked broken and has to be replaced by its
+ * owner.
+ */
+class SolverProcess {
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  private static final ScheduledExecutorService watchdog =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread t = new Thread(r, "solver-process-watchdog");
+            t.setDaemon(true);
+            return t;
+          });
+
+  private final Process process;
+  // bound on the wait for a result, catches runners that hang and never report their timeout
+  private final long hardTimeoutMillis;
+  private final WireWriter toSolver;
+  private final WireReader fromSolver;
+  // set before the process is killed, destroyForcibly() does not wait for it to exit
+  private volatile boolean broken;
+  private volatile boolean killed;
+  private volatile boolean interrupted;
+
+  private SolverProcess(Process process, long hardTimeoutMillis) throws IOException {
+    this.process = process;
+    this.hardTimeoutMillis = hardTimeoutMillis;
+    this.toSolver = new WireWriter(process.getOutputStream());
+    // blocks until the runner is up and has written its stream header
+    this.fromSolver = new WireReader(process.getInputStream());
+  }
+
+  /**
+   * Starts a runner process. If it does not answer a query within {@code hardTimeoutMillis}, it is
+   * killed and the query fails with a {@link SolverTimeoutException}; 0 disables the bound.
+   */
+  static SolverProcess start(List<String> command, long hardTimeoutMillis) throws IOException {
+    ProcessBuilder pb = new ProcessBuilder(command);
+    pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+    Process process = pb.start();
+    try {
+      return new SolverProcess(process, hardTimeoutMillis);
+    } catch (IOException e) {
+      process.destroyForcibly();
+      throw e;
+    }
+  }
+
+  Result solve(Expression<Boolean> f, Valuation result)
+      throws IOException, SolverTimeoutException {
+    try {
+      toSolver.beginMessage(WireFormat.MSG_SOLVE);
+      toSolver.writeExpression(f);
+      toSolver.endMessage();
+    } catch (IOException e) {
+      throw fail(e);
+    }
+
+    Result res = readResult(result);
+    assert isValidModel(f, res, result);
+    return res;
+  }
+
+  /**
+   * Sanity check of a model returned by the runner. Meant to be called in an {@code assert}
+   * statement, so the expression is neither built nor evaluated with assertions disabled.
+   */
+  static boolean isValidModel(Expression<Boolean> f, Result res, Valuation result) {
+    if (res.equals(Result.SAT) && result != null) {
+      try {
+        return f.evaluateSMT(result);
+      } catch (UnsupportedOperationException e) {
+        // This might happen if something in the expression does not support the valuation.
+      }
+    }
+    return true;
+  }
+
+  void push() throws IOException {
+    try {
+      toSolver.writeMessage(WireFormat.MSG_PUSH);
+    } catch (IOException e) {
+      throw fail(e);
+    }
+  }
+
+  void pop(int n) throws IOException {
+    try {
+      toSolver.beginMessage(WireFormat.MSG_POP);
+      toSolver.writeVarInt(n);
+      toSolver.endMessage();
+    } catch (IOException e) {
+      throw fail(e);
+    }
+  }
+
+  void add(List<? extends Expression<?>> expressions) throws IOException {
+    try {
+      toSolver.beginMessage(WireFormat.MSG_ADD);
+      toSolver.writeVarInt(expressions.size());
+      for (Expression<?> e : expressions) {
+        toSolver.writeExpression(e);
+      }
+      toSolver.endMessage();
+    } catch (IOException e) {
+      throw fail(e);
+    }
+  }
+
+  /** Checks the assertions added through {@link #add(List)} in the runner's solver context. */
+  Result check(Valuation result) throws IOException, SolverTimeoutException {
+    try {
+      toSolver.writeMessage(WireFormat.MSG_CHECK);
+    } catch (IOException e) {
+      throw fail(e);
+    }
+    return readResult(result);
+  }
+
+  private Result readResult(Valuation result) throws IOException, SolverTimeoutException {
+    ScheduledFuture<?> kill =
+        hardTimeoutMillis > 0
+            ? watchdog.schedule(this::kill, hardTimeoutMillis, TimeUnit.MILLISECONDS)
+            : null;
+    try {
+      return receiveResult(result);
+    } catch (IOException e) {
+      if (killed) {
+        throw new SolverTimeoutException(
+            "Solver process did not answer within " + hardTimeoutMillis + " ms");
+      }
+      if (interrupted) {
+        return Result.DONT_KNOW;
+      }
+      throw fail(e);
+    } finally {
+      if (kill != null) {
+        kill.cancel(false);
+      }
+    }
+  }
+
+  private void kill() {
+    logger.warning("Solver process does not answer, killing it");
+    killed = true;
+    destroy();
+  }
+
+  private Result receiveResult(Valuation result) throws IOException, SolverTimeoutException {
+    byte kind = fromSolver.nextMessage();
+    if (kind == WireFormat.MSG_RESULT) {
+      Result res = fromSolver.readResult();
+      Valuation val = fromSolver.readValuation();
+      if (res.equals(Result.SAT) && result != null) {
+        for (ValuationEntry<?> e : val) {
+          result.addEntry(e);
+        }
+      }
+      return res;
+    } else if (kind == WireFormat.MSG_TIMEOUT) {
+      logger.info("Timeout in process solver");
+      destroy();
+      throw new SolverTimeoutException("Solver process exceeded its timeout");
+    }
+    throw new StreamCorruptedException("Unexpected message " + kind);
+  }
+
+  private IOException fail(IOException e) {
+    destroy();
+    return e;
+  }
+
+  /** Whether the process can take further queries, i.e., it is neither broken nor exited. */
+  boolean isUsable() {
+    return !broken && process.isAlive();
+  }
+
+  void stop() {
+    broken = true;
+    if (process.isAlive()) {
+      try {
+        toSolver.writeMessage(WireFormat.MSG_STOP);
+      } catch (IOException e) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  /** Waits for the process to exit, returns whether it did within {@code timeout}. */
+  boolean awaitExit(long timeout, TimeUnit unit) throws InterruptedException {
+    return process.waitFor(timeout, unit);
+  }
+
+  boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /** Kills the process from another thread, a query waiting for it returns DONT_KNOW. */
+  void interrupt() {
+    interrupted = true;
+    destroy();
+  }
+
+  void destroy() {
+    broken = true;
+    process.destroyForcibly();
+  }
+}
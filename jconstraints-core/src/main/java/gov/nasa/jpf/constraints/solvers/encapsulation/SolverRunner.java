@@ -24,15 +24,20 @@ import static java.lang.System.exit;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
-import gov.nasa.jpf.constraints.solvers.encapsulation.messages.StartSolvingMessage;
-import gov.nasa.jpf.constraints.solvers.encapsulation.messages.StopSolvingMessage;
-import gov.nasa.jpf.constraints.solvers.encapsulation.messages.TimeOutSolvingMessage;
-import java.io.BufferedInputStream;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireFormat;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireReader;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -64,13 +69,10 @@ public class SolverRunner {
       solve(cmd.getOptionValue("s"));
       exit(0);
     } catch (IOException
-        | ClassNotFoundException
         | ParseException
         | InterruptedException
         | ExecutionException e) {
       e.printStackTrace();
-      ObjectOutputStream err = new ObjectOutputStream(System.err);
-      err.writeObject(e);
       exit(2);
     }
   }
@@ -83,43 +85,79 @@ public class SolverRunner {
   }
 
   private static void solve(String solverName)
-      throws IOException, ClassNotFoundException, InterruptedException, ExecutionException {
-    try (BufferedInputStream bin = new BufferedInputStream(System.in);
-        ObjectInputStream inStream = new ObjectInputStream(bin);
-        ObjectOutputStream out = new ObjectOutputStream(System.out)) {
+      throws IOException, InterruptedException, ExecutionException {
+    // stdout carries the protocol, anything printed by the solver goes to stderr instead
+    WireWriter out = new WireWriter(new FileOutputStream(FileDescriptor.out));
+    System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+    try (WireReader in = new WireReader(System.in)) {
       ConstraintSolver solver = ConstraintSolverFactory.createSolver(solverName);
+      // created on the first incremental message, stays alive for the whole session
+      SolverContext ctx = null;
       while (true) {
-        if (bin.available() > 0) {
-          Object read = inStream.readObject();
-          if (read instanceof Expression) {
-            Expression expr = (Expression) read;
+        byte kind = in.nextMessage();
+        if (kind == WireFormat.MSG_SOLVE) {
+          Expression<Boolean> expr = in.readAssertion();
 
-            out.writeObject(new StartSolvingMessage());
-            Valuation val = new Valuation();
-            try {
-              Result res = solveWithTimeOut(solver, expr, val);
-              out.writeObject(new StopSolvingMessage());
-              out.writeObject(new SolvingResult(res, val));
-              out.flush();
-            } catch (TimeoutException e) {
-              out.writeObject(new TimeOutSolvingMessage());
-              exec.shutdownNow();
-              break;
-            }
-          } else {
-            StopSolvingMessage ssm = (StopSolvingMessage) read;
+          Valuation val = new Valuation();
+          try {
+            Result res = solveWithTimeOut(() -> solver.solve(expr, val));
+            writeResult(out, res, val);
+          } catch (TimeoutException e) {
+            out.writeMessage(WireFormat.MSG_TIMEOUT);
+            exec.shutdownNow();
             break;
           }
+        } else if (kind == WireFormat.MSG_PUSH) {
+          ctx = context(solver, ctx);
+          ctx.push();
+        } else if (kind == WireFormat.MSG_POP) {
+          ctx = context(solver, ctx);
+          ctx.pop(in.readVarInt());
+        } else if (kind == WireFormat.MSG_ADD) {
+          ctx = context(solver, ctx);
+          int n = in.readVarInt();
+          List<Expression<Boolean>> assertions = new ArrayList<>(n);
+          for (int i = 0; i < n; i++) {
+            assertions.add(in.readAssertion());
+          }
+          ctx.add(assertions);
+        } else if (kind == WireFormat.MSG_CHECK) {
+          SolverContext current = context(solver, ctx);
+          ctx = current;
+          Valuation val = new Valuation();
+          try {
+            Result res = solveWithTimeOut(() -> current.solve(val));
+            writeResult(out, res, val);
+          } catch (TimeoutException e) {
+            out.writeMessage(WireFormat.MSG_TIMEOUT);
+            exec.shutdownNow();
+            break;
+          }
+        } else if (kind == WireFormat.MSG_STOP) {
+          break;
         } else {
-          // Thread.sleep(1);
+          throw new StreamCorruptedException("Unexpected message " + kind);
         }
       }
+    } finally {
+      out.close();
     }
   }
 
-  private static Result solveWithTimeOut(ConstraintSolver solver, Expression expr, Valuation val)
+  private static SolverContext context(ConstraintSolver solver, SolverContext ctx) {
+    return ctx != null ? ctx : solver.createContext();
+  }
+
+  private static void writeResult(WireWriter out, Result res, Valuation val) throws IOException {
+    out.beginMessage(WireFormat.MSG_RESULT);
+    out.writeResult(res);
+    out.writeValuation(val);
+    out.endMessage();
+  }
+
+  private static Result solveWithTimeOut(Callable<Result> query)
       throws TimeoutException, ExecutionException, InterruptedException {
-    FutureTask<Result> solverRun = new FutureTask<>(() -> solver.solve(expr, val));
+    FutureTask<Result> solverRun = new FutureTask<>(query);
     exec.submit(solverRun);
     try {
       return solverRun.get(TIME_OUT_IN_SECONDS, TimeUnit.SECONDS);
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation.protocol;
+
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Constants of the binary protocol spoken between {@link
+ * gov.nasa.jpf.constraints.solvers.encapsulation.ProcessWrapperSolver} and {@link
+ * gov.nasa.jpf.constraints.solvers.encapsulation.SolverRunner}.
+ *
+ * <p>A session starts with {@link #MAGIC} and {@link #VERSION}. After that, every message is a
+ * frame consisting of its payload length (a 4 byte int) followed by the payload, whose first byte
+ * is the message kind. Variables and types are defined inline on first use and referenced by their
+ * session-wide index afterwards.
+ */
+public final class WireFormat {
+
+  public static final int MAGIC = 0x4A435750; // "JCWP"
+  public static final int VERSION = 1;
+
+  // message kinds
+  public static final byte MSG_SOLVE = 1;
+  public static final byte MSG_STOP = 2;
+  public static final byte MSG_RESULT = 3;
+  public static final byte MSG_TIMEOUT = 4;
+  public static final byte MSG_PUSH = 5;
+  public static final byte MSG_POP = 6;
+  public static final byte MSG_ADD = 7;
+  public static final byte MSG_CHECK = 8;
+
+  // expression tags
+  static final byte EXPR_NULL = 0;
+  static final byte EXPR_VAR_DEF = 1;
+  static final byte EXPR_VAR_REF = 2;
+  static final byte EXPR_CONSTANT = 3;
+  static final byte EXPR_NEGATION = 4;
+  static final byte EXPR_NUMERIC_BOOLEAN = 5;
+  static final byte EXPR_NUMERIC_COMPOUND = 6;
+  static final byte EXPR_PROPOSITIONAL = 7;
+  static final byte EXPR_ITE = 8;
+  static final byte EXPR_UNARY_MINUS = 9;
+  static final byte EXPR_BITVECTOR = 10;
+  static final byte EXPR_BITVECTOR_NEGATION = 11;
+  static final byte EXPR_CAST = 12;
+  static final byte EXPR_QUANTIFIER = 13;
+  static final byte EXPR_STRING_BOOLEAN = 14;
+  static final byte EXPR_STRING_INTEGER = 15;
+  static final byte EXPR_STRING_COMPOUND = 16;
+  static final byte EXPR_REGEX_BOOLEAN = 17;
+  static final byte EXPR_SERIALIZED = 127;
+
+  // type tags
+  static final byte TYPE_REF = 0;
+  static final byte TYPE_BUILTIN = 1;
+  static final byte TYPE_SERIALIZED = 2;
+
+  // value tags
+  static final byte VALUE_NULL = 0;
+  static final byte VALUE_BOOLEAN = 1;
+  static final byte VALUE_BYTE = 2;
+  static final byte VALUE_SHORT = 3;
+  static final byte VALUE_CHAR = 4;
+  static final byte VALUE_INT = 5;
+  static final byte VALUE_LONG = 6;
+  static final byte VALUE_FLOAT = 7;
+  static final byte VALUE_DOUBLE = 8;
+  static final byte VALUE_BIG_INTEGER = 9;
+  static final byte VALUE_BIG_DECIMAL = 10;
+  static final byte VALUE_STRING = 11;
+  static final byte VALUE_SERIALIZED = 12;
+
+  /** The singleton types of {@link BuiltinTypes}, in a fixed order known to both sides. */
+  static final List<Type<?>> BUILTIN_TYPES = collectBuiltinTypes();
+
+  private WireFormat() {}
+
+  private static List<Type<?>> collectBuiltinTypes() {
+    List<Field> fields = new ArrayList<>(Arrays.asList(BuiltinTypes.class.getFields()));
+    fields.sort(Comparator.comparing(Field::getName));
+    List<Type<?>> types = new ArrayList<>();
+    for (Field f : fields) {
+      if (Modifier.isStatic(f.getModifiers()) && Type.class.isAssignableFrom(f.getType())) {
+        try {
+          types.add((Type<?>) f.get(null));
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return types;
+  }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation.protocol;
+
+import static gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireFormat.*;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorNegation;
+import gov.nasa.jpf.constraints.expressions.BitvectorOperator;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.IfThenElse;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.Quantifier;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.expressions.RegExBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanOperator;
+import gov.nasa.jpf.constraints.expressions.StringCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerOperator;
+import gov.nasa.jpf.constraints.expressions.StringOperator;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.Type;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads framed messages of the {@link WireFormat} protocol written by a {@link WireWriter}. {@link
+ * #nextMessage()} blocks until a complete frame has arrived and returns its kind; its payload is
+ * then consumed with the {@code read*} methods in the order it was written.
+ */
+public class WireReader implements Closeable {
+
+  private final DataInputStream in;
+  private DataInputStream data;
+
+  private final List<Variable<?>> variables = new ArrayList<>();
+  private final List<Type<?>> types = new ArrayList<>();
+
+  public WireReader(InputStream is) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(is));
+    if (in.readInt() != MAGIC) {
+      throw new StreamCorruptedException("Not a jConstraints wire protocol stream");
+    }
+    int version = in.readShort();
+    if (version != VERSION) {
+      throw new StreamCorruptedException("Unsupported wire protocol version " + version);
+    }
+  }
+
+  public byte nextMessage() throws IOException {
+    int length = in.readInt();
+    byte[] payload = new byte[length];
+    in.readFully(payload);
+    data = new DataInputStream(new ByteArrayInputStream(payload));
+    return data.readByte();
+  }
+
+  public Expression<?> readExpression() throws IOException {
+    byte tag = data.readByte();
+    switch (tag) {
+      case EXPR_NULL:
+        return null;
+      case EXPR_VAR_DEF:
+        {
+          String name = readString();
+          Variable<?> v = Variable.create(readType(), name);
+          variables.add(v);
+          return v;
+        }
+      case EXPR_VAR_REF:
+        return variables.get(readVarInt());
+      case EXPR_CONSTANT:
+        return readConstant(readType());
+      case EXPR_NEGATION:
+        return Negation.create(readBoolean());
+      case EXPR_NUMERIC_BOOLEAN:
+        {
+          NumericComparator cmp = NumericComparator.values()[readVarInt()];
+          return NumericBooleanExpression.create(readExpression(), cmp, readExpression());
+        }
+      case EXPR_NUMERIC_COMPOUND:
+        {
+          NumericOperator op = NumericOperator.values()[readVarInt()];
+          return NumericCompound.create(readTyped(), op, readExpression());
+        }
+      case EXPR_PROPOSITIONAL:
+        {
+          LogicalOperator op = LogicalOperator.values()[readVarInt()];
+          return PropositionalCompound.create(readBoolean(), op, readBoolean());
+        }
+      case EXPR_ITE:
+        return readIfThenElse(readType());
+      case EXPR_UNARY_MINUS:
+        return UnaryMinus.create(readExpression());
+      case EXPR_BITVECTOR:
+        {
+          BitvectorOperator op = BitvectorOperator.values()[readVarInt()];
+          return BitvectorExpression.create(readTyped(), op, readExpression());
+        }
+      case EXPR_BITVECTOR_NEGATION:
+        return BitvectorNegation.create(readExpression());
+      case EXPR_CAST:
+        {
+          Type<?> type = readType();
+          return CastExpression.create(readExpression(), type);
+        }
+      case EXPR_QUANTIFIER:
+        {
+          Quantifier q = Quantifier.values()[readVarInt()];
+          int n = readVarInt();
+          List<Variable<?>> bound = new ArrayList<>(n);
+          for (int i = 0; i < n; i++) {
+            bound.add((Variable<?>) readExpression());
+          }
+          return QuantifierExpression.create(q, bound, readBoolean());
+        }
+      case EXPR_STRING_BOOLEAN:
+        {
+          StringBooleanOperator op = StringBooleanOperator.values()[readVarInt()];
+          return new StringBooleanExpression(readExpression(), op, readExpression());
+        }
+      case EXPR_STRING_INTEGER:
+        return readStringInteger();
+      case EXPR_STRING_COMPOUND:
+        return readStringCompound();
+      case EXPR_REGEX_BOOLEAN:
+        return RegExBooleanExpression.create(readExpression(), readExpression());
+      case EXPR_SERIALIZED:
+        return (Expression<?>) readSerialized();
+      default:
+        throw new StreamCorruptedException("Unknown expression tag " + tag);
+    }
+  }
+
+  /** Reads an expression that was written as an assertion, i.e., with type Bool. */
+  public Expression<Boolean> readAssertion() throws IOException {
+    return readBoolean();
+  }
+
+  public Valuation readValuation() throws IOException {
+    Valuation val = new Valuation();
+    int n = readVarInt();
+    for (int i = 0; i < n; i++) {
+      readEntry(val, (Variable<?>) readExpression());
+    }
+    return val;
+  }
+
+  public Result readResult() throws IOException {
+    return Result.values()[data.readByte()];
+  }
+
+  public int readVarInt() throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = data.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * The wire format carries no Java type arguments. Decoded parts are cast to the types of the
+   * expression they belong to, which holds because the writer encoded a well-typed expression.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T decoded(Object o) {
+    return (T) o;
+  }
+
+  private <E> Expression<E> readTyped() throws IOException {
+    return decoded(readExpression());
+  }
+
+  private Expression<Boolean> readBoolean() throws IOException {
+    return readTyped();
+  }
+
+  private <E> Constant<E> readConstant(Type<E> type) throws IOException {
+    boolean escape = data.readBoolean();
+    E value = decoded(readValue());
+    return Constant.create(type, value, escape);
+  }
+
+  private <E> IfThenElse<E> readIfThenElse(Type<E> type) throws IOException {
+    Expression<Boolean> cond = readBoolean();
+    Expression<E> thenExpr = readTyped();
+    Expression<E> elseExpr = readTyped();
+    return new IfThenElse<>(type, cond, thenExpr, elseExpr);
+  }
+
+  private <E> void readEntry(Valuation val, Variable<E> var) throws IOException {
+    E value = decoded(readValue());
+    val.setValue(var, value);
+  }
+
+  private Expression<?> readStringInteger() throws IOException {
+    StringIntegerOperator op = StringIntegerOperator.values()[readVarInt()];
+    Expression<?> left = readExpression();
+    Expression<?> right = readExpression();
+    Expression<?> offset = readExpression();
+    switch (op) {
+      case LENGTH:
+        return StringIntegerExpression.createLength(left);
+      case TOINT:
+        return StringIntegerExpression.createToInt(left);
+      case INDEXOF:
+        return StringIntegerExpression.createIndexOf(left, right, offset);
+      default:
+        throw new StreamCorruptedException("Unknown string integer operator " + op);
+    }
+  }
+
+  private Expression<?> readStringCompound() throws IOException {
+    StringOperator op = StringOperator.values()[readVarInt()];
+    Expression<?> main = readExpression();
+    int n = readVarInt();
+    Expression<?>[] exprs = null;
+    if (n > 0) {
+      exprs = new Expression<?>[n - 1];
+      for (int i = 0; i < exprs.length; i++) {
+        exprs[i] = readExpression();
+      }
+    }
+    Expression<?> offset = readExpression();
+    Expression<?> length = readExpression();
+    Expression<?> src = readExpression();
+    Expression<?> dst = readExpression();
+    Expression<?> position = readExpression();
+    return new StringCompoundExpression(main, op, exprs, offset, length, src, dst, position);
+  }
+
+  private Type<?> readType() throws IOException {
+    byte tag = data.readByte();
+    Type<?> type;
+    switch (tag) {
+      case TYPE_REF:
+        return types.get(readVarInt());
+      case TYPE_BUILTIN:
+        type = BUILTIN_TYPES.get(readVarInt());
+        break;
+      case TYPE_SERIALIZED:
+        type = (Type<?>) readSerialized();
+        break;
+      default:
+        throw new StreamCorruptedException("Unknown type tag " + tag);
+    }
+    types.add(type);
+    return type;
+  }
+
+  private Object readValue() throws IOException {
+    byte tag = data.readByte();
+    switch (tag) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_BOOLEAN:
+        return data.readBoolean();
+      case VALUE_BYTE:
+        return data.readByte();
+      case VALUE_SHORT:
+        return data.readShort();
+      case VALUE_CHAR:
+        return data.readChar();
+      case VALUE_INT:
+        return data.readInt();
+      case VALUE_LONG:
+        return data.readLong();
+      case VALUE_FLOAT:
+        return data.readFloat();
+      case VALUE_DOUBLE:
+        return data.readDouble();
+      case VALUE_BIG_INTEGER:
+        return new BigInteger(readBytes());
+      case VALUE_BIG_DECIMAL:
+        {
+          int scale = data.readInt();
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        }
+      case VALUE_STRING:
+        return readString();
+      case VALUE_SERIALIZED:
+        return readSerialized();
+      default:
+        throw new StreamCorruptedException("Unknown value tag " + tag);
+    }
+  }
+
+  private String readString() throws IOException {
+    return new String(readBytes(), StandardCharsets.UTF_8);
+  }
+
+  private byte[] readBytes() throws IOException {
+    byte[] bytes = new byte[readVarInt()];
+    data.readFully(bytes);
+    return bytes;
+  }
+
+  private Object readSerialized() throws IOException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes()))) {
+      return ois.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation.protocol;
+
+import static gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireFormat.*;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.ValuationEntry;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.AbstractExpressionVisitor;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorNegation;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.IfThenElse;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.expressions.RegExBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerExpression;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.Type;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes framed messages of the {@link WireFormat} protocol. A message is assembled with {@link
+ * #beginMessage(byte)}, the {@code write*} methods and {@link #endMessage()}; nothing reaches the
+ * underlying stream before the message is complete. Variables and types are remembered for the
+ * lifetime of the writer and only sent the first time they occur.
+ */
+public class WireWriter implements Closeable {
+
+  private final DataOutputStream out;
+  private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+  private final DataOutputStream data = new DataOutputStream(frame);
+
+  private final Map<Variable<?>, Integer> variables = new HashMap<>();
+  private final Map<Type<?>, Integer> types = new HashMap<>();
+  // definitions made by the current message, dropped again if it is never completed
+  private final List<Variable<?>> newVariables = new ArrayList<>();
+  private final List<Type<?>> newTypes = new ArrayList<>();
+  private boolean inMessage = false;
+
+  private final EncodingVisitor encoder = new EncodingVisitor();
+
+  public WireWriter(OutputStream os) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(os));
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.flush();
+  }
+
+  public void beginMessage(byte kind) throws IOException {
+    if (inMessage) {
+      rollback();
+    }
+    inMessage = true;
+    frame.reset();
+    data.writeByte(kind);
+  }
+
+  public void endMessage() throws IOException {
+    out.writeInt(frame.size());
+    frame.writeTo(out);
+    out.flush();
+    newVariables.clear();
+    newTypes.clear();
+    inMessage = false;
+  }
+
+  /** Writes a message without payload. */
+  public void writeMessage(byte kind) throws IOException {
+    beginMessage(kind);
+    endMessage();
+  }
+
+  public void writeExpression(Expression<?> expr) throws IOException {
+    try {
+      expr.accept(encoder, null);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  public void writeValuation(Valuation val) throws IOException {
+    writeVarInt(val.entries().size());
+    for (ValuationEntry<?> e : val) {
+      writeVariable(e.getVariable());
+      writeValue(e.getValue());
+    }
+  }
+
+  public void writeResult(Result res) throws IOException {
+    data.writeByte(res.ordinal());
+  }
+
+  public void writeVarInt(int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      data.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    data.writeByte(value);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private void rollback() {
+    for (Variable<?> v : newVariables) {
+      variables.remove(v);
+    }
+    for (Type<?> t : newTypes) {
+      types.remove(t);
+    }
+    newVariables.clear();
+    newTypes.clear();
+  }
+
+  private void writeVariable(Variable<?> v) throws IOException {
+    Integer id = variables.get(v);
+    if (id != null) {
+      data.writeByte(EXPR_VAR_REF);
+      writeVarInt(id);
+      return;
+    }
+    data.writeByte(EXPR_VAR_DEF);
+    writeString(v.getName());
+    writeType(v.getType());
+    variables.put(v, variables.size());
+    newVariables.add(v);
+  }
+
+  private void writeType(Type<?> type) throws IOException {
+    Integer id = types.get(type);
+    if (id != null) {
+      data.writeByte(TYPE_REF);
+      writeVarInt(id);
+      return;
+    }
+    int builtin = BUILTIN_TYPES.indexOf(type);
+    if (builtin >= 0) {
+      data.writeByte(TYPE_BUILTIN);
+      writeVarInt(builtin);
+    } else {
+      data.writeByte(TYPE_SERIALIZED);
+      writeSerialized(type);
+    }
+    types.put(type, types.size());
+    newTypes.add(type);
+  }
+
+  private void writeValue(Object value) throws IOException {
+    if (value == null) {
+      data.writeByte(VALUE_NULL);
+    } else if (value instanceof Boolean) {
+      data.writeByte(VALUE_BOOLEAN);
+      data.writeBoolean((Boolean) value);
+    } else if (value instanceof Byte) {
+      data.writeByte(VALUE_BYTE);
+      data.writeByte((Byte) value);
+    } else if (value instanceof Short) {
+      data.writeByte(VALUE_SHORT);
+      data.writeShort((Short) value);
+    } else if (value instanceof Character) {
+      data.writeByte(VALUE_CHAR);
+      data.writeChar((Character) value);
+    } else if (value instanceof Integer) {
+      data.writeByte(VALUE_INT);
+      data.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      data.writeByte(VALUE_LONG);
+      data.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      data.writeByte(VALUE_FLOAT);
+      data.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      data.writeByte(VALUE_DOUBLE);
+      data.writeDouble((Double) value);
+    } else if (value instanceof BigInteger) {
+      data.writeByte(VALUE_BIG_INTEGER);
+      writeBytes(((BigInteger) value).toByteArray());
+    } else if (value instanceof BigDecimal) {
+      BigDecimal dec = (BigDecimal) value;
+      data.writeByte(VALUE_BIG_DECIMAL);
+      data.writeInt(dec.scale());
+      writeBytes(dec.unscaledValue().toByteArray());
+    } else if (value instanceof String) {
+      data.writeByte(VALUE_STRING);
+      writeString((String) value);
+    } else {
+      data.writeByte(VALUE_SERIALIZED);
+      writeSerialized(value);
+    }
+  }
+
+  private void writeString(String s) throws IOException {
+    writeBytes(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    writeVarInt(bytes.length);
+    data.write(bytes);
+  }
+
+  private void writeSerialized(Object o) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(o);
+    }
+    writeBytes(bos.toByteArray());
+  }
+
+  private final class EncodingVisitor extends AbstractExpressionVisitor<Void, Void> {
+
+    private void tag(byte tag) {
+      try {
+        data.writeByte(tag);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void ordinal(Enum<?> e) {
+      try {
+        writeVarInt(e.ordinal());
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+    private void child(Expression<?> e) {
+      if (e == null) {
+        tag(EXPR_NULL);
+      } else {
+        visit(e, null);
+      }
+    }
+
+    @Override
+    public <E> Void visit(Variable<E> v, Void data) {
+      if (v.getClass() != Variable.class) {
+        return defaultVisit(v, data);
+      }
+      try {
+        writeVariable(v);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return null;
+    }
+
+    @Override
+    public <E> Void visit(Constant<E> c, Void d) {
+      tag(EXPR_CONSTANT);
+      try {
+        writeType(c.getType());
+        WireWriter.this.data.writeBoolean(c.isEscape());
+        writeValue(c.getValue());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(Negation n, Void d) {
+      tag(EXPR_NEGATION);
+      child(n.getNegated());
+      return null;
+    }
+
+    @Override
+    public Void visit(NumericBooleanExpression n, Void d) {
+      tag(EXPR_NUMERIC_BOOLEAN);
+      ordinal(n.getComparator());
+      child(n.getLeft());
+      child(n.getRight());
+      return null;
+    }
+
+    @Override
+    public <E> Void visit(NumericCompound<E> n, Void d) {
+      tag(EXPR_NUMERIC_COMPOUND);
+      ordinal(n.getOperator());
+      child(n.getLeft());
+      child(n.getRight());
+      return null;
+    }
+
+    @Override
+    public Void visit(PropositionalCompound n, Void d) {
+      tag(EXPR_PROPOSITIONAL);
+      ordinal(n.getOperator());
+      child(n.getLeft());
+      child(n.getRight());
+      return null;
+    }
+
+    @Override
+    public <E> Void visit(IfThenElse<E> n, Void d) {
+      tag(EXPR_ITE);
+      try {
+        writeType(n.getType());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      child(n.getIf());
+      child(n.getThen());
+      child(n.getElse());
+      return null;
+    }
+
+    @Override
+    public <E> Void visit(UnaryMinus<E> n, Void d) {
+      tag(EXPR_UNARY_MINUS);
+      child(n.getNegated());
+      return null;
+    }
+
+    @Override
+    public <E> Void visit(BitvectorExpression<E> bv, Void d) {
+      tag(EXPR_BITVECTOR);
+      ordinal(bv.getOperator());
+      child(bv.getLeft());
+      child(bv.getRight());
+      return null;
+    }
+
+    @Override
+    public <E> Void visit(BitvectorNegation<E> n, Void d) {
+      tag(EXPR_BITVECTOR_NEGATION);
+      child(n.getNegated());
+      return null;
+    }
+
+    @Override
+    public <F, E> Void visit(CastExpression<F, E> cast, Void d) {
+      Object defaultOp;
+      try {
+        defaultOp = cast.getType().cast(cast.getCasted().getType());
+      } catch (RuntimeException e) {
+        defaultOp = null;
+      }
+      if (defaultOp == null || !defaultOp.equals(cast.getCastOp())) {
+        // custom cast operations are shipped as they are
+        return defaultVisit(cast, d);
+      }
+      tag(EXPR_CAST);
+      try {
+        writeType(cast.getType());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      child(cast.getCasted());
+      return null;
+    }
+
+    @Override
+    public Void visit(QuantifierExpression q, Void d) {
+      tag(EXPR_QUANTIFIER);
+      ordinal(q.getQuantifier());
+      try {
+        writeVarInt(q.getBoundVariables().size());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (Variable<?> v : q.getBoundVariables()) {
+        visit(v, d);
+      }
+      child(q.getBody());
+      return null;
+    }
+
+    @Override
+    public Void visit(StringBooleanExpression n, Void d) {
+      tag(EXPR_STRING_BOOLEAN);
+      ordinal(n.getOperator());
+      child(n.getLeft());
+      child(n.getRight());
+      return null;
+    }
+
+    @Override
+    public Void visit(StringIntegerExpression n, Void d) {
+      tag(EXPR_STRING_INTEGER);
+      ordinal(n.getOperator());
+      child(n.getLeft());
+      child(n.getRight());
+      child(n.getOffset());
+      return null;
+    }
+
+    @Override
+    public Void visit(StringCompoundExpression n, Void d) {
+      tag(EXPR_STRING_COMPOUND);
+      ordinal(n.getOperator());
+      child(n.getMain());
+      Expression<?>[] exprs = n.getExpressions();
+      try {
+        writeVarInt(exprs == null ? 0 : exprs.length + 1);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (exprs != null) {
+        for (Expression<?> e : exprs) {
+          child(e);
+        }
+      }
+      child(n.getOffset());
+      child(n.getLength());
+      child(n.getSrc());
+      child(n.getDst());
+      child(n.getPosition());
+      return null;
+    }
+
+    @Override
+    public Void visit(RegExBooleanExpression n, Void d) {
+      tag(EXPR_REGEX_BOOLEAN);
+      child(n.getLeft());
+      child(n.getRight());
+      return null;
+    }
+
+    @Override
+    protected <E> Void defaultVisit(Expression<E> expression, Void d) {
+      tag(EXPR_SERIALIZED);
+      try {
+        writeSerialized(expression);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return null;
+    }
+  }
+}
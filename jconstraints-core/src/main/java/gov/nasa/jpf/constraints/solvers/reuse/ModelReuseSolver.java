@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.reuse;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Wraps a solver and first tries the last {@code k} satisfying models on every query. A model that
+ * assigns all free variables of the query and satisfies it under {@link Expression#evaluateSMT}
+ * answers the query without calling the back solver.
+ */
+public class ModelReuseSolver extends ConstraintSolver {
+
+  public static final String NAME = "model-reuse";
+
+  public static final int DEFAULT_MODELS = 8;
+
+  private final ConstraintSolver back;
+
+  private final int capacity;
+
+  /** Most recently used model first. */
+  private final LinkedList<Valuation> models = new LinkedList<>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  public ModelReuseSolver(ConstraintSolver back) {
+    this(back, DEFAULT_MODELS);
+  }
+
+  public ModelReuseSolver(ConstraintSolver back, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("number of reused models must be positive: " + capacity);
+    }
+    this.back = back;
+    this.capacity = capacity;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    return solveReusing(f, result, val -> back.solve(f, val));
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return new ModelReuseSolverContext(back.createContext(), this);
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Number of queries answered by a previous model. */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /** Number of queries passed on to the back solver. */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+  }
+
+  Result solveReusing(Expression<Boolean> f, Valuation result, Function<Valuation, Result> back) {
+    Set<Variable<?>> vars = ExpressionUtil.freeVariables(f);
+    Valuation reused = findModel(f, vars);
+    if (reused != null) {
+      hits.incrementAndGet();
+      if (result != null) {
+        for (Variable<?> v : vars) {
+          result.setCastedValue(v, reused.getValue(v));
+        }
+      }
+      return Result.SAT;
+    }
+    misses.incrementAndGet();
+    Valuation model = result != null ? result : new Valuation();
+    Result res = back.apply(model);
+    if (res == Result.SAT && !model.getVariables().isEmpty()) {
+      remember(model);
+    }
+    return res;
+  }
+
+  private Valuation findModel(Expression<Boolean> f, Set<Variable<?>> vars) {
+    List<Valuation> candidates;
+    synchronized (models) {
+      candidates = new ArrayList<>(models);
+    }
+    for (Valuation m : candidates) {
+      if (satisfies(m, f, vars)) {
+        synchronized (models) {
+          if (models.remove(m)) {
+            models.addFirst(m);
+          }
+        }
+        return m;
+      }
+    }
+    return null;
+  }
+
+  private static boolean satisfies(Valuation m, Expression<Boolean> f, Set<Variable<?>> vars) {
+    for (Variable<?> v : vars) {
+      if (!m.containsValueFor(v)) {
+        return false;
+      }
+    }
+    try {
+      return Boolean.TRUE.equals(f.evaluateSMT(m));
+    } catch (RuntimeException e) {
+      // e.g. division by zero or an operation without evaluation support
+      return false;
+    }
+  }
+
+  private void remember(Valuation model) {
+    Valuation copy = new Valuation();
+    copy.putAll(model);
+    synchronized (models) {
+      models.addFirst(copy);
+      while (models.size() > capacity) {
+        models.removeLast();
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.reuse;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import java.util.Properties;
+
+/**
+ * Provider for the {@link ModelReuseSolver}. Options: {@code model-reuse.back} (the wrapped
+ * solver) and {@code model-reuse.models} (number of models kept, default 8).
+ */
+public class ModelReuseSolverProvider implements ConstraintSolverProvider {
+
+  @Override
+  public String[] getNames() {
+    return new String[] {ModelReuseSolver.NAME};
+  }
+
+  @Override
+  public ConstraintSolver createSolver(Properties config) {
+    String backName = config.getProperty(ModelReuseSolver.NAME + ".back");
+    int models =
+        Integer.parseInt(
+            config.getProperty(
+                ModelReuseSolver.NAME + ".models",
+                Integer.toString(ModelReuseSolver.DEFAULT_MODELS)));
+    ConstraintSolver back = ConstraintSolverFactory.createSolver(backName, config);
+    return new ModelReuseSolver(back, models);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.slicing;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.simplifiers.ConstraintPartitioner;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits every query into independent clusters (see {@link ConstraintPartitioner}) and solves
+ * them separately with the back solver. Results of clusters are cached, so after adding a
+ * constraint only the cluster it touches is sent to the back solver again.
+ */
+public class SlicingSolver extends ConstraintSolver {
+
+  public static final String NAME = "slicing";
+
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private static final class Entry {
+    private final Result result;
+    private final Valuation model;
+
+    private Entry(Result result, Valuation model) {
+      this.result = result;
+      this.model = model;
+    }
+  }
+
+  private final ConstraintSolver back;
+
+  private final Map<Set<Expression<Boolean>>, Entry> cache;
+
+  private final AtomicLong solvedClusters = new AtomicLong();
+
+  private final AtomicLong reusedClusters = new AtomicLong();
+
+  public SlicingSolver(ConstraintSolver back) {
+    this(back, DEFAULT_CACHE_SIZE);
+  }
+
+  public SlicingSolver(ConstraintSolver back, int cacheSize) {
+    this.back = back;
+    this.cache =
+        new LinkedHashMap<Set<Expression<Boolean>>, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Set<Expression<Boolean>>, Entry> eldest) {
+            return size() > cacheSize;
+          }
+        };
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    return solveSliced(Collections.singletonList(f), result);
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return new SlicingSolverContext(this);
+  }
+
+  /** Number of clusters sent to the back solver. */
+  public long getSolvedClusters() {
+    return solvedClusters.get();
+  }
+
+  /** Number of clusters answered from the cache. */
+  public long getReusedClusters() {
+    return reusedClusters.get();
+  }
+
+  Result solveSliced(Collection<? extends Expression<Boolean>> assertions, Valuation result) {
+    List<Expression<Boolean>> conjuncts = ConstraintPartitioner.conjuncts(assertions);
+    Result combined = Result.SAT;
+    for (List<Expression<Boolean>> cluster : ConstraintPartitioner.partition(conjuncts)) {
+      Entry e = solveCluster(cluster);
+      if (e.result == Result.UNSAT) {
+        return Result.UNSAT;
+      }
+      if (e.result != Result.SAT) {
+        // keep looking: another cluster may still be UNSAT
+        combined = e.result;
+      } else if (result != null) {
+        result.putAll(e.model);
+      }
+    }
+    return combined;
+  }
+
+  private Entry solveCluster(List<Expression<Boolean>> cluster) {
+    Set<Expression<Boolean>> key = Collections.unmodifiableSet(new HashSet<>(cluster));
+    synchronized (cache) {
+      Entry cached = cache.get(key);
+      if (cached != null) {
+        reusedClusters.incrementAndGet();
+        return cached;
+      }
+    }
+    solvedClusters.incrementAndGet();
+    Valuation model = new Valuation();
+    Result res = back.solve(ExpressionUtil.and(cluster), model);
+    Entry e = new Entry(res, model);
+    if (res == Result.SAT || res == Result.UNSAT) {
+      synchronized (cache) {
+        cache.put(key, e);
+      }
+    }
+    return e;
+  }
+}
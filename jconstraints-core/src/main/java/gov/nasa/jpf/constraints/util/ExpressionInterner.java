@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.util;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.expressions.AbstractExpressionVisitor;
+import gov.nasa.jpf.constraints.expressions.ArrayBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.ArraySelectExpression;
+import gov.nasa.jpf.constraints.expressions.ArrayStoreExpression;
+import gov.nasa.jpf.constraints.expressions.LetExpression;
+import gov.nasa.jpf.constraints.expressions.RegExBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.RegexCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.RegexOperatorExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerExpression;
+import java.util.Map;
+
+/**
+ * Hash-consing factory for expressions. Structurally equal nodes are mapped to one canonical
+ * instance, so comparing interned expressions succeeds on the reference check and the cached hash
+ * code of a shared subterm is computed once.
+ *
+ * <p>Interning is opt-in: expressions built without an interner behave as before. Already interned
+ * subtrees are recognized in constant time, so extending an interned path condition by a new
+ * conjunct only walks the new conjunct. String, regex, array and let expressions compare by
+ * identity and are returned unchanged.
+ *
+ * <p>Canonical instances are held weakly and the interner is safe for concurrent use.
+ */
+public class ExpressionInterner extends AbstractExpressionVisitor<Expression<?>, Void> {
+
+  private final Interner<Expression<?>> interner = Interners.newWeakInterner();
+
+  private final Map<Expression<?>, Boolean> canonical = new MapMaker().weakKeys().makeMap();
+
+  @SuppressWarnings("unchecked")
+  public <E> Expression<E> intern(Expression<E> expr) {
+    return (Expression<E>) visit(expr, null);
+  }
+
+  public boolean isInterned(Expression<?> expr) {
+    return canonical.containsKey(expr);
+  }
+
+  @Override
+  protected <E> Expression<?> defaultVisit(Expression<E> expression, Void data) {
+    if (canonical.containsKey(expression)) {
+      return expression;
+    }
+    Expression<?>[] children = expression.getChildren();
+    boolean changed = false;
+    for (int i = 0; i < children.length; i++) {
+      Expression<?> c = children[i];
+      Expression<?> r = visit(c, data);
+      if (c != r) changed = true;
+      children[i] = r;
+    }
+    Expression<?> candidate = changed ? expression.duplicate(children) : expression;
+    Expression<?> result = interner.intern(candidate);
+    canonical.put(result, Boolean.TRUE);
+    return result;
+  }
+
+  @Override
+  public Expression<?> visit(RegExBooleanExpression n, Void data) {
+    return n;
+  }
+
+  @Override
+  public Expression<?> visit(StringBooleanExpression n, Void data) {
+    return n;
+  }
+
+  @Override
+  public Expression<?> visit(StringIntegerExpression n, Void data) {
+    return n;
+  }
+
+  @Override
+  public Expression<?> visit(StringCompoundExpression n, Void data) {
+    return n;
+  }
+
+  @Override
+  public Expression<?> visit(RegexCompoundExpression n, Void data) {
+    return n;
+  }
+
+  @Override
+  public Expression<?> visit(RegexOperatorExpression n, Void data) {
+    return n;
+  }
+
+  @Override
+  public Expression<?> visit(LetExpression let, Void data) {
+    return let;
+  }
+
+  @Override
+  public Expression<?> visit(ArrayStoreExpression a, Void data) {
+    return a;
+  }
+
+  @Override
+  public Expression<?> visit(ArraySelectExpression a, Void data) {
+    return a;
+  }
+
+  @Override
+  public Expression<?> visit(ArrayBooleanExpression a, Void data) {
+    return a;
+  }
+}
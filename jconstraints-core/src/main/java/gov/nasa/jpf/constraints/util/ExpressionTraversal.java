@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.util;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Stack-safe traversal of expressions. Unlike the {@link
+ * gov.nasa.jpf.constraints.expressions.AbstractExpressionVisitor}s, which recurse once per level,
+ * the traversals keep their own stack on the heap, so long chains such as the conjunctions built by
+ * {@link ExpressionUtil#and} do not overflow the thread stack.
+ *
+ * <p>Subclasses compute a result bottom-up: {@link #exit} receives the results of the children of
+ * an expression in the order of {@link Expression#getChildren()}. Missing ({@code null}) children
+ * are not visited and have a {@code null} result. A traversal keeps no state between calls of
+ * {@link #apply}, so an instance can be shared between threads if its callbacks can.
+ *
+ * @param <R> the result type
+ */
+public abstract class ExpressionTraversal<R> {
+
+  private static final Expression<?>[] NO_CHILDREN = new Expression<?>[0];
+
+  private static final class Frame {
+    final Expression<?> expr;
+    final Expression<?>[] children;
+    final Object[] results;
+    int next;
+
+    Frame(Expression<?> expr, Expression<?>[] children) {
+      this.expr = expr;
+      this.children = children;
+      this.results = new Object[children.length];
+    }
+  }
+
+  /**
+   * Called in pre-order, before the children of {@code e} are traversed.
+   *
+   * @return {@code false} to skip the children; {@link #exit} is then called with no child results
+   */
+  protected boolean enter(Expression<?> e) {
+    return true;
+  }
+
+  /** Called in post-order with the results of the children of {@code e}. */
+  protected abstract R exit(Expression<?> e, List<R> childResults);
+
+  public final R apply(Expression<?> root) {
+    Deque<Frame> stack = new ArrayDeque<>();
+    R result = open(root, stack);
+    while (!stack.isEmpty()) {
+      Frame top = stack.peek();
+      if (top.next < top.children.length) {
+        R r = open(top.children[top.next], stack);
+        if (stack.peek() == top) {
+          top.results[top.next++] = r;
+        }
+        continue;
+      }
+      stack.pop();
+      result = exit(top.expr, results(top));
+      Frame parent = stack.peek();
+      if (parent != null) {
+        parent.results[parent.next++] = result;
+      }
+    }
+    return result;
+  }
+
+  /** Pushes a frame for {@code e}, or returns its result directly if it has nothing to visit. */
+  private R open(Expression<?> e, Deque<Frame> stack) {
+    if (e == null) {
+      return null;
+    }
+    if (!enter(e)) {
+      return exit(e, Collections.<R>emptyList());
+    }
+    Expression<?>[] children = e.getChildren();
+    if (children.length == 0) {
+      return exit(e, Collections.<R>emptyList());
+    }
+    stack.push(new Frame(e, children));
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<R> results(Frame f) {
+    return (List<R>) Arrays.asList(f.results);
+  }
+
+  /**
+   * Visits {@code root} and its descendants in pre-order, left to right.
+   *
+   * @param visitor returns whether the children of the given expression should be visited
+   */
+  public static void preOrder(Expression<?> root, Predicate<Expression<?>> visitor) {
+    Deque<Expression<?>> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Expression<?> e = stack.pop();
+      if (visitor.test(e)) {
+        Expression<?>[] children = e.getChildren();
+        for (int i = children.length - 1; i >= 0; i--) {
+          if (children[i] != null) {
+            stack.push(children[i]);
+          }
+        }
+      }
+    }
+  }
+
+  /** Adds the conjuncts of nested conjunctions in {@code e} to {@code out}, left to right. */
+  @SuppressWarnings("unchecked")
+  public static void conjuncts(Expression<Boolean> e, Collection<? super Expression<Boolean>> out) {
+    preOrder(
+        e,
+        n -> {
+          if (n instanceof PropositionalCompound
+              && ((PropositionalCompound) n).getOperator() == LogicalOperator.AND) {
+            return true;
+          }
+          out.add((Expression<Boolean>) n);
+          return false;
+        });
+  }
+
+  /**
+   * Returns the inner nodes of the expression graph below {@code root} that are referenced more
+   * than once, children before their parents. Variables and constants are never reported. Every
+   * distinct node is visited once, so the cost is linear in the size of the graph.
+   *
+   * @param descend whether the children of the given node should be inspected
+   */
+  public static List<Expression<?>> sharedSubexpressions(
+      Expression<?> root, Predicate<Expression<?>> descend) {
+    Map<Expression<?>, int[]> references = new IdentityHashMap<>();
+    List<Expression<?>> postOrder = new ArrayList<>();
+    Deque<Frame> stack = new ArrayDeque<>();
+    stack.push(new Frame(root, descend.test(root) ? root.getChildren() : NO_CHILDREN));
+    while (!stack.isEmpty()) {
+      Frame top = stack.peek();
+      if (top.next < top.children.length) {
+        Expression<?> c = top.children[top.next++];
+        if (c == null || c instanceof Variable || c instanceof Constant) {
+          continue;
+        }
+        int[] count = references.get(c);
+        if (count != null) {
+          count[0]++;
+        } else {
+          references.put(c, new int[] {1});
+          stack.push(new Frame(c, descend.test(c) ? c.getChildren() : NO_CHILDREN));
+        }
+        continue;
+      }
+      stack.pop();
+      postOrder.add(top.expr);
+    }
+    // reference counts are only complete once the whole graph has been seen
+    List<Expression<?>> shared = new ArrayList<>();
+    for (Expression<?> e : postOrder) {
+      int[] count = references.get(e);
+      if (count != null && count[0] > 1) {
+        shared.add(e);
+      }
+    }
+    return shared;
+  }
+}
@@ -25,12 +25,19 @@ import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.ValuationEntry;
 import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorNegation;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
 import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.IfThenElse;
 import gov.nasa.jpf.constraints.expressions.LogicalOperator;
 import gov.nasa.jpf.constraints.expressions.Negation;
 import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
 import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
 import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.expressions.functions.FunctionExpression;
 import gov.nasa.jpf.constraints.simplifiers.FlatExpressionVisitor;
 import gov.nasa.jpf.constraints.simplifiers.NumericSimplificationUtil;
 import gov.nasa.jpf.constraints.simplifiers.SimplificationVisitor;
@@ -38,8 +45,11 @@ import gov.nasa.jpf.constraints.types.BuiltinTypes;
 import gov.nasa.jpf.constraints.types.Type;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -48,6 +58,20 @@ public class ExpressionUtil {
   public static final Constant<Boolean> FALSE = Constant.create(BuiltinTypes.BOOL, Boolean.FALSE);
   public static final Constant<Boolean> TRUE = Constant.create(BuiltinTypes.BOOL, Boolean.TRUE);
 
+  private static final ExpressionTraversal<Integer> FUNCTION_DEPTH =
+      new ExpressionTraversal<Integer>() {
+        @Override
+        protected Integer exit(Expression<?> e, List<Integer> childResults) {
+          int max = 0;
+          for (Integer d : childResults) {
+            if (d != null && d > max) {
+              max = d;
+            }
+          }
+          return e instanceof FunctionExpression ? max + 1 : max;
+        }
+      };
+
   public static Constant<Boolean> boolConst(boolean val) {
     return val ? TRUE : FALSE;
   }
@@ -71,7 +95,14 @@ public class ExpressionUtil {
   }
 
   public static boolean containsVars(Expression<?> e) {
-    return ContainsVarsVisitor.getInstance().apply(e);
+    boolean[] found = {false};
+    ExpressionTraversal.preOrder(
+        e,
+        n -> {
+          found[0] |= n instanceof Variable;
+          return !found[0];
+        });
+    return found[0];
   }
 
   public static <E> Expression<E> simplify(Expression<E> e) {
@@ -97,10 +128,41 @@ public class ExpressionUtil {
 
   public static Set<Variable<?>> freeVariables(Expression<?> e) {
     Set<Variable<?>> vars = new HashSet<Variable<?>>();
-    e.collectFreeVariables(vars);
+    // walk iteratively, long conjunctions would overflow the stack, and visit shared
+    // subexpressions only once
+    Set<Expression<?>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    ExpressionTraversal.preOrder(
+        e,
+        n -> {
+          if (n instanceof Variable) {
+            vars.add((Variable<?>) n);
+            return false;
+          }
+          if (!seen.add(n)) {
+            return false;
+          }
+          if (isPlainCompound(n)) {
+            return true;
+          }
+          n.collectFreeVariables(vars);
+          return false;
+        });
     return vars;
   }
 
+  /** Expressions whose free variables are exactly those of their children. */
+  private static boolean isPlainCompound(Expression<?> e) {
+    return e instanceof PropositionalCompound
+        || e instanceof Negation
+        || e instanceof NumericBooleanExpression
+        || e instanceof NumericCompound
+        || e instanceof IfThenElse
+        || e instanceof UnaryMinus
+        || e instanceof CastExpression
+        || e instanceof BitvectorExpression
+        || e instanceof BitvectorNegation;
+  }
+
   public static Valuation stripPrefix(Valuation v, String prefix) {
     Valuation ret = new Valuation();
     for (ValuationEntry<?> e : v) stripEntryPrefix(e, prefix, ret);
@@ -219,8 +281,9 @@ public class ExpressionUtil {
     return (expr == null) ? newExpr : ExpressionUtil.and(newExpr, expr);
   }
 
+  /** The maximal number of nested function applications in {@code expr}. */
   public static int nestingDepth(Expression<?> expr) {
-    return NestingDepthVisitor.getInstance().apply(expr);
+    return FUNCTION_DEPTH.apply(expr);
   }
 
   public static Valuation combineValuations(Iterable<? extends Valuation> vals) {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map with nested scopes. Modifications made after {@link #pushScope()} are recorded in an undo
+ * log and reverted by the matching {@link #popScope()}. Opening a scope is O(1), and closing one
+ * costs time proportional to the number of modifications made inside it, so incremental solver
+ * contexts do not have to copy their declarations on every push.
+ */
+public class ScopedMap<K, V> extends AbstractMap<K, V> {
+
+  private static final Object ABSENT = new Object();
+
+  private final Map<K, V> entries = new HashMap<>();
+
+  private final ArrayList<K> undoKeys = new ArrayList<>();
+  private final ArrayList<Object> undoValues = new ArrayList<>();
+
+  private int[] marks = new int[8];
+  private int depth = 0;
+
+  /**
+   * Opens a new scope.
+   *
+   * @return the nesting depth after opening the scope
+   */
+  public int pushScope() {
+    if (depth == marks.length) {
+      marks = Arrays.copyOf(marks, depth * 2);
+    }
+    marks[depth++] = undoKeys.size();
+    return depth;
+  }
+
+  /** Reverts all modifications made since the matching {@link #pushScope()}. */
+  @SuppressWarnings("unchecked")
+  public void popScope() {
+    if (depth == 0) {
+      throw new IllegalStateException("No open scope");
+    }
+    int mark = marks[--depth];
+    for (int i = undoKeys.size() - 1; i >= mark; i--) {
+      K key = undoKeys.remove(i);
+      Object prev = undoValues.remove(i);
+      if (prev == ABSENT) {
+        entries.remove(key);
+      } else {
+        entries.put(key, (V) prev);
+      }
+    }
+  }
+
+  /** @return the current nesting depth, 0 if no scope is open */
+  public int depth() {
+    return depth;
+  }
+
+  private void record(K key) {
+    if (depth > 0) {
+      undoKeys.add(key);
+      undoValues.add(entries.containsKey(key) ? entries.get(key) : ABSENT);
+    }
+  }
+
+  @Override
+  public V put(K key, V value) {
+    record(key);
+    return entries.put(key, value);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(Object key) {
+    if (!entries.containsKey(key)) {
+      return null;
+    }
+    record((K) key);
+    return entries.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    for (K key : entries.keySet()) {
+      record(key);
+    }
+    entries.clear();
+  }
+
+  @Override
+  public V get(Object key) {
+    return entries.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return entries.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return Collections.unmodifiableMap(entries).entrySet();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("evaluation")
+public class LazyValuationTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+  private static final Variable<Integer> Y = Variable.create(BuiltinTypes.SINT32, "y");
+  private static final Variable<Boolean> P = Variable.create(BuiltinTypes.BOOL, "p");
+
+  private final List<Variable<?>> reads = new ArrayList<>();
+
+  @SuppressWarnings("unchecked")
+  private LazyValuation bound() {
+    LazyValuation val = new LazyValuation();
+    val.bind(
+        Arrays.asList(X, Y, P),
+        (var, target) -> {
+          reads.add(var);
+          if (var.equals(P)) {
+            target.setValue(P, true);
+          } else {
+            target.setValue((Variable<Integer>) var, var.getName().equals("x") ? 1 : 2);
+          }
+        });
+    return val;
+  }
+
+  @Test
+  public void convertsOnFirstAccess() {
+    LazyValuation val = bound();
+    assertTrue(val.containsValueFor(Y));
+    assertEquals(3, val.getVariables().size());
+    assertTrue(reads.isEmpty());
+
+    assertEquals(1, (int) val.getValue(X));
+    assertEquals(1, (int) val.getValue(X));
+    assertEquals(Arrays.asList(X), reads);
+    assertFalse(val.isMaterialized());
+  }
+
+  @Test
+  public void materializesRemainingValues() {
+    LazyValuation val = bound();
+    val.getValue(Y);
+    val.materialize();
+    assertTrue(val.isMaterialized());
+    assertEquals(3, reads.size());
+
+    Valuation expected = new Valuation();
+    expected.setValue(X, 1);
+    expected.setValue(Y, 2);
+    expected.setValue(P, true);
+    assertEquals(expected, val.toValuation());
+  }
+
+  @Test
+  public void iterationConvertsEverything() {
+    LazyValuation val = bound();
+    assertEquals(3, val.entries().size());
+    assertTrue(val.isMaterialized());
+    assertTrue(bound().toString().contains("y:=2"));
+  }
+
+  @Test
+  public void writesReplaceModelValues() {
+    LazyValuation val = bound();
+    val.setValue(X, 7);
+    val.materialize();
+    assertEquals(7, (int) val.getValue(X));
+    assertFalse(reads.contains(X));
+
+    Valuation other = new Valuation();
+    other.setValue(Y, 9);
+    LazyValuation rebound = bound();
+    rebound.putAll(other, false);
+    assertEquals(2, (int) rebound.getValue(Y));
+    rebound.putAll(other);
+    assertEquals(9, (int) rebound.getValue(Y));
+  }
+
+  @Test
+  public void serializesAsPlainValuation() throws Exception {
+    LazyValuation val = bound();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(val);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Valuation read = (Valuation) in.readObject();
+      assertEquals(Valuation.class, read.getClass());
+      assertEquals(2, (int) read.getValue(Y));
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.exceptions.EvaluationException;
+import gov.nasa.jpf.constraints.exceptions.ModDivZeroException;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorOperator;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.IfThenElse;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("evaluation")
+public class ExpressionCompilerTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+  private static final Variable<Integer> Y = Variable.create(BuiltinTypes.SINT32, "y");
+  private static final Variable<Byte> B = Variable.create(BuiltinTypes.SINT8, "b");
+  private static final Variable<Float> F = Variable.create(BuiltinTypes.FLOAT, "f");
+  private static final Variable<BigInteger> I = Variable.create(BuiltinTypes.INTEGER, "i");
+  private static final Variable<Boolean> P = Variable.create(BuiltinTypes.BOOL, "p");
+  private static final Variable<String> S = Variable.create(BuiltinTypes.STRING, "s");
+
+  private static Expression<Boolean> sample() {
+    Expression<Integer> sum = NumericCompound.create(X, NumericOperator.PLUS, Y);
+    Expression<Integer> shifted = BitvectorExpression.create(X, BitvectorOperator.SHIFTL, Y);
+    Expression<Byte> product = NumericCompound.create(B, NumericOperator.MUL, B);
+    Expression<Float> half =
+        NumericCompound.create(F, NumericOperator.DIV, Constant.create(BuiltinTypes.FLOAT, 3f));
+    Expression<BigInteger> widened = CastExpression.create(X, BuiltinTypes.INTEGER);
+    Expression<Integer> ite = IfThenElse.create(P, UnaryMinus.create(X), Y);
+    return PropositionalCompound.create(
+        PropositionalCompound.create(
+            NumericBooleanExpression.create(sum, NumericComparator.LT, shifted),
+            LogicalOperator.XOR,
+            NumericBooleanExpression.create(
+                product, NumericComparator.GE, Constant.create(BuiltinTypes.SINT8, (byte) 0))),
+        LogicalOperator.EQUIV,
+        PropositionalCompound.create(
+            PropositionalCompound.create(
+                NumericBooleanExpression.create(
+                    half, NumericComparator.GT, Constant.create(BuiltinTypes.FLOAT, 0.1f)),
+                LogicalOperator.IMPLY,
+                NumericBooleanExpression.create(widened, NumericComparator.NE, I)),
+            LogicalOperator.OR,
+            PropositionalCompound.create(
+                Negation.create(
+                    StringBooleanExpression.createEquals(
+                        S, Constant.create(BuiltinTypes.STRING, "a"))),
+                LogicalOperator.AND,
+                NumericBooleanExpression.create(ite, NumericComparator.EQ, X))));
+  }
+
+  @Test
+  public void agreesWithEvaluate() {
+    Expression<Boolean> expr = sample();
+    CompiledPredicate compiled = ExpressionCompiler.compile(expr);
+    CompiledPredicate compiledSMT = ExpressionCompiler.compileSMT(expr);
+    EvaluationFrame frame = new EvaluationFrame(compiled.getLayout());
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      Valuation val = new Valuation();
+      val.setValue(X, random.nextInt(5) == 0 ? Integer.MAX_VALUE : random.nextInt(200) - 100);
+      val.setValue(Y, random.nextInt(70));
+      val.setValue(B, (byte) random.nextInt());
+      val.setValue(F, random.nextFloat() - 0.5f);
+      val.setValue(I, BigInteger.valueOf(random.nextInt(200) - 100));
+      val.setValue(P, random.nextBoolean());
+      val.setValue(S, random.nextBoolean() ? "a" : "b");
+      frame.load(val);
+      assertEquals(expr.evaluate(val), compiled.test(frame), val.toString());
+      assertEquals(expr.evaluateSMT(val), compiledSMT.test(val), val.toString());
+    }
+  }
+
+  @Test
+  public void narrowsFixedWidthArithmetic() {
+    Expression<Boolean> overflow =
+        NumericBooleanExpression.create(
+            NumericCompound.create(
+                X, NumericOperator.PLUS, Constant.create(BuiltinTypes.SINT32, 1)),
+            NumericComparator.LT,
+            X);
+    CompiledPredicate compiled = ExpressionCompiler.compile(overflow);
+    EvaluationFrame frame = new EvaluationFrame(compiled.getLayout());
+    frame.setValue(X, Integer.MAX_VALUE);
+    assertTrue(compiled.test(frame));
+    frame.setValue(X, 0);
+    assertFalse(compiled.test(frame));
+  }
+
+  @Test
+  public void testingDoesNotGrowTheLayout() {
+    Expression<Boolean> expr = NumericBooleanExpression.create(X, NumericComparator.LT, Y);
+    CompiledPredicate compiled = ExpressionCompiler.compile(expr);
+    int size = compiled.getLayout().size();
+    Valuation val = new Valuation();
+    val.setValue(X, 1);
+    val.setValue(Y, 2);
+    val.setValue(S, "unused");
+    assertTrue(compiled.test(val));
+    assertEquals(size, compiled.getLayout().size());
+  }
+
+  @Test
+  public void divisionByZeroFollowsEvaluationMode() {
+    Expression<Boolean> expr =
+        NumericBooleanExpression.create(
+            NumericCompound.create(
+                I, NumericOperator.DIV, Constant.create(BuiltinTypes.INTEGER, BigInteger.ZERO)),
+            NumericComparator.GT,
+            I);
+    Valuation val = new Valuation();
+    val.setValue(I, BigInteger.ONE);
+    assertThrows(ModDivZeroException.class, () -> ExpressionCompiler.compile(expr).test(val));
+    assertTrue(ExpressionCompiler.compileSMT(expr).test(val));
+  }
+
+  @Test
+  public void missingValuesAreReported() {
+    CompiledPredicate compiled =
+        ExpressionCompiler.compile(NumericBooleanExpression.create(X, NumericComparator.EQ, Y));
+    EvaluationFrame frame = new EvaluationFrame(compiled.getLayout());
+    frame.setValue(X, 1);
+    assertThrows(EvaluationException.class, () -> compiled.test(frame));
+  }
+}
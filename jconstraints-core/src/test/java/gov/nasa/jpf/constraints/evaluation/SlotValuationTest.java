@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.evaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.exceptions.EvaluationException;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.math.BigInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("evaluation")
+public class SlotValuationTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+  private static final Variable<Character> C = Variable.create(BuiltinTypes.UINT16, "c");
+  private static final Variable<Float> F = Variable.create(BuiltinTypes.FLOAT, "f");
+  private static final Variable<Boolean> P = Variable.create(BuiltinTypes.BOOL, "p");
+  private static final Variable<BigInteger> I = Variable.create(BuiltinTypes.INTEGER, "i");
+
+  @Test
+  public void storesValuesWithTheirTypes() {
+    SlotValuation val = new SlotValuation();
+    val.setValue(X, -3);
+    val.setValue(C, 'z');
+    val.setValue(F, 1.5f);
+    val.setValue(P, true);
+    val.setValue(I, BigInteger.TEN);
+    assertEquals(Integer.valueOf(-3), val.getValue(X));
+    assertEquals(Character.valueOf('z'), val.getValue(C));
+    assertEquals(Float.valueOf(1.5f), val.getValue(F));
+    assertEquals(Boolean.TRUE, val.getValue(P));
+    assertEquals(BigInteger.TEN, val.getValue(I));
+    assertEquals(-3L, val.getLong(X));
+    assertEquals(1.5, val.getDouble(F));
+    assertEquals(5, val.getVariables().size());
+    assertEquals("x:=-3,c:=z,f:=1.5,p:=true,i:=10", val.toString());
+  }
+
+  @Test
+  public void agreesWithPlainValuation() {
+    Valuation plain = new Valuation();
+    plain.setValue(X, 7);
+    plain.setValue(I, BigInteger.ONE);
+    SlotValuation slots = SlotValuation.of(new VariableLayout(), plain);
+    assertTrue(slots.containsValueFor(X));
+    assertFalse(slots.containsValueFor(F));
+    assertEquals(plain, slots.toValuation());
+    Valuation copy = new Valuation();
+    copy.putAll(slots);
+    assertEquals(plain, copy);
+    assertThrows(EvaluationException.class, () -> slots.getValue(F));
+  }
+
+  @Test
+  public void snapshotsAreIndependent() {
+    SlotValuation val = new SlotValuation();
+    val.setLong(X, 1);
+    SlotValuation snapshot = val.snapshot();
+    assertEquals(val, snapshot);
+    val.setLong(X, 2);
+    snapshot.setBoolean(P, false);
+    assertEquals(2L, val.getLong(X));
+    assertEquals(1L, snapshot.getLong(X));
+    assertFalse(val.containsValueFor(P));
+    assertNotEquals(val, snapshot);
+  }
+
+  @Test
+  public void typedSettersCheckStorage() {
+    SlotValuation val = new SlotValuation();
+    assertThrows(IllegalArgumentException.class, () -> val.setLong(F, 1));
+    assertEquals(0, val.getLayout().size());
+  }
+
+  @Test
+  public void typedGettersDoNotRegisterVariables() {
+    SlotValuation val = new SlotValuation();
+    assertThrows(EvaluationException.class, () -> val.getLong(X));
+    assertThrows(EvaluationException.class, () -> val.getDouble(F));
+    assertThrows(EvaluationException.class, () -> val.getBoolean(P));
+    assertEquals(0, val.getLayout().size());
+  }
+
+  @Test
+  public void compiledPredicatesReadTheFrame() {
+    CompiledPredicate compiled =
+        ExpressionCompiler.compile(NumericBooleanExpression.create(X, NumericComparator.GT, X));
+    SlotValuation val = new SlotValuation(compiled.getLayout());
+    val.setLong(X, 4);
+    assertFalse(compiled.test(val));
+  }
+}
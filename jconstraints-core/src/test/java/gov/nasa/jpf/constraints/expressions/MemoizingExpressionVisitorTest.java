@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.math.BigInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("expressions")
+public class MemoizingExpressionVisitorTest {
+
+  /** Counts the tree size of an expression while recording how many nodes it computed. */
+  private static class SizeVisitor extends MemoizingExpressionVisitor<BigInteger, Void> {
+    int computed = 0;
+
+    BigInteger size(Expression<?> e) {
+      resetMemo();
+      return visit(e, null);
+    }
+
+    @Override
+    protected <E> BigInteger defaultVisit(Expression<E> expression, Void data) {
+      computed++;
+      BigInteger size = BigInteger.ONE;
+      for (Expression<?> c : expression.getChildren()) {
+        size = size.add(visit(c, data));
+      }
+      return size;
+    }
+  }
+
+  private static Expression<BigInteger> doubling(int levels) {
+    Expression<BigInteger> e = Variable.create(BuiltinTypes.INTEGER, "x");
+    for (int i = 0; i < levels; i++) {
+      e = NumericCompound.create(e, NumericOperator.PLUS, e);
+    }
+    return e;
+  }
+
+  @Test
+  public void sharedNodesAreVisitedOnce() {
+    SizeVisitor v = new SizeVisitor();
+    BigInteger size = v.size(doubling(100));
+    assertEquals(BigInteger.ONE.shiftLeft(101).subtract(BigInteger.ONE), size);
+    // one inner node per level, plus both uses of the unmemoized variable at the bottom
+    assertEquals(100 + 2, v.computed);
+  }
+
+  @Test
+  public void freeVariablesOfSharedGraphs() {
+    Expression<Boolean> e =
+        NumericBooleanExpression.create(
+            doubling(100),
+            NumericComparator.GT,
+            Constant.create(BuiltinTypes.INTEGER, BigInteger.ZERO));
+    assertEquals(1, ExpressionUtil.freeVariables(e).size());
+  }
+}
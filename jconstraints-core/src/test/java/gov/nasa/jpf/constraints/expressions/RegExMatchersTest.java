@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("expressions")
+public class RegExMatchersTest {
+
+  private static final Variable<String> X = Variable.create(BuiltinTypes.STRING, "x");
+
+  private static boolean smtMatches(AbstractRegExExpression regex, String input) {
+    Valuation val = new Valuation();
+    val.setValue(X, input);
+    return RegExBooleanExpression.create(X, regex).evaluateSMT(val);
+  }
+
+  @Test
+  public void patternsAreCached() {
+    assertSame(RegExMatchers.pattern("a(b|c)*"), RegExMatchers.pattern("a(b|c)*"));
+    assertTrue(RegExMatchers.matches("abcb", "a(b|c)*"));
+    assertFalse(RegExMatchers.matches("abd", "a(b|c)*"));
+  }
+
+  @Test
+  public void automatonMatchesDateRegex() {
+    RegexOperatorExpression digits =
+        RegexOperatorExpression.createLoop(RegexOperatorExpression.createRange('0', '9'), 2);
+    AbstractRegExExpression date =
+        RegexCompoundExpression.createConcat(
+            digits, RegexOperatorExpression.createStrToRe("-"), digits);
+    assertNotNull(RegExMatchers.compile(date));
+    assertTrue(smtMatches(date, "12-17"));
+    assertFalse(smtMatches(date, "12-1"));
+    assertFalse(smtMatches(date, "1a-17"));
+  }
+
+  @Test
+  public void automatonFollowsSmtSemantics() {
+    AbstractRegExExpression ab = RegexOperatorExpression.createStrToRe("ab");
+    assertFalse(smtMatches(RegexOperatorExpression.createNoChar(), ""));
+    assertTrue(smtMatches(RegexOperatorExpression.createComplement(ab), "ba"));
+    assertFalse(smtMatches(RegexOperatorExpression.createComplement(ab), "ab"));
+    AbstractRegExExpression inter =
+        RegexCompoundExpression.createIntersection(
+            RegexOperatorExpression.createKleeneStar(RegexOperatorExpression.createAllChar()), ab);
+    assertTrue(smtMatches(inter, "ab"));
+    assertFalse(smtMatches(inter, "abab"));
+  }
+
+  @Test
+  public void variablesPreventCompilation() {
+    assertNull(RegExMatchers.compile(RegexOperatorExpression.createStrToRe(X)));
+  }
+}
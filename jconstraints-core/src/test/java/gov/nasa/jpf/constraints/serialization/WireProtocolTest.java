@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.RegExBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.RegexOperatorExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerExpression;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireFormat;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireReader;
+import gov.nasa.jpf.constraints.solvers.encapsulation.protocol.WireWriter;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("serialization")
+public class WireProtocolTest {
+
+  private final Variable<BigInteger> x = Variable.create(BuiltinTypes.INTEGER, "x");
+  private final Variable<String> s = Variable.create(BuiltinTypes.STRING, "s");
+
+  private Expression<Boolean> numeric() {
+    return NumericBooleanExpression.create(
+        NumericCompound.create(
+            x, NumericOperator.MUL, Constant.create(BuiltinTypes.INTEGER, BigInteger.TEN)),
+        NumericComparator.GE,
+        x);
+  }
+
+  private Expression<Boolean> strings() {
+    Expression<Boolean> len =
+        NumericBooleanExpression.create(
+            StringIntegerExpression.createLength(
+                StringCompoundExpression.createConcat(
+                    s, Constant.create(BuiltinTypes.STRING, "a"))),
+            NumericComparator.GT,
+            Constant.create(BuiltinTypes.INTEGER, BigInteger.valueOf(3)));
+    Expression<Boolean> regex =
+        RegExBooleanExpression.create(
+            s,
+            RegexOperatorExpression.createKleeneStar(
+                RegexOperatorExpression.createStrToRe("ab")));
+    return ExpressionUtil.and(len, regex, StringBooleanExpression.createPrefixOf(s, s));
+  }
+
+  @Test
+  public void expressionRoundTrip() throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    WireWriter writer = new WireWriter(bos);
+    writer.beginMessage(WireFormat.MSG_SOLVE);
+    writer.writeExpression(numeric());
+    writer.endMessage();
+    writer.beginMessage(WireFormat.MSG_SOLVE);
+    writer.writeExpression(strings());
+    writer.endMessage();
+    writer.writeMessage(WireFormat.MSG_STOP);
+
+    WireReader reader = new WireReader(new ByteArrayInputStream(bos.toByteArray()));
+    assertEquals(WireFormat.MSG_SOLVE, reader.nextMessage());
+    assertEquals(numeric(), reader.readExpression());
+    assertEquals(WireFormat.MSG_SOLVE, reader.nextMessage());
+    assertEquals(strings().toString(), reader.readExpression().toString());
+    assertEquals(WireFormat.MSG_STOP, reader.nextMessage());
+  }
+
+  @Test
+  public void variablesAreSentOnce() throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    WireWriter writer = new WireWriter(bos);
+    writer.beginMessage(WireFormat.MSG_SOLVE);
+    writer.writeExpression(numeric());
+    writer.endMessage();
+    int first = bos.size();
+    writer.beginMessage(WireFormat.MSG_SOLVE);
+    writer.writeExpression(numeric());
+    writer.endMessage();
+    assertTrue(bos.size() - first < first);
+  }
+
+  @Test
+  public void resultAndValuationRoundTrip() throws IOException {
+    Valuation val = new Valuation();
+    val.setValue(x, BigInteger.valueOf(-42));
+    val.setValue(s, "hällo");
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    WireWriter writer = new WireWriter(bos);
+    writer.beginMessage(WireFormat.MSG_RESULT);
+    writer.writeResult(Result.SAT);
+    writer.writeValuation(val);
+    writer.endMessage();
+
+    WireReader reader = new WireReader(new ByteArrayInputStream(bos.toByteArray()));
+    assertEquals(WireFormat.MSG_RESULT, reader.nextMessage());
+    assertEquals(Result.SAT, reader.readResult());
+    assertEquals(val, reader.readValuation());
+  }
+
+  @Test
+  public void rejectsForeignStreams() {
+    assertThrows(
+        StreamCorruptedException.class,
+        () -> new WireReader(new ByteArrayInputStream(new byte[] {0, 1, 2, 3, 4, 5})));
+  }
+}
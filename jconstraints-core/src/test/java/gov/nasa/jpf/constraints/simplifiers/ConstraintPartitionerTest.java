@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.simplifiers;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.functions.Function;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("simplifiers")
+public class ConstraintPartitionerTest {
+  Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+  Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+  Variable<Integer> z = Variable.create(BuiltinTypes.SINT32, "z");
+  Variable<Integer> w = Variable.create(BuiltinTypes.SINT32, "w");
+
+  Constant<Integer> c = Constant.create(BuiltinTypes.SINT32, 5);
+
+  Expression<Boolean> xy = NumericBooleanExpression.create(x, NumericComparator.LT, y);
+  Expression<Boolean> yz = NumericBooleanExpression.create(y, NumericComparator.LT, z);
+  Expression<Boolean> w5 = NumericBooleanExpression.create(w, NumericComparator.GT, c);
+  Expression<Boolean> x5 = NumericBooleanExpression.create(x, NumericComparator.GT, c);
+  Expression<Boolean> ground = NumericBooleanExpression.create(c, NumericComparator.GT, c);
+
+  @Test
+  public void transitivelyConnectedConstraintsShareACluster() {
+    List<List<Expression<Boolean>>> clusters =
+        ConstraintPartitioner.partition(asList(xy, w5, yz, ground, x5));
+    assertEquals(3, clusters.size());
+    assertEquals(asList(xy, yz, x5), clusters.get(0));
+    assertEquals(Collections.singletonList(w5), clusters.get(1));
+    assertEquals(Collections.singletonList(ground), clusters.get(2));
+  }
+
+  @Test
+  public void applicationsOfTheSameFunctionShareACluster() {
+    Function<Integer> f = new Function<>("f", BuiltinTypes.SINT32, BuiltinTypes.SINT32);
+    Constant<Integer> zero = Constant.create(BuiltinTypes.SINT32, 0);
+    Constant<Integer> one = Constant.create(BuiltinTypes.SINT32, 1);
+    Constant<Integer> two = Constant.create(BuiltinTypes.SINT32, 2);
+
+    Expression<Boolean> fx1 =
+        NumericBooleanExpression.create(f.toExpression(x), NumericComparator.EQ, one);
+    Expression<Boolean> x0 = NumericBooleanExpression.create(x, NumericComparator.EQ, zero);
+    Expression<Boolean> fy2 =
+        NumericBooleanExpression.create(f.toExpression(y), NumericComparator.EQ, two);
+    Expression<Boolean> y0 = NumericBooleanExpression.create(y, NumericComparator.EQ, zero);
+    assertEquals(
+        Collections.singletonList(asList(fx1, x0, fy2, y0)),
+        ConstraintPartitioner.partition(asList(fx1, x0, fy2, y0)));
+
+    Expression<Boolean> f01 =
+        NumericBooleanExpression.create(f.toExpression(zero), NumericComparator.EQ, one);
+    Expression<Boolean> f02 =
+        NumericBooleanExpression.create(f.toExpression(zero), NumericComparator.EQ, two);
+    assertEquals(
+        Collections.singletonList(asList(f01, f02)),
+        ConstraintPartitioner.partition(asList(f01, f02)));
+  }
+
+  @Test
+  public void nestedConjunctionsAreFlattened() {
+    List<Expression<Boolean>> conjuncts =
+        ConstraintPartitioner.conjuncts(
+            asList(ExpressionUtil.and(xy, ExpressionUtil.and(yz, w5)), xy));
+    assertEquals(asList(xy, yz, w5), conjuncts);
+  }
+}
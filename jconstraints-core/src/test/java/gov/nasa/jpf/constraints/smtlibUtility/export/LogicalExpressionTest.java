@@ -28,6 +28,7 @@ import static gov.nasa.jpf.constraints.util.CharsetIO.toNormalizedStringUTF8;
 import static gov.nasa.jpf.constraints.util.CharsetIO.wrapInUTF8PrintStream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.expressions.IfThenElse;
@@ -70,6 +71,25 @@ public class LogicalExpressionTest {
     assertEquals(toNormalizedStringUTF8(baos), expected);
   }
 
+  @Test
+  public void deepConjunctionTest() {
+    int depth = 100_000;
+    Expression<Boolean> expr = var1;
+    StringBuilder expected = new StringBuilder("(declare-const x Bool)\n(declare-const y Bool)\n");
+    expected.append("(assert ");
+    for (int i = 0; i < depth; i++) {
+      expr = PropositionalCompound.create(expr, AND, var2);
+      expected.append("(and ");
+    }
+    expected.append('x');
+    for (int i = 0; i < depth; i++) {
+      expected.append(" y)");
+    }
+    expected.append(")\n");
+    se.add(expr);
+    assertEquals(expected.toString(), toNormalizedStringUTF8(baos));
+  }
+
   @Test
   public void PropositionalCompoundOrTest() {
     String expected =
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.smtlibUtility.solver.SMTLibExportWrapper;
+import gov.nasa.jpf.constraints.solvers.dontknow.DontKnowSolver;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("smt-export")
+public class ScopedDeclarationTest {
+
+  @Test
+  public void declarationsArePoppedWithTheirScope() {
+    Variable<Boolean> x = Variable.create(BuiltinTypes.BOOL, "x");
+    Variable<Boolean> y = Variable.create(BuiltinTypes.BOOL, "y");
+    StringWriter out = new StringWriter();
+    SolverContext se = new SMTLibExportWrapper(new DontKnowSolver(), out).createContext();
+
+    se.add(x);
+    se.push();
+    se.add(y);
+    se.add(x);
+    se.pop();
+    se.add(y);
+    se.isSatisfiable();
+
+    String expected =
+        "(declare-const x Bool)\n"
+            + "(assert x)\n"
+            + "(push)\n"
+            + "(declare-const y Bool)\n"
+            + "(assert y)\n"
+            + "(assert x)\n"
+            + "(pop)\n"
+            + "(declare-const y Bool)\n"
+            + "(assert y)\n"
+            + "(check-sat)\n";
+    assertEquals(expected, out.toString());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.Quantifier;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.smtlibUtility.solver.SMTLibExportWrapper;
+import gov.nasa.jpf.constraints.solvers.dontknow.DontKnowSolver;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Collections;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("smt-export")
+public class SharedSubexpressionTest {
+
+  private final Variable<BigInteger> x = Variable.create(BuiltinTypes.INTEGER, "x");
+  private final Variable<BigInteger> y = Variable.create(BuiltinTypes.INTEGER, "y");
+
+  private static Constant<BigInteger> num(int i) {
+    return Constant.create(BuiltinTypes.INTEGER, BigInteger.valueOf(i));
+  }
+
+  private static String export(Expression<Boolean> e) {
+    StringWriter out = new StringWriter();
+    SolverContext se = new SMTLibExportWrapper(new DontKnowSolver(), out).createContext();
+    se.add(e);
+    return out.toString();
+  }
+
+  @Test
+  public void sharedSubexpressionsAreLetBound() {
+    Expression<BigInteger> sum = NumericCompound.create(x, NumericOperator.PLUS, y);
+    Expression<Boolean> e =
+        PropositionalCompound.create(
+            NumericBooleanExpression.create(sum, NumericComparator.GT, num(0)),
+            LogicalOperator.AND,
+            NumericBooleanExpression.create(sum, NumericComparator.LT, num(10)));
+
+    String expected =
+        "(declare-const x Int)\n"
+            + "(declare-const y Int)\n"
+            + "(assert (let ( (_jc_shared_0 (+ x y)))"
+            + " (and (> _jc_shared_0 0) (< _jc_shared_0 10))))\n";
+    assertEquals(expected, export(e));
+  }
+
+  @Test
+  public void exportIsLinearInTheGraphSize() {
+    Expression<BigInteger> e = x;
+    for (int i = 0; i < 64; i++) {
+      e = NumericCompound.create(e, NumericOperator.PLUS, e);
+    }
+    String out = export(NumericBooleanExpression.create(e, NumericComparator.GT, num(0)));
+    assertTrue(out.length() < 64 * 64, out);
+    assertTrue(out.contains("(_jc_shared_62 (+ _jc_shared_61 _jc_shared_61))"), out);
+  }
+
+  @Test
+  public void namesAreNotSubstitutedBelowBinders() {
+    Expression<BigInteger> sum = NumericCompound.create(x, NumericOperator.PLUS, y);
+    Expression<Boolean> positive =
+        NumericBooleanExpression.create(sum, NumericComparator.GT, num(0));
+    Expression<Boolean> e =
+        PropositionalCompound.create(
+            positive,
+            LogicalOperator.AND,
+            QuantifierExpression.create(
+                Quantifier.FORALL,
+                Collections.singletonList(x),
+                NumericBooleanExpression.create(sum, NumericComparator.LT, num(10))));
+    String expected =
+        "(declare-const x Int)\n"
+            + "(declare-const y Int)\n"
+            + "(assert (and (> (+ x y) 0) (forall (x Int) (< (+ x y) 10))))\n";
+    assertEquals(expected, export(e));
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class CommentStrippingReaderTest {
+
+  private static String strip(String input, int chunk) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    try (Reader r = new CommentStrippingReader(new StringReader(input))) {
+      char[] buf = new char[chunk];
+      int n;
+      while ((n = r.read(buf, 0, chunk)) >= 0) {
+        sb.append(buf, 0, n);
+      }
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void commentsAreRemovedAndLineBreaksKept() throws IOException {
+    String input = "; header\n(declare-fun x () Int) ; trailing\n(assert (> x 0));\n(check-sat)";
+    String expected = "\n(declare-fun x () Int) \n(assert (> x 0))\n(check-sat)";
+    assertEquals(expected, strip(input, 1));
+    assertEquals(expected, strip(input, 7));
+    assertEquals(expected, strip(input, 4096));
+  }
+
+  @Test
+  public void semicolonsInStringsAndQuotedSymbolsAreKept() throws IOException {
+    String input = "(assert (= |a;b| \"x;\"\"y\")) ; c\n";
+    assertEquals("(assert (= |a;b| \"x;\"\"y\")) \n", strip(input, 3));
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.smtlibUtility.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class CachingSolverTest {
+
+  /** Answers SAT and assigns 7 to every free variable; the context does not backtrack. */
+  private static class CountingSolver extends ConstraintSolver {
+    int calls;
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      calls++;
+      if (result != null) {
+        for (Variable<?> v : ExpressionUtil.freeVariables(f)) {
+          result.setCastedValue(v, 7);
+        }
+      }
+      return Result.SAT;
+    }
+
+    @Override
+    public SolverContext createContext() {
+      return new SolverContext() {
+        private Expression<Boolean> current = ExpressionUtil.TRUE;
+
+        @Override
+        public void push() {}
+
+        @Override
+        public void pop(int n) {}
+
+        @Override
+        public Result solve(Valuation val) {
+          return CountingSolver.this.solve(current, val);
+        }
+
+        @Override
+        public void add(List<Expression<Boolean>> expressions) {
+          current = ExpressionUtil.and(current, ExpressionUtil.and(expressions));
+        }
+
+        @Override
+        public void dispose() {}
+      };
+    }
+  }
+
+  private static Expression<Boolean> gt(Variable<Integer> v, int c) {
+    return new NumericBooleanExpression(
+        v, NumericComparator.GT, Constant.create(BuiltinTypes.SINT32, c));
+  }
+
+  @Test
+  public void renamedAndReorderedQueriesHitTheCache() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+    Variable<Integer> a = Variable.create(BuiltinTypes.SINT32, "a");
+    Variable<Integer> b = Variable.create(BuiltinTypes.SINT32, "b");
+    CountingSolver back = new CountingSolver();
+    CachingSolver solver = new CachingSolver(back, new QueryCache(10));
+
+    Valuation first = new Valuation();
+    assertEquals(
+        ConstraintSolver.Result.SAT, solver.solve(ExpressionUtil.and(gt(x, 1), gt(y, 2)), first));
+    Valuation second = new Valuation();
+    assertEquals(
+        ConstraintSolver.Result.SAT, solver.solve(ExpressionUtil.and(gt(b, 2), gt(a, 1)), second));
+
+    assertEquals(1, back.calls);
+    assertEquals(1, solver.getCache().getHits());
+    assertEquals(7, second.getValue(a));
+    assertEquals(7, second.getValue(b));
+  }
+
+  @Test
+  public void differentConstantsMiss() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    CountingSolver back = new CountingSolver();
+    CachingSolver solver = new CachingSolver(back, new QueryCache(10));
+
+    solver.solve(gt(x, 1), new Valuation());
+    solver.solve(gt(x, 2), new Valuation());
+    assertEquals(2, back.calls);
+    assertNotEquals(
+        CanonicalQuery.of(Collections.singletonList(gt(x, 1))).getKey(),
+        CanonicalQuery.of(Collections.singletonList(gt(x, 2))).getKey());
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    CountingSolver back = new CountingSolver();
+    CachingSolver solver = new CachingSolver(back, new QueryCache(2));
+
+    solver.solve(gt(x, 1), new Valuation());
+    solver.solve(gt(x, 2), new Valuation());
+    solver.solve(gt(x, 1), new Valuation());
+    solver.solve(gt(x, 3), new Valuation());
+    assertEquals(3, back.calls);
+    solver.solve(gt(x, 1), new Valuation());
+    assertEquals(3, back.calls);
+    solver.solve(gt(x, 2), new Valuation());
+    assertEquals(4, back.calls);
+  }
+
+  @Test
+  public void contextKeysOnAssertionStack() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    CountingSolver back = new CountingSolver();
+    CachingSolver solver = new CachingSolver(back, new QueryCache(10));
+    solver.solve(gt(x, 1), new Valuation());
+
+    SolverContext ctx = solver.createContext();
+    ctx.push();
+    ctx.add(gt(x, 1));
+    Valuation val = new Valuation();
+    assertEquals(ConstraintSolver.Result.SAT, ctx.solve(val));
+    assertEquals(1, back.calls);
+    assertEquals(7, val.getValue(x));
+    ctx.pop();
+  }
+
+  @Test
+  public void cacheSurvivesSaveAndLoad() throws Exception {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    QueryCache cache = new QueryCache(10);
+    new CachingSolver(new CountingSolver(), cache).solve(gt(x, 1), new Valuation());
+
+    Path file = Files.createTempFile("query-cache", ".bin");
+    try {
+      cache.save(file);
+      QueryCache loaded = new QueryCache(10);
+      loaded.load(file);
+      assertEquals(1, loaded.size());
+      QueryCache.Entry e =
+          loaded.get(CanonicalQuery.of(Collections.singletonList(gt(x, 1))).getKey());
+      assertNotNull(e);
+      assertEquals(ConstraintSolver.Result.SAT, e.getResult());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.solvers.CrossCheckReport.ModelStatus;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class CrossCheckTest {
+
+  private final Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+
+  private final Expression<Boolean> query =
+      NumericBooleanExpression.create(
+          x, NumericComparator.GT, Constant.create(BuiltinTypes.SINT32, 5));
+
+  /** Answers {@code result} after {@code delay} ms, assigning {@code value} to x. */
+  private class StubSolver extends ConstraintSolver {
+    private final String name;
+    private final Result result;
+    private final int value;
+    private final long delay;
+
+    StubSolver(String name, Result result, int value, long delay) {
+      this.name = name;
+      this.result = result;
+      this.value = value;
+      this.delay = delay;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation val) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        return Result.DONT_KNOW;
+      }
+      val.setValue(x, value);
+      return result;
+    }
+  }
+
+  private SolvingService service(ConstraintSolver... solvers) {
+    Set<ConstraintSolver> set = new LinkedHashSet<>();
+    for (ConstraintSolver s : solvers) {
+      set.add(s);
+    }
+    return new SolvingService(set);
+  }
+
+  @Test
+  public void agreeingSolversAreConsistent() {
+    CrossCheckReport report =
+        service(new StubSolver("a", Result.SAT, 6, 0), new StubSolver("b", Result.SAT, 10, 0))
+            .crossCheck(query, 10, TimeUnit.SECONDS);
+    assertFalse(report.hasMismatch());
+    assertEquals(Result.SAT, report.getConsensus());
+    for (CrossCheckReport.Entry e : report.getEntries()) {
+      assertEquals(ModelStatus.VALID, e.getModelStatus());
+    }
+  }
+
+  @Test
+  public void mismatchesAndInvalidModelsAreReported() {
+    CrossCheckReport report =
+        service(
+                new StubSolver("good", Result.SAT, 6, 0),
+                new StubSolver("badModel", Result.SAT, 0, 0),
+                new StubSolver("unsat", Result.UNSAT, 0, 0))
+            .crossCheck(query, 10, TimeUnit.SECONDS);
+    assertEquals(3, report.getEntries().size());
+    assertTrue(report.hasResultMismatch());
+    assertEquals(1, report.getInvalidModels().size());
+    assertEquals("badModel", report.getInvalidModels().get(0).getSolver());
+    assertEquals(Result.DONT_KNOW, report.getConsensus());
+  }
+
+  @Test
+  public void slowSolverTimesOut() {
+    CrossCheckReport report =
+        service(
+                new StubSolver("fast", Result.SAT, 6, 0),
+                new StubSolver("slow", Result.SAT, 6, 60000))
+            .crossCheck(query, 200, TimeUnit.MILLISECONDS);
+    CrossCheckReport.Entry slow = report.getEntries().get(1);
+    assertTrue(slow.isTimedOut());
+    assertEquals(Result.DONT_KNOW, slow.getResult());
+    assertEquals(Result.SAT, report.getConsensus());
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.SolverListeners;
+import gov.nasa.jpf.constraints.api.SolverPhase;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class SolverMetricsTest {
+
+  /** Reports its phases the way the native bindings do, answering SAT to every query. */
+  private static class ReportingContext extends SolverContext {
+    private int depth = 0;
+
+    @Override
+    public void push() {
+      listeners().pushed(++depth);
+    }
+
+    @Override
+    public void pop(int n) {
+      depth -= n;
+      listeners().popped(n, depth);
+    }
+
+    @Override
+    public Result solve(Valuation val) {
+      long start = listeners().start();
+      listeners().phaseFinished(SolverPhase.CHECK, start);
+      if (val != null) {
+        long modelStart = listeners().start();
+        listeners().phaseFinished(SolverPhase.MODEL_PARSING, modelStart);
+      }
+      listeners().queryFinished(Result.SAT, start);
+      return Result.SAT;
+    }
+
+    @Override
+    public void add(List<Expression<Boolean>> expressions) {
+      long start = listeners().start();
+      listeners().phaseFinished(SolverPhase.TRANSLATION, start);
+    }
+
+    @Override
+    public void dispose() {}
+  }
+
+  private static class ReportingSolver extends ConstraintSolver {
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      return Result.SAT;
+    }
+
+    @Override
+    public SolverContext createContext() {
+      return instrument(new ReportingContext());
+    }
+  }
+
+  @Test
+  public void countsPhasesAndStackOperations() {
+    SolverMetrics metrics = new SolverMetrics();
+    SolverContext ctx = new ReportingSolver().createContext();
+    ctx.addListener(metrics);
+
+    ctx.push();
+    ctx.push();
+    ctx.add(ExpressionUtil.TRUE);
+    ctx.solve(new Valuation());
+    ctx.pop(2);
+    ctx.push();
+    ctx.isSatisfiable();
+
+    assertEquals(3, metrics.getPushes());
+    assertEquals(2, metrics.getPops());
+    assertEquals(2, metrics.getMaxDepth());
+    assertEquals(1, metrics.getDepth());
+    assertEquals(2, metrics.getQueries());
+    assertEquals(2, metrics.getQueries(Result.SAT));
+    assertEquals(1, metrics.getCount(SolverPhase.TRANSLATION));
+    assertEquals(2, metrics.getCount(SolverPhase.CHECK));
+    assertEquals(1, metrics.getCount(SolverPhase.MODEL_PARSING));
+    assertEquals(0, metrics.getCount(SolverPhase.MODEL_VALIDATION));
+
+    metrics.reset();
+    assertEquals(0, metrics.getQueries());
+    assertEquals(0, metrics.getPushes());
+  }
+
+  @Test
+  public void contextsReportToListenersOfTheirSolver() {
+    SolverMetrics solverMetrics = new SolverMetrics();
+    ConstraintSolver solver = new ReportingSolver();
+    solver.addListener(solverMetrics);
+    SolverContext ctx = solver.createContext();
+    SolverMetrics contextMetrics = new SolverMetrics();
+    ctx.addListener(contextMetrics);
+
+    ctx.isSatisfiable();
+    assertEquals(1, solverMetrics.getQueries());
+    assertEquals(1, contextMetrics.getQueries());
+
+    solver.removeListener(solverMetrics);
+    ctx.isSatisfiable();
+    assertEquals(1, solverMetrics.getQueries());
+    assertEquals(2, contextMetrics.getQueries());
+  }
+
+  @Test
+  public void nothingIsTimedWithoutListeners() {
+    SolverListeners listeners = new SolverListeners();
+    assertEquals(SolverListeners.NOT_TIMED, listeners.start());
+    SolverMetrics metrics = new SolverMetrics();
+    listeners.add(metrics);
+    assertNotEquals(SolverListeners.NOT_TIMED, listeners.start());
+    listeners.remove(metrics);
+    assertEquals(SolverListeners.NOT_TIMED, listeners.start());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Solver for tests of the process wrapper. Decides queries over a few {@code int} variables by
+ * trying all values from -4 to 4. A variable named {@code crash} kills the solver process, one
+ * named {@code hang} blocks the solver until it is interrupted. Models also contain the name of
+ * the solving JVM in {@link #WORKER}.
+ */
+public class EnumeratingSolver extends ConstraintSolver {
+
+  public static final String NAME = "enumerating";
+
+  public static final Variable<String> WORKER = Variable.create(BuiltinTypes.STRING, "worker");
+
+  public static class Provider implements ConstraintSolverProvider {
+
+    @Override
+    public String[] getNames() {
+      return new String[] {NAME};
+    }
+
+    @Override
+    public ConstraintSolver createSolver(Properties config) {
+      return new EnumeratingSolver();
+    }
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    List<Variable<?>> vars = new ArrayList<>();
+    for (Variable<?> v : ExpressionUtil.freeVariables(f)) {
+      if (v.getName().equals("crash")) {
+        Runtime.getRuntime().halt(3);
+      }
+      if (v.getName().equals("hang")) {
+        try {
+          Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+          return Result.DONT_KNOW;
+        }
+      }
+      vars.add(v);
+    }
+    Valuation val = new Valuation();
+    if (!enumerate(f, vars, 0, val)) {
+      return Result.UNSAT;
+    }
+    result.putAll(val);
+    result.setValue(WORKER, ManagementFactory.getRuntimeMXBean().getName());
+    return Result.SAT;
+  }
+
+  private static boolean enumerate(
+      Expression<Boolean> f, List<Variable<?>> vars, int next, Valuation val) {
+    if (next == vars.size()) {
+      return f.evaluate(val);
+    }
+    for (int i = -4; i <= 4; i++) {
+      val.setCastedValue(vars.get(next), i);
+      if (enumerate(f, vars, next + 1, val)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public SolverContext createContext() {
+    return new SolverContext() {
+      private final Deque<List<Expression<Boolean>>> stack = new ArrayDeque<>();
+
+      {
+        stack.push(new ArrayList<>());
+      }
+
+      @Override
+      public void push() {
+        stack.push(new ArrayList<>());
+      }
+
+      @Override
+      public void pop(int n) {
+        for (int i = 0; i < n; i++) {
+          stack.pop();
+        }
+      }
+
+      @Override
+      public Result solve(Valuation val) {
+        List<Expression<Boolean>> all = new ArrayList<>();
+        for (List<Expression<Boolean>> level : stack) {
+          all.addAll(level);
+        }
+        return EnumeratingSolver.this.solve(ExpressionUtil.and(all), val);
+      }
+
+      @Override
+      public void add(List<Expression<Boolean>> expressions) {
+        stack.peek().addAll(expressions);
+      }
+
+      @Override
+      public void dispose() {}
+    };
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.io.File;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("encapsulation")
+public class ProcessWrapperContextTest {
+
+  static final String JAVA =
+      System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+  private static final Variable<Integer> CRASH = Variable.create(BuiltinTypes.SINT32, "crash");
+
+  private final ProcessWrapperContext ctx =
+      new ProcessWrapperContext(EnumeratingSolver.NAME, JAVA);
+
+  static Expression<Boolean> cmp(Variable<Integer> v, NumericComparator cmp, int c) {
+    return NumericBooleanExpression.create(v, cmp, Constant.create(BuiltinTypes.SINT32, c));
+  }
+
+  @AfterEach
+  public void dispose() {
+    ctx.dispose();
+  }
+
+  @Test
+  public void forwardsPushPopAndAdd() {
+    ctx.add(cmp(X, NumericComparator.GT, 0));
+    Valuation val = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(val));
+    assertEquals(1, (int) val.getValue(X));
+
+    ctx.push();
+    ctx.add(cmp(X, NumericComparator.LT, 0));
+    assertEquals(Result.UNSAT, ctx.solve(new Valuation()));
+
+    ctx.pop();
+    ctx.push();
+    ctx.add(cmp(X, NumericComparator.GT, 2));
+    val = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(val));
+    assertEquals(3, (int) val.getValue(X));
+  }
+
+  @Test
+  public void replaysAssertionsAfterTheProcessBroke() {
+    ctx.add(cmp(X, NumericComparator.GT, 2));
+    ctx.push();
+    ctx.add(cmp(X, NumericComparator.LT, 4));
+    Valuation before = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(before));
+
+    ctx.push();
+    ctx.add(cmp(CRASH, NumericComparator.EQ, 0));
+    assertEquals(Result.DONT_KNOW, ctx.solve(new Valuation()));
+
+    ctx.pop();
+    Valuation after = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(after));
+    assertEquals(3, (int) after.getValue(X));
+    assertNotEquals(
+        before.getValue(EnumeratingSolver.WORKER), after.getValue(EnumeratingSolver.WORKER));
+
+    ctx.pop();
+    ctx.add(cmp(X, NumericComparator.GT, 3));
+    after = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(after));
+    assertEquals(4, (int) after.getValue(X));
+  }
+}
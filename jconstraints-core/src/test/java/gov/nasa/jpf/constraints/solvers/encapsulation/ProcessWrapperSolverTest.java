@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.encapsulation;
+
+import static gov.nasa.jpf.constraints.solvers.encapsulation.ProcessWrapperContextTest.JAVA;
+import static gov.nasa.jpf.constraints.solvers.encapsulation.ProcessWrapperContextTest.cmp;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.exceptions.SolverTimeoutException;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+@Tag("encapsulation")
+public class ProcessWrapperSolverTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+
+  private static final Expression<Boolean> QUERY = cmp(X, NumericComparator.GT, 0);
+
+  private final ProcessWrapperSolver solver =
+      new ProcessWrapperSolver(EnumeratingSolver.NAME, JAVA, 1);
+
+  @AfterEach
+  public void shutdown() throws IOException {
+    solver.shutdown();
+  }
+
+  /** Solves {@link #QUERY} and returns the name of the worker that answered. */
+  private String worker() {
+    Valuation val = new Valuation();
+    assertEquals(Result.SAT, solver.solve(QUERY, val));
+    assertEquals(1, (int) val.getValue(X));
+    return val.getValue(EnumeratingSolver.WORKER);
+  }
+
+  @Test
+  public void returnsWorkersToThePool() {
+    String first = worker();
+    assertEquals(first, worker());
+    assertEquals(1, solver.liveWorkers());
+  }
+
+  @Test
+  public void replacesCrashedWorkers() {
+    String first = worker();
+    Variable<Integer> crash = Variable.create(BuiltinTypes.SINT32, "crash");
+    assertEquals(
+        Result.DONT_KNOW, solver.solve(cmp(crash, NumericComparator.EQ, 0), new Valuation()));
+    assertNotEquals(first, worker());
+  }
+
+  @Test
+  public void replacesTimedOutWorkers() {
+    solver.setTimeout(1);
+    String first = worker();
+    Variable<Integer> hang = Variable.create(BuiltinTypes.SINT32, "hang");
+    assertThrows(
+        SolverTimeoutException.class,
+        () -> solver.solveOrTimeout(cmp(hang, NumericComparator.EQ, 0), new Valuation()));
+    assertNotEquals(first, worker());
+  }
+
+  @Test
+  public void killsWorkersThatDoNotAnswer() throws Exception {
+    // the runner's own timeout stays at 60s, only the parent-side bound can end this query
+    SolverProcess process = SolverProcess.start(solver.processCommand(), 1000);
+    Variable<Integer> hang = Variable.create(BuiltinTypes.SINT32, "hang");
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(30),
+        () ->
+            assertThrows(
+                SolverTimeoutException.class,
+                () -> process.solve(cmp(hang, NumericComparator.EQ, 0), new Valuation())));
+    assertTrue(process.awaitExit(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shutdownStopsAllWorkers() throws IOException {
+    worker();
+    solver.shutdown();
+    assertEquals(0, solver.liveWorkers());
+    assertTimeoutPreemptively(
+        Duration.ofSeconds(5),
+        () -> assertEquals(Result.DONT_KNOW, solver.solve(QUERY, new Valuation())));
+    assertEquals(0, solver.liveWorkers());
+  }
+}
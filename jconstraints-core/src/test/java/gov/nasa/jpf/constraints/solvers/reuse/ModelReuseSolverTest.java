@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.reuse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class ModelReuseSolverTest {
+
+  private final Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+
+  /** Assigns {@code value} to x and answers SAT. */
+  private static class FixedModelSolver extends ConstraintSolver {
+    int value;
+    int calls;
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      calls++;
+      for (Variable<?> v : ExpressionUtil.freeVariables(f)) {
+        result.setCastedValue(v, value);
+      }
+      return Result.SAT;
+    }
+  }
+
+  private Expression<Boolean> x(NumericComparator cmp, int c) {
+    return new NumericBooleanExpression(x, cmp, Constant.create(BuiltinTypes.SINT32, c));
+  }
+
+  @Test
+  public void previousModelAnswersQuery() {
+    FixedModelSolver back = new FixedModelSolver();
+    back.value = 10;
+    ModelReuseSolver solver = new ModelReuseSolver(back, 2);
+
+    assertEquals(Result.SAT, solver.solve(x(NumericComparator.GT, 5), new Valuation()));
+    Valuation val = new Valuation();
+    assertEquals(Result.SAT, solver.solve(x(NumericComparator.LT, 20), val));
+
+    assertEquals(1, back.calls);
+    assertEquals(1, solver.getHits());
+    assertEquals(1, solver.getMisses());
+    assertEquals(10, val.getValue(x));
+  }
+
+  @Test
+  public void unsatisfyingModelsFallThrough() {
+    FixedModelSolver back = new FixedModelSolver();
+    back.value = 10;
+    ModelReuseSolver solver = new ModelReuseSolver(back, 2);
+
+    solver.solve(x(NumericComparator.GT, 5), new Valuation());
+    back.value = 0;
+    solver.solve(x(NumericComparator.LT, 5), new Valuation());
+    assertEquals(2, back.calls);
+    assertEquals(0, solver.getHits());
+  }
+
+  @Test
+  public void onlyLastModelsAreKept() {
+    FixedModelSolver back = new FixedModelSolver();
+    ModelReuseSolver solver = new ModelReuseSolver(back, 1);
+
+    back.value = 10;
+    solver.solve(x(NumericComparator.GT, 5), new Valuation());
+    back.value = 0;
+    solver.solve(x(NumericComparator.LT, 5), new Valuation());
+    solver.solve(x(NumericComparator.GT, 5), new Valuation());
+    assertEquals(3, back.calls);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.slicing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.functions.Function;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class SlicingSolverTest {
+
+  /** Records the queries it receives and answers SAT with every variable set to 1. */
+  private static class RecordingSolver extends ConstraintSolver {
+    final List<Expression<Boolean>> queries = new ArrayList<>();
+
+    @Override
+    public Result solve(Expression<Boolean> f, Valuation result) {
+      queries.add(f);
+      for (Variable<?> v : ExpressionUtil.freeVariables(f)) {
+        result.setCastedValue(v, 1);
+      }
+      return Result.SAT;
+    }
+  }
+
+  private static Expression<Boolean> gt(Variable<Integer> v, int c) {
+    return NumericBooleanExpression.create(
+        v, NumericComparator.GT, Constant.create(BuiltinTypes.SINT32, c));
+  }
+
+  @Test
+  public void onlyTouchedClusterIsResolved() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+    RecordingSolver back = new RecordingSolver();
+    SlicingSolver solver = new SlicingSolver(back);
+    SolverContext ctx = solver.createContext();
+
+    ctx.add(gt(x, 0), gt(y, 0));
+    assertEquals(Result.SAT, ctx.solve(new Valuation()));
+    assertEquals(2, back.queries.size());
+
+    ctx.push();
+    ctx.add(gt(y, -1));
+    Valuation val = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(val));
+    assertEquals(3, back.queries.size());
+    assertEquals(ExpressionUtil.and(gt(y, 0), gt(y, -1)), back.queries.get(2));
+    assertEquals(1, solver.getReusedClusters());
+    assertEquals(1, val.getValue(x));
+    assertEquals(1, val.getValue(y));
+
+    ctx.pop();
+    assertEquals(Result.SAT, ctx.solve(new Valuation()));
+    assertEquals(3, back.queries.size());
+  }
+
+  @Test
+  public void sharedFunctionsAreSolvedTogether() {
+    Function<Integer> f = new Function<>("f", BuiltinTypes.SINT32, BuiltinTypes.SINT32);
+    Constant<Integer> zero = Constant.create(BuiltinTypes.SINT32, 0);
+    Expression<Boolean> f01 =
+        NumericBooleanExpression.create(
+            f.toExpression(zero), NumericComparator.EQ, Constant.create(BuiltinTypes.SINT32, 1));
+    Expression<Boolean> f02 =
+        NumericBooleanExpression.create(
+            f.toExpression(zero), NumericComparator.EQ, Constant.create(BuiltinTypes.SINT32, 2));
+    RecordingSolver back = new RecordingSolver();
+    SolverContext ctx = new SlicingSolver(back).createContext();
+
+    ctx.add(f01, f02);
+    ctx.solve(new Valuation());
+    assertEquals(1, back.queries.size());
+    assertEquals(ExpressionUtil.and(f01, f02), back.queries.get(0));
+  }
+}
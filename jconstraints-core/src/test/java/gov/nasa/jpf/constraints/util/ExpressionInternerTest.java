@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class ExpressionInternerTest {
+
+  private Expression<Boolean> xPlusOneGreaterY() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+    Constant<Integer> c1 = Constant.create(BuiltinTypes.SINT32, 1);
+    return NumericBooleanExpression.create(
+        NumericCompound.create(x, NumericOperator.PLUS, c1), NumericComparator.GT, y);
+  }
+
+  @Test
+  public void structurallyEqualExpressionsAreShared() {
+    ExpressionInterner interner = new ExpressionInterner();
+    Expression<Boolean> a = xPlusOneGreaterY();
+    Expression<Boolean> b = xPlusOneGreaterY();
+    assertNotSame(a, b);
+
+    Expression<Boolean> ia = interner.intern(a);
+    Expression<Boolean> ib = interner.intern(b);
+    assertSame(ia, ib);
+    assertEquals(a, ia);
+    assertEquals(a.hashCode(), ia.hashCode());
+    assertTrue(interner.isInterned(ia));
+  }
+
+  @Test
+  public void subexpressionsAreShared() {
+    ExpressionInterner interner = new ExpressionInterner();
+    Expression<Boolean> left = interner.intern(xPlusOneGreaterY());
+    PropositionalCompound conj =
+        (PropositionalCompound)
+            interner.intern(ExpressionUtil.and(xPlusOneGreaterY(), xPlusOneGreaterY()));
+    assertSame(left, conj.getLeft());
+    assertSame(left, conj.getRight());
+    assertSame(conj, interner.intern(conj));
+  }
+}
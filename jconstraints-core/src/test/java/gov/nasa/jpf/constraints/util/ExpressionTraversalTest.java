@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.functions.Function;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class ExpressionTraversalTest {
+
+  private static final int DEPTH = 200_000;
+
+  private static Expression<Boolean> atom(int i) {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x" + (i % 100));
+    return NumericBooleanExpression.create(
+        x, NumericComparator.GT, Constant.create(BuiltinTypes.SINT32, i));
+  }
+
+  /** A left-deep conjunction as built by {@link ExpressionUtil#and}. */
+  private static Expression<Boolean> deepConjunction() {
+    Expression<Boolean> e = atom(0);
+    for (int i = 1; i < DEPTH; i++) {
+      e = PropositionalCompound.create(e, LogicalOperator.AND, atom(i));
+    }
+    return e;
+  }
+
+  private static final ExpressionTraversal<Integer> LEAVES =
+      new ExpressionTraversal<Integer>() {
+        @Override
+        protected Integer exit(Expression<?> e, List<Integer> childResults) {
+          if (childResults.isEmpty()) {
+            return 1;
+          }
+          int sum = 0;
+          for (Integer r : childResults) {
+            sum += r;
+          }
+          return sum;
+        }
+      };
+
+  @Test
+  public void deepConjunctionsDoNotOverflow() {
+    Expression<Boolean> e = deepConjunction();
+    assertEquals(2 * DEPTH, LEAVES.apply(e));
+    assertEquals(100, ExpressionUtil.freeVariables(e).size());
+    assertTrue(ExpressionUtil.containsVars(e));
+    assertEquals(0, ExpressionUtil.nestingDepth(e));
+
+    List<Expression<Boolean>> conjuncts = new ArrayList<>();
+    ExpressionTraversal.conjuncts(e, conjuncts);
+    assertEquals(DEPTH, conjuncts.size());
+    assertEquals(
+        Constant.create(BuiltinTypes.SINT32, 0),
+        ((NumericBooleanExpression) conjuncts.get(0)).getRight());
+  }
+
+  @Test
+  public void nestingDepthCountsFunctionApplications() {
+    Function<Integer> f = new Function<>("f", BuiltinTypes.SINT32, BuiltinTypes.SINT32);
+    Expression<Integer> one = Constant.create(BuiltinTypes.SINT32, 1);
+    Expression<Boolean> e =
+        NumericBooleanExpression.create(
+            f.toExpression(f.toExpression(one)), NumericComparator.EQ, f.toExpression(one));
+    assertEquals(2, ExpressionUtil.nestingDepth(e));
+    assertFalse(ExpressionUtil.containsVars(e));
+  }
+
+  @Test
+  public void childResultsArriveInOrder() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+    Expression<Boolean> e =
+        Negation.create(
+            NumericBooleanExpression.create(
+                NumericCompound.create(x, NumericOperator.PLUS, y),
+                NumericComparator.EQ,
+                Constant.create(BuiltinTypes.SINT32, 1)));
+
+    ExpressionTraversal<String> printer =
+        new ExpressionTraversal<String>() {
+          @Override
+          protected String exit(Expression<?> e, List<String> childResults) {
+            if (e instanceof Variable) {
+              return ((Variable<?>) e).getName();
+            }
+            if (e instanceof Constant) {
+              return String.valueOf(((Constant<?>) e).getValue());
+            }
+            return e.getClass().getSimpleName() + childResults;
+          }
+        };
+    assertEquals(
+        "Negation[NumericBooleanExpression[NumericCompound[x, y], 1]]", printer.apply(e));
+  }
+
+  @Test
+  public void skippedChildrenAreNotVisited() {
+    Expression<Boolean> e = deepConjunction();
+    ExpressionTraversal<Expression<?>> firstLevel =
+        new ExpressionTraversal<Expression<?>>() {
+          @Override
+          protected boolean enter(Expression<?> n) {
+            return n == e;
+          }
+
+          @Override
+          protected Expression<?> exit(Expression<?> n, List<Expression<?>> childResults) {
+            return childResults.isEmpty() ? n : childResults.get(1);
+          }
+        };
+    assertSame(e.getChildren()[1], firstLevel.apply(e));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("base")
+public class ScopedMapTest {
+
+  @Test
+  public void popRestoresPreviousState() {
+    ScopedMap<String, Integer> map = new ScopedMap<>();
+    map.put("a", 1);
+    map.put("b", 2);
+
+    assertEquals(1, map.pushScope());
+    map.put("a", 10);
+    map.put("c", 3);
+    map.remove("b");
+    assertEquals(10, map.get("a"));
+    assertFalse(map.containsKey("b"));
+
+    assertEquals(2, map.pushScope());
+    map.clear();
+    assertTrue(map.isEmpty());
+    map.popScope();
+
+    assertEquals(2, map.size());
+    assertEquals(3, map.get("c"));
+
+    map.popScope();
+    assertEquals(2, map.size());
+    assertEquals(1, map.get("a"));
+    assertEquals(2, map.get("b"));
+    assertFalse(map.containsKey("c"));
+    assertEquals(0, map.depth());
+  }
+
+  @Test
+  public void popWithoutPushFails() {
+    ScopedMap<String, Integer> map = new ScopedMap<>();
+    assertThrows(IllegalStateException.class, map::popScope);
+  }
+}
@@ -39,7 +39,6 @@ import edu.stanford.CVC4.vectorExpr;
 import edu.stanford.CVC4.vectorType;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Variable;
-import gov.nasa.jpf.constraints.expressions.AbstractExpressionVisitor;
 import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
 import gov.nasa.jpf.constraints.expressions.BitvectorNegation;
 import gov.nasa.jpf.constraints.expressions.BitvectorOperator;
@@ -47,6 +46,7 @@ import gov.nasa.jpf.constraints.expressions.CastExpression;
 import gov.nasa.jpf.constraints.expressions.Constant;
 import gov.nasa.jpf.constraints.expressions.IfThenElse;
 import gov.nasa.jpf.constraints.expressions.LetExpression;
+import gov.nasa.jpf.constraints.expressions.MemoizingExpressionVisitor;
 import gov.nasa.jpf.constraints.expressions.Negation;
 import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
 import gov.nasa.jpf.constraints.expressions.NumericComparator;
@@ -76,7 +76,7 @@ import io.github.tudoaqua.jconstraints.cvc4.exception.CVC4ConversionException;
 import java.util.HashMap;
 import org.apache.commons.math3.fraction.BigFraction;
 
-public class CVC4ExpressionGenerator extends AbstractExpressionVisitor<Expr, Expr> {
+public class CVC4ExpressionGenerator extends MemoizingExpressionVisitor<Expr, Expr> {
 
   private final ExprManager em;
   private HashMap<Variable, Expr> vars;
@@ -104,8 +104,13 @@ public class CVC4ExpressionGenerator extends AbstractExpressionVisitor<Expr, Exp
   }
 
   public Expr generateExpression(Expression<Boolean> expression) {
-    Expr expr = visit(expression);
-    return expr;
+    // shared subexpressions are translated once per expression
+    resetMemo();
+    try {
+      return visit(expression);
+    } finally {
+      resetMemo();
+    }
   }
 
   @Override
@@ -509,7 +514,8 @@ public class CVC4ExpressionGenerator extends AbstractExpressionVisitor<Expr, Exp
       boundedVars.put(v.getName(), cvc4Var);
     }
     args.add(em.mkExpr(Kind.BOUND_VAR_LIST, vars));
-    Expr body = visit(q.getBody(), data);
+    // bound variables differ from the free ones of the same name, do not share results
+    Expr body = visitUnshared(q.getBody(), data);
     args.add(body);
 
     for (Variable v : q.getBoundVariables()) {
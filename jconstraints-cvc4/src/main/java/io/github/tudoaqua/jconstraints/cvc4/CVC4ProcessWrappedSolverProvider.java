@@ -49,7 +49,11 @@ public class CVC4ProcessWrappedSolverProvider implements ConstraintSolverProvide
     }
     ProcessWrapperSolver solver;
 
-    if (options.containsKey("java")) {
+    if (options.containsKey("workers")) {
+      solver =
+          new ProcessWrapperSolver(
+              "cvc4", options.getOrDefault("java", ""), Integer.parseInt(options.get("workers")));
+    } else if (options.containsKey("java")) {
       solver = new ProcessWrapperSolver("cvc4", options.get("java"));
     } else {
       solver = new ProcessWrapperSolver("cvc4");
@@ -27,6 +27,7 @@ import edu.stanford.CVC4.SmtEngine;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.SolverPhase;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.exceptions.ImpreciseRepresentationException;
@@ -70,61 +71,63 @@ public class CVC4Solver extends ConstraintSolver {
   public static void getModel(Valuation val, HashMap<Variable, Expr> vars, SmtEngine smt) {
     if (val != null) {
       for (Map.Entry<Variable, Expr> entry : vars.entrySet()) {
-        Expr value = smt.getValue(entry.getValue());
-        if (value.isConst()) {
-          Kind k = value.getKind();
-          String valueString = value.toString().replace("(", "").replace(")", "").replace(" ", "");
-          if (Kind.CONST_RATIONAL.equals(k)) {
-            if (entry.getKey().getType().equals(BuiltinTypes.INTEGER)) {
-              val.setValue(entry.getKey(), new BigInteger(valueString));
-            } else {
-              val.setValue(
-                  entry.getKey(), BigFractionFormat.getProperInstance().parse(valueString));
-            }
-          } else if (Kind.CONST_FLOATINGPOINT.equals(k)) {
-            Matcher m = fpPattern.matcher(valueString);
-            if (m.matches()) {
-              String mattisse = m.group(3);
-              String exponent = m.group(2);
-              String sign = m.group(1);
-
-              if (entry.getKey().getType().equals(BuiltinTypes.DOUBLE)) {
-                long res = Long.parseUnsignedLong(sign + exponent + mattisse, 2);
-                val.setValue(entry.getKey(), Double.longBitsToDouble(res));
-              } else if (entry.getKey().getType().equals(BuiltinTypes.FLOAT)) {
-                int res = Integer.parseUnsignedInt(sign + exponent + mattisse, 2);
-                val.setValue(entry.getKey(), Float.intBitsToFloat(res));
-              } else {
-                throw new IllegalArgumentException(
-                    "Don't know this floating point type: " + entry.getKey().getType().getName());
-              }
-            } else {
-              throw new UnsupportedOperationException(
-                  "Cannot parse the bit string: " + valueString);
-            }
-          } else if (Kind.CONST_BITVECTOR.equals(k)) {
-            BigInteger bigValue =
-                new BigInteger(valueString.replaceFirst("(?:(#b)|(0bin))", ""), 2);
-            addRightBitvectorType(entry.getKey(), bigValue, val);
-          } else if (Kind.CONST_BOOLEAN.equals(k)) {
-            val.setValue(entry.getKey(), new Boolean(valueString).booleanValue());
-          } else if (Kind.CONST_STRING.equals(k)) {
-            valueString = resolveUnicode(value.toString());
-            val.setValue(entry.getKey(), valueString.substring(1, valueString.length() - 1));
-          } else if (Kind.UNINTERPRETED_CONSTANT.equals(k)) {
-            valueString = valueString.split("_")[2];
-            try {
-              val.setParsedValue(entry.getKey(), valueString);
-            } catch (ImpreciseRepresentationException e) {
-              throw new IllegalArgumentException(
-                  "Cannot handle the uninterpreted_constant value: "
-                      + valueString
-                      + " during model creation.");
-            }
+        getValue(val, entry.getKey(), entry.getValue(), smt);
+      }
+    }
+  }
+
+  /** Stores the model value of {@code var}, translated to {@code expr}, in {@code val}. */
+  static void getValue(Valuation val, Variable var, Expr expr, SmtEngine smt) {
+    Expr value = smt.getValue(expr);
+    if (value.isConst()) {
+      Kind k = value.getKind();
+      String valueString = value.toString().replace("(", "").replace(")", "").replace(" ", "");
+      if (Kind.CONST_RATIONAL.equals(k)) {
+        if (var.getType().equals(BuiltinTypes.INTEGER)) {
+          val.setValue(var, new BigInteger(valueString));
+        } else {
+          val.setValue(var, BigFractionFormat.getProperInstance().parse(valueString));
+        }
+      } else if (Kind.CONST_FLOATINGPOINT.equals(k)) {
+        Matcher m = fpPattern.matcher(valueString);
+        if (m.matches()) {
+          String mattisse = m.group(3);
+          String exponent = m.group(2);
+          String sign = m.group(1);
+
+          if (var.getType().equals(BuiltinTypes.DOUBLE)) {
+            long res = Long.parseUnsignedLong(sign + exponent + mattisse, 2);
+            val.setValue(var, Double.longBitsToDouble(res));
+          } else if (var.getType().equals(BuiltinTypes.FLOAT)) {
+            int res = Integer.parseUnsignedInt(sign + exponent + mattisse, 2);
+            val.setValue(var, Float.intBitsToFloat(res));
           } else {
-            throw new IllegalArgumentException("Cannot parse the variable of the model");
+            throw new IllegalArgumentException(
+                "Don't know this floating point type: " + var.getType().getName());
           }
+        } else {
+          throw new UnsupportedOperationException("Cannot parse the bit string: " + valueString);
+        }
+      } else if (Kind.CONST_BITVECTOR.equals(k)) {
+        BigInteger bigValue = new BigInteger(valueString.replaceFirst("(?:(#b)|(0bin))", ""), 2);
+        addRightBitvectorType(var, bigValue, val);
+      } else if (Kind.CONST_BOOLEAN.equals(k)) {
+        val.setValue(var, new Boolean(valueString).booleanValue());
+      } else if (Kind.CONST_STRING.equals(k)) {
+        valueString = resolveUnicode(value.toString());
+        val.setValue(var, valueString.substring(1, valueString.length() - 1));
+      } else if (Kind.UNINTERPRETED_CONSTANT.equals(k)) {
+        valueString = valueString.split("_")[2];
+        try {
+          val.setParsedValue(var, valueString);
+        } catch (ImpreciseRepresentationException e) {
+          throw new IllegalArgumentException(
+              "Cannot handle the uninterpreted_constant value: "
+                  + valueString
+                  + " during model creation.");
         }
+      } else {
+        throw new IllegalArgumentException("Cannot parse the variable of the model");
       }
     }
   }
@@ -151,16 +154,28 @@ public class CVC4Solver extends ConstraintSolver {
 
   @Override
   public Result solve(Expression<Boolean> f, Valuation result) {
+    long start = listeners().start();
     gen.clearVars();
     Expr expr = gen.generateExpression(f);
+    listeners().phaseFinished(SolverPhase.TRANSLATION, start);
+    long checkStart = listeners().start();
     edu.stanford.CVC4.Result resCVC = smt.checkSat(expr);
+    listeners().phaseFinished(SolverPhase.CHECK, checkStart);
     Result resJC = CVC4Solver.convertCVC4Res(resCVC);
     if (resJC.equals(Result.SAT)) {
+      long modelStart = listeners().start();
       getModel(result, gen.getVars(), smt);
+      listeners().phaseFinished(SolverPhase.MODEL_PARSING, modelStart);
     }
+    listeners().queryFinished(resJC, start);
     return resJC;
   }
 
+  @Override
+  public void interrupt() {
+    smt.interrupt();
+  }
+
   @Override
   public Result isSatisfiable(Expression<Boolean> f) {
     edu.stanford.CVC4.Result cvc4Res = smt.checkSat(gen.generateExpression(f));
@@ -169,7 +184,7 @@ public class CVC4Solver extends ConstraintSolver {
 
   @Override
   public SolverContext createContext() {
-    return new CVC4SolverContext();
+    return instrument(new CVC4SolverContext());
   }
 
   @Override
@@ -26,9 +26,12 @@ import edu.stanford.CVC4.SExpr;
 import edu.stanford.CVC4.SmtEngine;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.LazyValuation;
 import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.SolverPhase;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.Variable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,6 +44,9 @@ public class CVC4SolverContext extends SolverContext {
   private HashMap<Variable, Expr> vars;
   private LinkedList<HashMap<Variable, Expr>> varsHistory;
 
+  /** The last model handed out by {@link #solveLazily}, valid until the next command. */
+  private LazyValuation liveModel;
+
   public CVC4SolverContext() {
     em = new ExprManager();
     ctx = new SmtEngine(em);
@@ -56,38 +62,87 @@ public class CVC4SolverContext extends SolverContext {
 
   @Override
   public void push() {
+    releaseModel();
     ctx.push();
     varsHistory.push(new HashMap(vars));
-  }
-
-  @Override
-  public void pop() {
-    ctx.pop();
-    vars = varsHistory.pop();
+    listeners().pushed(varsHistory.size() - 1);
   }
 
   @Override
   public void pop(int i) {
+    releaseModel();
     for (int j = 0; j < i; j++) {
-      this.pop();
+      ctx.pop();
+      vars = varsHistory.pop();
     }
+    listeners().popped(i, varsHistory.size() - 1);
   }
 
   /** The valuation is only filled with data, if the expressions in the context are satisfiable. */
   @Override
   public ConstraintSolver.Result solve(Valuation valuation) {
+    releaseModel();
+    long start = listeners().start();
     Result res = ctx.checkSat();
+    listeners().phaseFinished(SolverPhase.CHECK, start);
     if (res.toString().toLowerCase().equals("sat")) {
+      long modelStart = listeners().start();
       CVC4Solver.getModel(valuation, vars, ctx);
+      listeners().phaseFinished(SolverPhase.MODEL_PARSING, modelStart);
+    }
+    ConstraintSolver.Result result = CVC4Solver.convertCVC4Res(res);
+    listeners().queryFinished(result, start);
+    return result;
+  }
+
+  /**
+   * Binds the model to {@code model} without converting it. Values are queried from the engine on
+   * first access until the next push, pop, add, solve or dispose on this context.
+   */
+  @Override
+  public ConstraintSolver.Result solveLazily(LazyValuation model) {
+    releaseModel();
+    long start = listeners().start();
+    Result res = ctx.checkSat();
+    listeners().phaseFinished(SolverPhase.CHECK, start);
+    ConstraintSolver.Result result = CVC4Solver.convertCVC4Res(res);
+    if (result == ConstraintSolver.Result.SAT && model != null) {
+      HashMap<Variable, Expr> modelVars = vars;
+      List<Variable<?>> modelKeys = new ArrayList<>(modelVars.size());
+      for (Variable var : modelVars.keySet()) {
+        modelKeys.add(var);
+      }
+      model.bind(
+          modelKeys,
+          (var, target) -> {
+            long modelStart = listeners().start();
+            CVC4Solver.getValue(target, var, modelVars.get(var), ctx);
+            listeners().phaseFinished(SolverPhase.MODEL_PARSING, modelStart);
+          });
+      liveModel = model;
+    }
+    listeners().queryFinished(result, start);
+    return result;
+  }
+
+  private void releaseModel() {
+    if (liveModel != null) {
+      liveModel.materialize();
+      liveModel = null;
     }
-    return CVC4Solver.convertCVC4Res(res);
   }
 
   @Override
   public void add(List<Expression<Boolean>> list) {
+    releaseModel();
+    long start = listeners().start();
     CVC4ExpressionGenerator gen = new CVC4ExpressionGenerator(em, vars);
+    List<Expr> exprs = new ArrayList<>(list.size());
     for (Expression<Boolean> l : list) {
-      Expr expr = gen.generateExpression(l);
+      exprs.add(gen.generateExpression(l));
+    }
+    listeners().phaseFinished(SolverPhase.TRANSLATION, start);
+    for (Expr expr : exprs) {
       ctx.assertFormula(expr);
     }
     vars = gen.getVars();
@@ -95,6 +150,12 @@ public class CVC4SolverContext extends SolverContext {
 
   @Override
   public void dispose() {
+    releaseModel();
     ctx.delete();
   }
+
+  @Override
+  public void interrupt() {
+    ctx.interrupt();
+  }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.jmh;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.SINT32ConstantTestExpressions;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.SINT32VariableTestExpressions;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.SINT64ConstantTestExpressions;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.StringConstantTestExpressions;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.TestCase;
+
+/** Shared inputs of the benchmarks: the {@link TestCase} suites and the SMT-LIB test inputs. */
+final class BenchmarkInputs {
+
+  private BenchmarkInputs() {}
+
+  /**
+   * Returns the test expressions of the named {@link TestCase} suite.
+   *
+   * @param suite one of {@code SINT32Constant}, {@code SINT32Variable}, {@code SINT64Constant} or
+   *     {@code StringConstant}
+   */
+  static List<Expression<Boolean>> testExpressions(String suite) {
+    TestCase[] cases;
+    switch (suite) {
+      case "SINT32Constant":
+        cases = SINT32ConstantTestExpressions.values();
+        break;
+      case "SINT32Variable":
+        cases = SINT32VariableTestExpressions.values();
+        break;
+      case "SINT64Constant":
+        cases = SINT64ConstantTestExpressions.values();
+        break;
+      case "StringConstant":
+        cases = StringConstantTestExpressions.values();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown test case suite: " + suite);
+    }
+    return Arrays.stream(cases).map(TestCase::getTest).collect(Collectors.toList());
+  }
+
+  /** Returns a valuation assigning the default value of its type to every free variable. */
+  static Valuation defaultValuation(List<Expression<Boolean>> expressions) {
+    Valuation val = new Valuation();
+    for (Expression<Boolean> e : expressions) {
+      for (Variable<?> v : ExpressionUtil.freeVariables(e)) {
+        setDefault(val, v);
+      }
+    }
+    return val;
+  }
+
+  /**
+   * Returns the expressions for which {@code probe} completes normally. Not every expression
+   * supports every operation, e.g., some string expressions cannot be duplicated and evaluation may
+   * divide by zero.
+   */
+  static List<Expression<Boolean>> supporting(
+      List<Expression<Boolean>> expressions, Consumer<Expression<Boolean>> probe) {
+    List<Expression<Boolean>> result = new ArrayList<>();
+    for (Expression<Boolean> e : expressions) {
+      try {
+        probe.accept(e);
+        result.add(e);
+      } catch (RuntimeException ex) {
+        // excluded from the benchmark
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads an SMT-LIB input. {@code name} is either a path on disk or the name of one of the {@code
+   * .smt2} test inputs bundled as resources.
+   */
+  static String readSMTInput(String name) {
+    try {
+      Path path = Paths.get(name);
+      if (Files.isRegularFile(path)) {
+        return new String(Files.readAllBytes(path), UTF_8);
+      }
+      try (InputStream in = BenchmarkInputs.class.getResourceAsStream("/" + name)) {
+        if (in == null) {
+          throw new IllegalArgumentException("Unknown SMT-LIB input: " + name);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), UTF_8);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static <E> void setDefault(Valuation val, Variable<E> v) {
+    val.setValue(v, v.getType().getDefaultValue());
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.jmh;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.evaluation.CompiledPredicate;
+import gov.nasa.jpf.constraints.evaluation.EvaluationFrame;
+import gov.nasa.jpf.constraints.evaluation.ExpressionCompiler;
+import gov.nasa.jpf.constraints.evaluation.VariableLayout;
+import gov.nasa.jpf.constraints.util.DuplicatingVisitor;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.TestCase;
+
+/**
+ * Measures construction, evaluation and traversal of the expressions of the {@link TestCase}
+ * suites. Each invocation processes the whole suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+  private static final DuplicatingVisitor<Void> DUPLICATOR = new DuplicatingVisitor<Void>() {};
+
+  @Param({"SINT32Constant", "SINT32Variable", "SINT64Constant", "StringConstant"})
+  public String suite;
+
+  private List<Expression<Boolean>> expressions;
+
+  private List<Expression<Boolean>> evaluable;
+
+  private List<Expression<Boolean>> rebuildable;
+
+  private List<Expression<Boolean>> simplifiable;
+
+  private Valuation valuation;
+
+  private List<CompiledPredicate> compiled;
+
+  private EvaluationFrame frame;
+
+  @Setup
+  public void setup() {
+    expressions = BenchmarkInputs.testExpressions(suite);
+    valuation = BenchmarkInputs.defaultValuation(expressions);
+    evaluable =
+        BenchmarkInputs.supporting(
+            expressions,
+            e -> {
+              e.evaluate(valuation);
+              e.evaluateSMT(valuation);
+            });
+    VariableLayout layout = new VariableLayout();
+    compiled = new ArrayList<>();
+    for (Expression<Boolean> e : evaluable) {
+      compiled.add(ExpressionCompiler.compile(e, layout));
+    }
+    frame = EvaluationFrame.of(layout, valuation);
+    rebuildable = BenchmarkInputs.supporting(expressions, ExpressionBenchmark::rebuild);
+    simplifiable = BenchmarkInputs.supporting(expressions, ExpressionUtil::simplify);
+  }
+
+  @Benchmark
+  public void construct(Blackhole bh) {
+    for (Expression<Boolean> e : rebuildable) {
+      bh.consume(rebuild(e));
+    }
+  }
+
+  @Benchmark
+  public void evaluate(Blackhole bh) {
+    for (Expression<Boolean> e : evaluable) {
+      bh.consume(e.evaluate(valuation));
+    }
+  }
+
+  @Benchmark
+  public void evaluateCompiled(Blackhole bh) {
+    for (CompiledPredicate p : compiled) {
+      bh.consume(p.test(frame));
+    }
+  }
+
+  @Benchmark
+  public void evaluateSMT(Blackhole bh) {
+    for (Expression<Boolean> e : evaluable) {
+      bh.consume(e.evaluateSMT(valuation));
+    }
+  }
+
+  @Benchmark
+  public void duplicate(Blackhole bh) {
+    for (Expression<Boolean> e : expressions) {
+      bh.consume(e.accept(DUPLICATOR, null));
+    }
+  }
+
+  @Benchmark
+  public void simplify(Blackhole bh) {
+    for (Expression<Boolean> e : simplifiable) {
+      bh.consume(ExpressionUtil.simplify(e));
+    }
+  }
+
+  /** Creates a fresh copy of every inner node of {@code e}. */
+  private static Expression<?> rebuild(Expression<?> e) {
+    Expression<?>[] children = e.getChildren();
+    if (children.length == 0) {
+      return e;
+    }
+    Expression<?>[] copies = new Expression<?>[children.length];
+    for (int i = 0; i < children.length; i++) {
+      copies[i] = rebuild(children[i]);
+    }
+    return e.duplicate(copies);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.jmh;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.smtlibUtility.SMTProblem;
+import gov.nasa.jpf.constraints.smtlibUtility.parser.SMTLIBParser;
+import gov.nasa.jpf.constraints.smtlibUtility.solver.SMTLibExportGenContext;
+import gov.nasa.jpf.constraints.smtlibUtility.solver.SMTLibExportVisitor;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and exporting of SMT-LIB problems. The default inputs are the {@code .smt2}
+ * test inputs of jconstraints-core; other files can be passed by path via {@code -p file=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SMTLibBenchmark {
+
+  @Param({
+    "pisa-000.smt2",
+    "kaluza_sat_big_826.smt2",
+    "prime_cone_sat_15.smt2",
+    "water_tank-node28718.smt2",
+    "bignum_lra1.smt2",
+    "gen-14.smt2"
+  })
+  public String file;
+
+  private String input;
+
+  private SMTProblem problem;
+
+  @Setup
+  public void setup() throws Exception {
+    input = BenchmarkInputs.readSMTInput(file);
+    problem = SMTLIBParser.parseSMTProgram(new StringReader(input));
+  }
+
+  @Benchmark
+  public SMTProblem parse() throws Exception {
+    return SMTLIBParser.parseSMTProgram(new StringReader(input));
+  }
+
+  @Benchmark
+  public StringBuilder export() {
+    StringBuilder out = new StringBuilder();
+    SMTLibExportGenContext ctx = new SMTLibExportGenContext(out);
+    SMTLibExportVisitor visitor = new SMTLibExportVisitor(ctx);
+    for (Expression<Boolean> e : problem.assertions) {
+      visitor.transform(e);
+    }
+    ctx.flushOutput();
+    return out;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.jmh;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tools.aqua.jconstraints.benchmarktest.benchmarks.TestCase;
+
+/**
+ * Measures the translation of the {@link TestCase} suites into the native solver bindings, and
+ * incremental solving using push and pop on a long-lived {@link SolverContext}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+  @Param({"z3", "cvc4"})
+  public String solverName;
+
+  @Param({"SINT32Constant", "SINT32Variable", "SINT64Constant", "StringConstant"})
+  public String suite;
+
+  private ConstraintSolver solver;
+
+  private SolverContext incremental;
+
+  private List<Expression<Boolean>> expressions;
+
+  @Setup
+  public void setup() {
+    solver = ConstraintSolverFactory.createSolver(solverName, new Properties());
+    incremental = solver.createContext();
+    expressions = BenchmarkInputs.testExpressions(suite);
+  }
+
+  @TearDown
+  public void tearDown() {
+    incremental.dispose();
+  }
+
+  /** Translates every expression of the suite into a fresh context, without solving. */
+  @Benchmark
+  public void translate() {
+    SolverContext ctx = solver.createContext();
+    try {
+      for (Expression<Boolean> e : expressions) {
+        ctx.add(e);
+      }
+    } finally {
+      ctx.dispose();
+    }
+  }
+
+  /** Solves every expression of the suite in its own scope of one long-lived context. */
+  @Benchmark
+  public void pushAddSolvePop(Blackhole bh) {
+    for (Expression<Boolean> e : expressions) {
+      incremental.push();
+      incremental.add(e);
+      bh.consume(incremental.isSatisfiable());
+      incremental.pop();
+    }
+  }
+}
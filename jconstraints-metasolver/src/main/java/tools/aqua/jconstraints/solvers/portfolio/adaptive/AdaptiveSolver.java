@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.logging.Logger;
+import tools.aqua.jconstraints.solvers.portfolio.adaptive.QueryFeatures.Theory;
+
+/**
+ * Routes every query to the solver that answered queries of the same shape fastest so far (see
+ * {@link SolverSelector}). If the chosen solver returns DONT_KNOW or an invalid model, the next one
+ * in the ranking is tried. The backends are configured with {@code adaptive.solvers}, a comma
+ * separated list that defaults to {@code z3,cvc4process}.
+ */
+public class AdaptiveSolver extends ConstraintSolver {
+
+  static final String NAME = "adaptive";
+  static final String CVC4 = "cvc4process";
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  private final Map<String, ConstraintSolver> solvers = new LinkedHashMap<>();
+  private final SolverSelector selector;
+
+  public AdaptiveSolver(Properties properties) {
+    super.name = NAME;
+    String names = properties.getProperty(NAME + ".solvers", "z3," + CVC4);
+    for (String s : names.split(",")) {
+      s = s.trim();
+      if (!s.isEmpty()) {
+        solvers.put(s, ConstraintSolverFactory.createSolver(s, properties));
+      }
+    }
+    if (solvers.isEmpty()) {
+      throw new IllegalArgumentException("No solvers configured for " + NAME);
+    }
+    selector = new SolverSelector(new ArrayList<>(solvers.keySet()));
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    QueryFeatures features = QueryFeatures.of(f);
+    for (String name : selector.rank(features, preferredSolver(features, solvers.keySet()))) {
+      Valuation val = new Valuation();
+      long start = System.nanoTime();
+      Result res = validate(f, solvers.get(name).solve(f, val), val);
+      selector.record(features, name, System.nanoTime() - start, res != Result.DONT_KNOW);
+      if (res != Result.DONT_KNOW) {
+        logger.finer("Adaptive solver used " + name + " for " + features);
+        if (result != null) {
+          result.putAll(val);
+        }
+        return res;
+      }
+    }
+    return Result.DONT_KNOW;
+  }
+
+  @Override
+  public SolverContext createContext() {
+    Map<String, SolverContext> ctxs = new LinkedHashMap<>();
+    for (Entry<String, ConstraintSolver> s : solvers.entrySet()) {
+      ctxs.put(s.getKey(), s.getValue().createContext());
+    }
+    return new AdaptiveSolverContext(ctxs, selector);
+  }
+
+  /** The static choice of the sequential portfolio, used to break ties. */
+  static String preferredSolver(QueryFeatures features, Iterable<String> available) {
+    boolean cvc4 =
+        features.getTheories().contains(Theory.STRING)
+            || features.getTheories().contains(Theory.REGEX)
+            || features.getTheories().contains(Theory.FLOAT);
+    for (String s : available) {
+      if (cvc4 == s.equals(CVC4)) {
+        return s;
+      }
+    }
+    return null;
+  }
+
+  static Result validate(Expression<Boolean> f, Result res, Valuation val) {
+    if (res == Result.SAT) {
+      try {
+        if (!f.evaluateSMT(val)) {
+          return Result.DONT_KNOW;
+        }
+      } catch (Exception e) {
+        return Result.DONT_KNOW;
+      }
+    }
+    return res;
+  }
+}
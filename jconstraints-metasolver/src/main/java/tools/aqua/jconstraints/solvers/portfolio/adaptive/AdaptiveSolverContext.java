@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Context of the {@link AdaptiveSolver}. All operations are forwarded to every backend context, and
+ * a check is answered by the backend the {@link SolverSelector} ranks first for the current
+ * assertions. Backends that fail on an operation are no longer used by this context.
+ */
+public class AdaptiveSolverContext extends SolverContext {
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  private final Map<String, SolverContext> ctxs;
+  private final SolverSelector selector;
+  private final Set<String> broken = new HashSet<>();
+  private final Deque<List<Expression<Boolean>>> assertions = new ArrayDeque<>();
+
+  public AdaptiveSolverContext(Map<String, SolverContext> ctxs, SolverSelector selector) {
+    this.ctxs = ctxs;
+    this.selector = selector;
+    assertions.push(new ArrayList<>());
+  }
+
+  @Override
+  public void push() {
+    assertions.push(new ArrayList<>());
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      forward(e.getKey(), ctx::push);
+    }
+  }
+
+  @Override
+  public void pop(int n) {
+    for (int i = 0; i < n; i++) {
+      assertions.pop();
+    }
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      forward(e.getKey(), () -> ctx.pop(n));
+    }
+  }
+
+  @Override
+  public void add(List<Expression<Boolean>> expressions) {
+    assertions.peek().addAll(expressions);
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      forward(e.getKey(), () -> ctx.add(expressions));
+    }
+  }
+
+  @Override
+  public Result solve(Valuation valuation) {
+    List<Expression<Boolean>> all = new ArrayList<>();
+    for (List<Expression<Boolean>> scope : assertions) {
+      all.addAll(scope);
+    }
+    Expression<Boolean> expression = ExpressionUtil.and(all);
+    QueryFeatures features = QueryFeatures.of(expression);
+    String preferred = AdaptiveSolver.preferredSolver(features, ctxs.keySet());
+    for (String name : selector.rank(features, preferred)) {
+      if (broken.contains(name)) {
+        continue;
+      }
+      Valuation val = new Valuation();
+      long start = System.nanoTime();
+      Result res;
+      try {
+        res = AdaptiveSolver.validate(expression, ctxs.get(name).solve(val), val);
+      } catch (RuntimeException e) {
+        logger.warning("Disabling " + name + " in adaptive context: " + e);
+        broken.add(name);
+        res = Result.DONT_KNOW;
+      }
+      selector.record(features, name, System.nanoTime() - start, res != Result.DONT_KNOW);
+      if (res != Result.DONT_KNOW) {
+        if (valuation != null) {
+          valuation.putAll(val);
+        }
+        return res;
+      }
+    }
+    return Result.DONT_KNOW;
+  }
+
+  @Override
+  public void dispose() {
+    for (SolverContext ctx : ctxs.values()) {
+      ctx.dispose();
+    }
+  }
+
+  private void forward(String name, Runnable op) {
+    if (broken.contains(name)) {
+      return;
+    }
+    try {
+      op.run();
+    } catch (RuntimeException e) {
+      logger.warning("Disabling " + name + " in adaptive context: " + e);
+      broken.add(name);
+    }
+  }
+}
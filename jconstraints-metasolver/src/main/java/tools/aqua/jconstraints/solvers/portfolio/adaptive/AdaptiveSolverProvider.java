@@ -17,28 +17,21 @@
  * limitations under the License.
  */
 
-package gov.nasa.jpf.constraints.solvers.encapsulation;
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
 
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
-import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
-import gov.nasa.jpf.constraints.api.Valuation;
-import java.io.Serializable;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import java.util.Properties;
 
-public class SolvingResult implements Serializable {
+public class AdaptiveSolverProvider implements ConstraintSolverProvider {
 
-  private final ConstraintSolver.Result result;
-  private final Valuation val;
-
-  public SolvingResult(ConstraintSolver.Result res, Valuation val) {
-    this.result = res;
-    this.val = val;
-  }
-
-  public Result getResult() {
-    return result;
+  @Override
+  public String[] getNames() {
+    return new String[] {AdaptiveSolver.NAME, "learnedPortfolio"};
   }
 
-  public Valuation getVal() {
-    return val;
+  @Override
+  public ConstraintSolver createSolver(Properties properties) {
+    return new AdaptiveSolver(properties);
   }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.ArrayBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.ArraySelectExpression;
+import gov.nasa.jpf.constraints.expressions.ArrayStoreExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.BitvectorNegation;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.IfThenElse;
+import gov.nasa.jpf.constraints.expressions.LetExpression;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.expressions.RegExBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.RegexCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.RegexOperatorExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerExpression;
+import gov.nasa.jpf.constraints.expressions.UnaryMinus;
+import gov.nasa.jpf.constraints.expressions.functions.FunctionExpression;
+import gov.nasa.jpf.constraints.types.ArrayType;
+import gov.nasa.jpf.constraints.types.BVIntegerType;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.FloatingPointType;
+import gov.nasa.jpf.constraints.types.IntegerType;
+import gov.nasa.jpf.constraints.types.RealType;
+import gov.nasa.jpf.constraints.types.Type;
+import gov.nasa.jpf.constraints.util.ExpressionTraversal;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Cheap structural features of a query: the theories it uses, an operator histogram, its size,
+ * nesting depth and number of variables. Queries with the same {@link #getShape() shape} are
+ * expected to behave alike on a given solver.
+ */
+public class QueryFeatures {
+
+  public enum Theory {
+    BOOL,
+    INTEGER,
+    NONLINEAR,
+    REAL,
+    FLOAT,
+    BITVECTOR,
+    STRING,
+    REGEX,
+    ARRAY,
+    QUANTIFIER,
+    FUNCTION
+  }
+
+  private final EnumSet<Theory> theories = EnumSet.noneOf(Theory.class);
+  private final SortedMap<String, Integer> operators = new TreeMap<>();
+  private final Set<Variable<?>> variables = new HashSet<>();
+  private int nodes = 0;
+  private int depth = 0;
+
+  private QueryFeatures() {}
+
+  public static QueryFeatures of(Expression<?> expr) {
+    QueryFeatures features = new QueryFeatures();
+    features.depth = new FeatureTraversal(features).apply(expr);
+    return features;
+  }
+
+  public Set<Theory> getTheories() {
+    return Collections.unmodifiableSet(theories);
+  }
+
+  /** The number of occurrences of each operator, sorted by operator name. */
+  public Map<String, Integer> getOperators() {
+    return Collections.unmodifiableMap(operators);
+  }
+
+  public int getNodeCount() {
+    return nodes;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int getVariableCount() {
+    return variables.size();
+  }
+
+  /** Theory mix only, the coarsest grouping of queries. */
+  public String getTheoryKey() {
+    return theories.toString();
+  }
+
+  /** The operators with logarithmic buckets of their number of occurrences. */
+  public String getOperatorKey() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, Integer> e : operators.entrySet()) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(e.getKey()).append(':').append(log2(e.getValue()));
+    }
+    return sb.toString();
+  }
+
+  /** Theory mix, logarithmic buckets of size, depth and variable count, and the operator key. */
+  public String getShape() {
+    return getTheoryKey()
+        + "/"
+        + log2(nodes)
+        + "/"
+        + log2(depth)
+        + "/"
+        + log2(variables.size())
+        + "/"
+        + getOperatorKey();
+  }
+
+  private static int log2(int n) {
+    return 32 - Integer.numberOfLeadingZeros(n);
+  }
+
+  @Override
+  public String toString() {
+    return getShape() + " " + operators;
+  }
+
+  private void operator(String op, Theory theory) {
+    operators.merge(op, 1, Integer::sum);
+    if (theory != null) {
+      theories.add(theory);
+    }
+  }
+
+  private void type(Type<?> type) {
+    if (type.equals(BuiltinTypes.BOOL)) {
+      theories.add(Theory.BOOL);
+    } else if (type instanceof BVIntegerType) {
+      theories.add(Theory.BITVECTOR);
+    } else if (type instanceof IntegerType) {
+      theories.add(Theory.INTEGER);
+    } else if (type instanceof FloatingPointType) {
+      theories.add(Theory.FLOAT);
+    } else if (type instanceof RealType) {
+      theories.add(Theory.REAL);
+    } else if (type.equals(BuiltinTypes.STRING)) {
+      theories.add(Theory.STRING);
+    } else if (type.equals(BuiltinTypes.REGEX)) {
+      theories.add(Theory.REGEX);
+    } else if (type instanceof ArrayType) {
+      theories.add(Theory.ARRAY);
+    }
+  }
+
+  private void node(Expression<?> e) {
+    nodes++;
+    if (e instanceof Variable) {
+      variables.add((Variable<?>) e);
+      type(e.getType());
+    } else if (e instanceof Constant) {
+      type(e.getType());
+    } else if (e instanceof Negation) {
+      operator("not", Theory.BOOL);
+    } else if (e instanceof NumericBooleanExpression) {
+      operator(((NumericBooleanExpression) e).getComparator().toString(), null);
+    } else if (e instanceof NumericCompound) {
+      NumericCompound<?> n = (NumericCompound<?>) e;
+      operator(n.getOperator().toString(), isNonlinear(n) ? Theory.NONLINEAR : null);
+    } else if (e instanceof PropositionalCompound) {
+      operator(((PropositionalCompound) e).getOperator().toString(), Theory.BOOL);
+    } else if (e instanceof IfThenElse) {
+      operator("ite", null);
+    } else if (e instanceof UnaryMinus) {
+      operator("-", null);
+    } else if (e instanceof CastExpression) {
+      type(e.getType());
+      operator("cast", null);
+    } else if (e instanceof BitvectorExpression) {
+      operator(((BitvectorExpression<?>) e).getOperator().toString(), Theory.BITVECTOR);
+    } else if (e instanceof BitvectorNegation) {
+      operator("bvnot", Theory.BITVECTOR);
+    } else if (e instanceof QuantifierExpression) {
+      operator(((QuantifierExpression) e).getQuantifier().toString(), Theory.QUANTIFIER);
+    } else if (e instanceof FunctionExpression) {
+      operator(((FunctionExpression<?>) e).getFunction().getName(), Theory.FUNCTION);
+    } else if (e instanceof StringBooleanExpression) {
+      operator(((StringBooleanExpression) e).getOperator().toString(), Theory.STRING);
+    } else if (e instanceof StringIntegerExpression) {
+      operator(((StringIntegerExpression) e).getOperator().toString(), Theory.STRING);
+    } else if (e instanceof StringCompoundExpression) {
+      operator(((StringCompoundExpression) e).getOperator().toString(), Theory.STRING);
+    } else if (e instanceof RegExBooleanExpression) {
+      operator("str.in.re", Theory.REGEX);
+    } else if (e instanceof RegexCompoundExpression) {
+      operator(((RegexCompoundExpression) e).getOperator().toString(), Theory.REGEX);
+    } else if (e instanceof RegexOperatorExpression) {
+      operator(((RegexOperatorExpression) e).getOperator().toString(), Theory.REGEX);
+    } else if (e instanceof LetExpression) {
+      operator("let", null);
+    } else if (e instanceof ArrayStoreExpression) {
+      operator("store", Theory.ARRAY);
+    } else if (e instanceof ArraySelectExpression) {
+      operator("select", Theory.ARRAY);
+    } else if (e instanceof ArrayBooleanExpression) {
+      operator(((ArrayBooleanExpression) e).getComparator().toString(), Theory.ARRAY);
+    }
+  }
+
+  private static boolean isNonlinear(NumericCompound<?> n) {
+    switch (n.getOperator()) {
+      case MUL:
+      case DIV:
+      case REM:
+        return !(n.getLeft() instanceof Constant) && !(n.getRight() instanceof Constant);
+      default:
+        return false;
+    }
+  }
+
+  /** Returns the depth of each node and accumulates all other features on the way. */
+  private static final class FeatureTraversal extends ExpressionTraversal<Integer> {
+
+    private final QueryFeatures f;
+
+    FeatureTraversal(QueryFeatures f) {
+      this.f = f;
+    }
+
+    @Override
+    protected Integer exit(Expression<?> e, List<Integer> childResults) {
+      f.node(e);
+      int max = 0;
+      for (Integer d : childResults) {
+        if (d != null) {
+          max = Math.max(max, d);
+        }
+      }
+      return max + 1;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Learns which solver answers queries of a given shape fastest. Solve times are tracked as an
+ * exponential moving average per (shape, solver), per (operator, solver) and per (theory mix,
+ * solver). Failed attempts are recorded with a penalty. For a shape without data, the estimate is
+ * the mean over the operators of the query weighted by their number of occurrences, or the theory
+ * mix mean if no operator has data. A solver without data for a shape is tried once, unless it is
+ * already estimated to be much slower.
+ */
+public class SolverSelector {
+
+  private static final double ALPHA = 0.3;
+  private static final double FAILURE_PENALTY = 10.0;
+  private static final double EXPLORATION_FACTOR = 2.0;
+
+  private final List<String> solvers;
+  private final Map<String, Stats> byShape = new ConcurrentHashMap<>();
+  private final Map<String, Stats> byOperator = new ConcurrentHashMap<>();
+  private final Map<String, Stats> byTheory = new ConcurrentHashMap<>();
+
+  private static final class Stats {
+    private double mean;
+    private int samples;
+
+    synchronized void add(double value) {
+      mean = samples == 0 ? value : ALPHA * value + (1 - ALPHA) * mean;
+      samples++;
+    }
+
+    synchronized double mean() {
+      return samples == 0 ? Double.NaN : mean;
+    }
+  }
+
+  public SolverSelector(List<String> solvers) {
+    this.solvers = new ArrayList<>(solvers);
+  }
+
+  /**
+   * Orders the solvers by their expected solve time for the query. Solvers that should be explored
+   * for this shape come first, {@code preferred} first among equals.
+   */
+  public List<String> rank(QueryFeatures features, String preferred) {
+    String shape = features.getShape();
+    double bestKnown = Double.POSITIVE_INFINITY;
+    for (String s : solvers) {
+      double m = estimate(features, s);
+      if (!Double.isNaN(m)) {
+        bestKnown = Math.min(bestKnown, m);
+      }
+    }
+    double limit = bestKnown * EXPLORATION_FACTOR;
+    Map<String, Double> cost = new HashMap<>();
+    for (String s : solvers) {
+      double c;
+      if (mean(byShape, shape, s) >= 0) {
+        c = mean(byShape, shape, s);
+      } else {
+        double t = similar(features, s);
+        // unexplored on this shape and not known to be slow: try it first
+        c = Double.isNaN(t) || t <= limit ? -1.0 : t;
+      }
+      cost.put(s, c);
+    }
+    List<String> ranked = new ArrayList<>(solvers);
+    ranked.sort(
+        Comparator.comparingDouble((String s) -> cost.get(s))
+            .thenComparing(s -> !s.equals(preferred)));
+    return ranked;
+  }
+
+  public void record(QueryFeatures features, String solver, long nanos, boolean success) {
+    double cost = success ? nanos : nanos * FAILURE_PENALTY;
+    byShape.computeIfAbsent(key(features.getShape(), solver), k -> new Stats()).add(cost);
+    for (String op : features.getOperators().keySet()) {
+      byOperator.computeIfAbsent(key(op, solver), k -> new Stats()).add(cost);
+    }
+    byTheory.computeIfAbsent(key(features.getTheoryKey(), solver), k -> new Stats()).add(cost);
+  }
+
+  /** The expected solve time of {@code solver} for the query, {@code NaN} if unknown. */
+  double estimate(QueryFeatures features, String solver) {
+    double m = mean(byShape, features.getShape(), solver);
+    return m < 0 ? similar(features, solver) : m;
+  }
+
+  /** Estimates from the operator histogram, or from the theory mix if no operator has data. */
+  private double similar(QueryFeatures features, String solver) {
+    double sum = 0;
+    int weight = 0;
+    for (Map.Entry<String, Integer> e : features.getOperators().entrySet()) {
+      double m = mean(byOperator, e.getKey(), solver);
+      if (m >= 0) {
+        sum += m * e.getValue();
+        weight += e.getValue();
+      }
+    }
+    if (weight > 0) {
+      return sum / weight;
+    }
+    double m = mean(byTheory, features.getTheoryKey(), solver);
+    return m < 0 ? Double.NaN : m;
+  }
+
+  private static double mean(Map<String, Stats> stats, String group, String solver) {
+    Stats s = stats.get(key(group, solver));
+    if (s == null) {
+      return -1;
+    }
+    double m = s.mean();
+    return Double.isNaN(m) ? -1 : m;
+  }
+
+  private static String key(String group, String solver) {
+    return group + "#" + solver;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.parallel;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import tools.aqua.jconstraints.solvers.portfolio.parallel.PortfolioRace.Answer;
+
+/**
+ * Races several solvers on every query and returns the first SAT answer with a valid model or the
+ * first UNSAT answer. The backends are configured with {@code parallelPortfolio.solvers}, a comma
+ * separated list of solver names that defaults to {@code z3,cvc4process}.
+ */
+public class ParallelPortfolioSolver extends ConstraintSolver {
+
+  static final String NAME = "parallelPortfolio";
+  static final String DEFAULT_SOLVERS = "z3,cvc4process";
+
+  private final Map<String, ConstraintSolver> solvers = new LinkedHashMap<>();
+  private final Map<String, ExecutorService> lanes = new LinkedHashMap<>();
+
+  public ParallelPortfolioSolver(Properties properties) {
+    super.name = NAME;
+    String names = properties.getProperty(NAME + ".solvers", DEFAULT_SOLVERS);
+    for (String s : names.split(",")) {
+      s = s.trim();
+      if (!s.isEmpty()) {
+        solvers.put(s, ConstraintSolverFactory.createSolver(s, properties));
+        lanes.put(s, PortfolioRace.newLane(s));
+      }
+    }
+    if (solvers.isEmpty()) {
+      throw new IllegalArgumentException("No solvers configured for " + NAME);
+    }
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    List<ExecutorService> taskLanes = new ArrayList<>();
+    List<Callable<Answer>> tasks = new ArrayList<>();
+    List<Runnable> interrupts = new ArrayList<>();
+    for (Entry<String, ConstraintSolver> e : solvers.entrySet()) {
+      String solverName = e.getKey();
+      ConstraintSolver solver = e.getValue();
+      taskLanes.add(lanes.get(solverName));
+      tasks.add(
+          () -> {
+            Valuation val = new Valuation();
+            return new Answer(solverName, solver.solve(f, val), val);
+          });
+      interrupts.add(solver::interrupt);
+    }
+    Answer winner = PortfolioRace.run(taskLanes, tasks, interrupts, f);
+    if (winner == null) {
+      return Result.DONT_KNOW;
+    }
+    if (result != null) {
+      result.putAll(winner.valuation);
+    }
+    return winner.result;
+  }
+
+  @Override
+  public SolverContext createContext() {
+    Map<String, SolverContext> ctxs = new LinkedHashMap<>();
+    for (Entry<String, ConstraintSolver> s : solvers.entrySet()) {
+      ctxs.put(s.getKey(), s.getValue().createContext());
+    }
+    return new ParallelPortfolioSolverContext(ctxs);
+  }
+}
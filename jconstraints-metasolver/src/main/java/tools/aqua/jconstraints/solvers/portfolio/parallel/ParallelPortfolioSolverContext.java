@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.parallel;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+import tools.aqua.jconstraints.solvers.portfolio.parallel.PortfolioRace.Answer;
+
+/**
+ * Context of the {@link ParallelPortfolioSolver}. Push, pop and add are queued on the lane of every
+ * backend context and return immediately, so a backend still busy with a lost race catches up in
+ * the background. A backend context that fails on an operation is excluded from later races.
+ */
+public class ParallelPortfolioSolverContext extends SolverContext {
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  private final Map<String, SolverContext> ctxs;
+  private final Map<String, ExecutorService> lanes = new LinkedHashMap<>();
+  private final Set<String> broken = ConcurrentHashMap.newKeySet();
+  // assertions per scope, used to validate models
+  private final Deque<List<Expression<Boolean>>> assertions = new ArrayDeque<>();
+
+  public ParallelPortfolioSolverContext(Map<String, SolverContext> ctxs) {
+    this.ctxs = ctxs;
+    for (String name : ctxs.keySet()) {
+      lanes.put(name, PortfolioRace.newLane(name));
+    }
+    assertions.push(new ArrayList<>());
+  }
+
+  @Override
+  public void push() {
+    assertions.push(new ArrayList<>());
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      enqueue(e.getKey(), ctx::push);
+    }
+  }
+
+  @Override
+  public void pop(int n) {
+    for (int i = 0; i < n; i++) {
+      assertions.pop();
+    }
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      enqueue(e.getKey(), () -> ctx.pop(n));
+    }
+  }
+
+  @Override
+  public void add(List<Expression<Boolean>> expressions) {
+    List<Expression<Boolean>> copy = new ArrayList<>(expressions);
+    assertions.peek().addAll(copy);
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      enqueue(e.getKey(), () -> ctx.add(copy));
+    }
+  }
+
+  @Override
+  public Result solve(Valuation val) {
+    List<ExecutorService> taskLanes = new ArrayList<>();
+    List<Callable<Answer>> tasks = new ArrayList<>();
+    List<Runnable> interrupts = new ArrayList<>();
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      String name = e.getKey();
+      SolverContext ctx = e.getValue();
+      if (broken.contains(name)) {
+        continue;
+      }
+      taskLanes.add(lanes.get(name));
+      tasks.add(
+          () -> {
+            Valuation v = new Valuation();
+            Result res = broken.contains(name) ? Result.DONT_KNOW : ctx.solve(v);
+            return new Answer(name, res, v);
+          });
+      interrupts.add(ctx::interrupt);
+    }
+    List<Expression<Boolean>> all = new ArrayList<>();
+    for (List<Expression<Boolean>> scope : assertions) {
+      all.addAll(scope);
+    }
+    Answer winner = PortfolioRace.run(taskLanes, tasks, interrupts, ExpressionUtil.and(all));
+    if (winner == null) {
+      return Result.DONT_KNOW;
+    }
+    if (val != null) {
+      val.putAll(winner.valuation);
+    }
+    return winner.result;
+  }
+
+  @Override
+  public void dispose() {
+    for (Entry<String, SolverContext> e : ctxs.entrySet()) {
+      SolverContext ctx = e.getValue();
+      lanes.get(e.getKey()).execute(ctx::dispose);
+      lanes.get(e.getKey()).shutdown();
+    }
+  }
+
+  private void enqueue(String name, Runnable op) {
+    lanes
+        .get(name)
+        .execute(
+            () -> {
+              if (broken.contains(name)) {
+                return;
+              }
+              try {
+                op.run();
+              } catch (RuntimeException ex) {
+                logger.warning("Disabling " + name + " in portfolio context: " + ex);
+                broken.add(name);
+              }
+            });
+  }
+}
@@ -17,8 +17,21 @@
  * limitations under the License.
  */
 
-package gov.nasa.jpf.constraints.solvers.encapsulation.messages;
+package tools.aqua.jconstraints.solvers.portfolio.parallel;
 
-import java.io.Serializable;
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import java.util.Properties;
 
-public class TimeOutSolvingMessage implements Serializable {}
+public class ParallelPortfolioSolverProvider implements ConstraintSolverProvider {
+
+  @Override
+  public String[] getNames() {
+    return new String[] {ParallelPortfolioSolver.NAME, "parallel"};
+  }
+
+  @Override
+  public ConstraintSolver createSolver(Properties properties) {
+    return new ParallelPortfolioSolver(properties);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.parallel;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs one query on several backends at once and returns the first definitive answer. Every
+ * backend has its own single threaded lane, so a backend is never used by two threads at the same
+ * time. Losers are cancelled and, if they are still solving, stopped through their native
+ * interrupt; a loser that does not react only delays later work on its own lane.
+ */
+final class PortfolioRace {
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  static final class Answer {
+    final String solver;
+    final Result result;
+    final Valuation valuation;
+
+    Answer(String solver, Result result, Valuation valuation) {
+      this.solver = solver;
+      this.result = result;
+      this.valuation = valuation;
+    }
+  }
+
+  private PortfolioRace() {}
+
+  static ExecutorService newLane(String solver) {
+    return Executors.newSingleThreadExecutor(
+        r -> {
+          Thread t = new Thread(r, "portfolio-" + solver);
+          t.setDaemon(true);
+          return t;
+        });
+  }
+
+  /**
+   * Submits {@code tasks.get(i)} to {@code lanes.get(i)} and waits for the first answer that is SAT
+   * with a model satisfying {@code expression}, or UNSAT. All other tasks are cancelled, and
+   * {@code interrupts.get(i)} is run for every task that is still running.
+   *
+   * @return the winning answer, or {@code null} if no backend gave a definitive answer
+   */
+  static Answer run(
+      List<ExecutorService> lanes,
+      List<Callable<Answer>> tasks,
+      List<Runnable> interrupts,
+      Expression<Boolean> expression) {
+    BlockingQueue<Future<Answer>> finished = new LinkedBlockingQueue<>();
+    List<Future<Answer>> futures = new ArrayList<>(tasks.size());
+    List<AtomicBoolean> running = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      Callable<Answer> task = tasks.get(i);
+      AtomicBoolean solving = new AtomicBoolean();
+      FutureTask<Answer> f =
+          new FutureTask<Answer>(
+              () -> {
+                solving.set(true);
+                try {
+                  return task.call();
+                } finally {
+                  solving.set(false);
+                }
+              }) {
+            @Override
+            protected void done() {
+              finished.offer(this);
+            }
+          };
+      lanes.get(i).execute(f);
+      futures.add(f);
+      running.add(solving);
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        Answer a;
+        try {
+          a = finished.take().get();
+        } catch (ExecutionException | CancellationException e) {
+          logger.log(Level.FINE, "Portfolio backend failed", e);
+          continue;
+        }
+        if (isDefinitive(a, expression)) {
+          logger.finer("Portfolio winner: " + a.solver);
+          return a;
+        }
+      }
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      for (int i = 0; i < futures.size(); i++) {
+        futures.get(i).cancel(true);
+        if (running.get(i).get()) {
+          interrupt(interrupts.get(i));
+        }
+      }
+    }
+  }
+
+  private static void interrupt(Runnable interrupt) {
+    try {
+      interrupt.run();
+    } catch (RuntimeException e) {
+      logger.log(Level.FINE, "Cannot interrupt portfolio backend", e);
+    }
+  }
+
+  private static boolean isDefinitive(Answer a, Expression<Boolean> expression) {
+    if (a.result == Result.UNSAT) {
+      return true;
+    }
+    if (a.result != Result.SAT) {
+      return false;
+    }
+    try {
+      return expression.evaluateSMT(a.valuation);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+}
@@ -22,6 +22,7 @@ package tools.aqua.jconstraints.solvers.portfolio.sequential;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.SolverPhase;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
 import java.util.HashMap;
@@ -50,6 +51,7 @@ public class SequentialMultiStrategySolver extends ConstraintSolver {
     if (isCVC4enabled && isStringOrFloatExpression) {
       Result res = solvers.get(CVC4).solve(expression, valuation);
       if (res.equals(Result.SAT)) {
+        long start = listeners().start();
         try {
           boolean evaluation = expression.evaluateSMT(valuation);
           if (!evaluation) {
@@ -57,6 +59,8 @@ public class SequentialMultiStrategySolver extends ConstraintSolver {
           }
         } catch (Exception e) {
           res = Result.DONT_KNOW;
+        } finally {
+          listeners().phaseFinished(SolverPhase.MODEL_VALIDATION, start);
         }
       }
       if (!res.equals(Result.DONT_KNOW)) {
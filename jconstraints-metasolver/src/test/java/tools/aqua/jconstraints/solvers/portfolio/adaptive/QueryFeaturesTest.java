@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+import tools.aqua.jconstraints.solvers.portfolio.adaptive.QueryFeatures.Theory;
+
+public class QueryFeaturesTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+  private static final Variable<Integer> Y = Variable.create(BuiltinTypes.SINT32, "y");
+  private static final Constant<Integer> ZERO = Constant.create(BuiltinTypes.SINT32, 0);
+
+  private static Expression<Boolean> compare(NumericOperator op, NumericComparator cmp) {
+    return NumericBooleanExpression.create(NumericCompound.create(X, op, Y), cmp, ZERO);
+  }
+
+  @Test
+  public void extractsTheoriesAndOperators() {
+    Expression<Boolean> e =
+        PropositionalCompound.create(
+            compare(NumericOperator.MUL, NumericComparator.GT),
+            LogicalOperator.AND,
+            compare(NumericOperator.PLUS, NumericComparator.GT));
+    QueryFeatures features = QueryFeatures.of(e);
+    assertEquals(
+        EnumSet.of(Theory.BOOL, Theory.NONLINEAR, Theory.BITVECTOR), features.getTheories());
+    assertEquals(1, (int) features.getOperators().get(NumericOperator.MUL.toString()));
+    assertEquals(1, (int) features.getOperators().get(NumericOperator.PLUS.toString()));
+    assertEquals(2, (int) features.getOperators().get(NumericComparator.GT.toString()));
+    assertEquals(1, (int) features.getOperators().get(LogicalOperator.AND.toString()));
+    assertEquals(11, features.getNodeCount());
+    assertEquals(4, features.getDepth());
+    assertEquals(2, features.getVariableCount());
+  }
+
+  @Test
+  public void shapeDistinguishesOperators() {
+    QueryFeatures plus = QueryFeatures.of(compare(NumericOperator.PLUS, NumericComparator.LT));
+    QueryFeatures minus = QueryFeatures.of(compare(NumericOperator.MINUS, NumericComparator.LT));
+    assertEquals(plus.getTheoryKey(), minus.getTheoryKey());
+    assertNotEquals(plus.getShape(), minus.getShape());
+    assertEquals(
+        plus.getShape(),
+        QueryFeatures.of(compare(NumericOperator.PLUS, NumericComparator.LT)).getShape());
+  }
+
+  @Test
+  public void deepConjunctionsDoNotOverflow() {
+    Expression<Boolean> atom = compare(NumericOperator.PLUS, NumericComparator.LT);
+    Expression<Boolean> e = atom;
+    for (int i = 1; i < 100_000; i++) {
+      e = PropositionalCompound.create(e, LogicalOperator.AND, atom);
+    }
+    QueryFeatures features = QueryFeatures.of(e);
+    assertEquals(100_002, features.getDepth());
+    assertEquals(99_999, (int) features.getOperators().get(LogicalOperator.AND.toString()));
+  }
+}
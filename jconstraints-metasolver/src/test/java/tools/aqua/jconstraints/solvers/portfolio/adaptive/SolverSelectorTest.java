@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.adaptive;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import org.junit.jupiter.api.Test;
+
+public class SolverSelectorTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+  private static final Variable<Integer> Y = Variable.create(BuiltinTypes.SINT32, "y");
+  private static final Constant<Integer> ZERO = Constant.create(BuiltinTypes.SINT32, 0);
+
+  private static QueryFeatures query(NumericComparator cmp, NumericOperator... ops) {
+    Expression<Integer> term = X;
+    for (NumericOperator op : ops) {
+      term = NumericCompound.create(term, op, Y);
+    }
+    return QueryFeatures.of(NumericBooleanExpression.create(term, cmp, ZERO));
+  }
+
+  @Test
+  public void unexploredSolversComeFirst() {
+    SolverSelector selector = new SolverSelector(asList("a", "b"));
+    QueryFeatures q = query(NumericComparator.GT, NumericOperator.PLUS);
+    assertEquals(asList("b", "a"), selector.rank(q, "b"));
+
+    selector.record(q, "b", 100, true);
+    assertEquals(asList("a", "b"), selector.rank(q, "b"));
+    selector.record(q, "a", 1000, true);
+    assertEquals(asList("b", "a"), selector.rank(q, "a"));
+  }
+
+  @Test
+  public void failuresArePenalized() {
+    SolverSelector selector = new SolverSelector(asList("a", "b"));
+    QueryFeatures q = query(NumericComparator.GT, NumericOperator.PLUS);
+    selector.record(q, "a", 100, false);
+    selector.record(q, "b", 200, true);
+    assertEquals(asList("b", "a"), selector.rank(q, "a"));
+  }
+
+  @Test
+  public void unseenShapesAreEstimatedFromTheirOperators() {
+    SolverSelector selector = new SolverSelector(asList("slow", "fast"));
+    QueryFeatures mul = query(NumericComparator.GT, NumericOperator.MUL);
+    QueryFeatures plus = query(NumericComparator.LT, NumericOperator.PLUS);
+    selector.record(mul, "slow", 100, true);
+    selector.record(mul, "fast", 10, true);
+    selector.record(plus, "slow", 10, true);
+    selector.record(plus, "fast", 100, true);
+
+    // same theories as both recorded queries, but only the operators of the first
+    QueryFeatures unseen = query(NumericComparator.GT, NumericOperator.MUL, NumericOperator.MUL);
+    assertEquals(100.0, selector.estimate(unseen, "slow"), 1e-9);
+    assertEquals(10.0, selector.estimate(unseen, "fast"), 1e-9);
+    assertEquals(asList("fast", "slow"), selector.rank(unseen, "slow"));
+  }
+}
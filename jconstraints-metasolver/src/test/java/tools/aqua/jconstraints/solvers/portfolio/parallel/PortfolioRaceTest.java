@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tools.aqua.jconstraints.solvers.portfolio.parallel;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tools.aqua.jconstraints.solvers.portfolio.parallel.PortfolioRace.Answer;
+
+public class PortfolioRaceTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+
+  private static final Expression<Boolean> X_POSITIVE =
+      NumericBooleanExpression.create(
+          X, NumericComparator.GT, Constant.create(BuiltinTypes.SINT32, 0));
+
+  private final ExecutorService a = PortfolioRace.newLane("a");
+  private final ExecutorService b = PortfolioRace.newLane("b");
+
+  @AfterEach
+  public void shutdown() {
+    a.shutdownNow();
+    b.shutdownNow();
+  }
+
+  /** A backend that, like native code, ignores thread interruption and only reacts to its hook. */
+  private static class Backend {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch stopped = new CountDownLatch(1);
+    final AtomicInteger interrupts = new AtomicInteger();
+
+    Callable<Answer> task() {
+      return () -> {
+        started.countDown();
+        while (true) {
+          try {
+            stopped.await();
+            return new Answer("slow", Result.DONT_KNOW, new Valuation());
+          } catch (InterruptedException e) {
+            // not seen by native code
+          }
+        }
+      };
+    }
+
+    void interrupt() {
+      interrupts.incrementAndGet();
+      stopped.countDown();
+    }
+  }
+
+  private static Answer answer(String solver, Result result, int x) {
+    Valuation val = new Valuation();
+    val.setValue(X, x);
+    return new Answer(solver, result, val);
+  }
+
+  @Test
+  public void firstDefinitiveAnswerWinsAndStopsTheLosers() throws Exception {
+    Backend slow = new Backend();
+    AtomicInteger winnerInterrupts = new AtomicInteger();
+    Answer winner =
+        PortfolioRace.run(
+            asList(a, b),
+            asList(
+                slow.task(),
+                () -> {
+                  slow.started.await();
+                  return answer("fast", Result.UNSAT, 0);
+                }),
+            asList(slow::interrupt, winnerInterrupts::incrementAndGet),
+            X_POSITIVE);
+
+    assertEquals("fast", winner.solver);
+    assertEquals(Result.UNSAT, winner.result);
+    assertEquals(1, slow.interrupts.get());
+    assertEquals(0, winnerInterrupts.get());
+    // the loser gave its lane back
+    assertEquals("free", a.submit(() -> "free").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void modelsAreValidatedBeforeTheyWin() {
+    CountDownLatch invalidAnswered = new CountDownLatch(1);
+    Answer winner =
+        PortfolioRace.run(
+            asList(a, b),
+            asList(
+                () -> {
+                  invalidAnswered.countDown();
+                  return answer("invalid", Result.SAT, 0);
+                },
+                () -> {
+                  invalidAnswered.await();
+                  return answer("valid", Result.SAT, 1);
+                }),
+            asList(() -> {}, () -> {}),
+            X_POSITIVE);
+
+    assertEquals("valid", winner.solver);
+    assertEquals(1, (int) winner.valuation.getValue(X));
+  }
+
+  @Test
+  public void queuedLosersAreCancelledWithoutInterrupt() throws Exception {
+    CountDownLatch busy = new CountDownLatch(1);
+    a.execute(
+        () -> {
+          try {
+            busy.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    AtomicBoolean ran = new AtomicBoolean();
+    AtomicInteger interrupts = new AtomicInteger();
+    Answer winner =
+        PortfolioRace.run(
+            asList(a, b),
+            asList(
+                () -> {
+                  ran.set(true);
+                  return answer("queued", Result.UNSAT, 0);
+                },
+                () -> answer("fast", Result.UNSAT, 0)),
+            asList(interrupts::incrementAndGet, () -> {}),
+            X_POSITIVE);
+
+    assertEquals("fast", winner.solver);
+    busy.countDown();
+    a.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    assertFalse(ran.get());
+    assertEquals(0, interrupts.get());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package runner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Streams batch results to a {@link Writer}, one line per file, flushing after every record so
+ * that partial results survive an aborted run. The JSON format writes one object per line (JSON
+ * Lines).
+ */
+public class BatchResultWriter implements Closeable {
+
+  public enum Format {
+    CSV,
+    JSON;
+
+    public static Format fromFileName(String name) {
+      String lower = name.toLowerCase(Locale.ROOT);
+      return lower.endsWith(".json") || lower.endsWith(".jsonl") ? JSON : CSV;
+    }
+  }
+
+  private final Writer out;
+
+  private final Format format;
+
+  public BatchResultWriter(Writer out, Format format) throws IOException {
+    this.out = out;
+    this.format = format;
+    if (format == Format.CSV) {
+      out.write("file,status,time_ms,model_validated\n");
+      out.flush();
+    }
+  }
+
+  /**
+   * Writes one record.
+   *
+   * @param modelValidated whether the SAT model satisfied the problem, or {@code null} if no model
+   *     was checked
+   */
+  public synchronized void write(
+      String file, String status, long timeMillis, Boolean modelValidated) throws IOException {
+    if (format == Format.CSV) {
+      out.write(csv(file));
+      out.write(',');
+      out.write(status);
+      out.write(',');
+      out.write(Long.toString(timeMillis));
+      out.write(',');
+      out.write(modelValidated == null ? "" : modelValidated.toString());
+    } else {
+      out.write("{\"file\":");
+      out.write(json(file));
+      out.write(",\"status\":");
+      out.write(json(status));
+      out.write(",\"time_ms\":");
+      out.write(Long.toString(timeMillis));
+      out.write(",\"model_validated\":");
+      out.write(modelValidated == null ? "null" : modelValidated.toString());
+      out.write('}');
+    }
+    out.write('\n');
+    out.flush();
+  }
+
+  private static String csv(String s) {
+    if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+      return s;
+    }
+    return '"' + s.replace("\"", "\"\"") + '"';
+  }
+
+  private static String json(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    out.close();
+  }
+}
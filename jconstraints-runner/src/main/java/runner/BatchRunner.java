@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package runner;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.exceptions.SolverTimeoutException;
+import gov.nasa.jpf.constraints.smtlibUtility.SMTProblem;
+import gov.nasa.jpf.constraints.solvers.encapsulation.ProcessWrapperSolver;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import structuralEquivalence.Processor;
+
+/**
+ * Solves many SMT-LIB files in one JVM. Files are parsed by a bounded pool of worker threads and
+ * solved by a {@link ProcessWrapperSolver} with one child process per worker; a child that exceeds
+ * the timeout is killed and replaced. Results are streamed to a {@link BatchResultWriter} as soon
+ * as each file finishes.
+ */
+public class BatchRunner {
+
+  private static final Logger logger = Logger.getLogger("constraints");
+
+  private final ProcessWrapperSolver solver;
+
+  private final int workers;
+
+  public BatchRunner(String solverName, int workers, int timeoutSeconds) {
+    this.workers = workers;
+    this.solver = new ProcessWrapperSolver(solverName, "", workers);
+    this.solver.setTimeout(timeoutSeconds);
+  }
+
+  /** Solves all {@code files} and writes one record per file. Returns the number of failures. */
+  public int run(List<File> files, BatchResultWriter results) throws InterruptedException {
+    solver.prewarm();
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            workers,
+            r -> {
+              Thread t = new Thread(r, "batch-runner");
+              t.setDaemon(true);
+              return t;
+            });
+    List<Future<Boolean>> pending = new ArrayList<>(files.size());
+    for (File f : files) {
+      pending.add(pool.submit(() -> solveFile(f, results)));
+    }
+    pool.shutdown();
+    int failures = 0;
+    for (Future<Boolean> f : pending) {
+      try {
+        if (!f.get()) {
+          failures++;
+        }
+      } catch (ExecutionException e) {
+        logger.log(Level.SEVERE, "Batch task failed", e.getCause());
+        failures++;
+      }
+    }
+    try {
+      solver.shutdown();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot stop solver processes", e);
+    }
+    return failures;
+  }
+
+  private boolean solveFile(File file, BatchResultWriter results) throws IOException {
+    long start = System.nanoTime();
+    String status;
+    Boolean validated = null;
+    try {
+      SMTProblem problem = Processor.parseFile(file);
+      Expression<Boolean> query = problem.getAllAssertionsAsConjunction();
+      Valuation val = new Valuation();
+      Result res = solver.solveOrTimeout(query, val);
+      status = res.toString();
+      if (res == Result.SAT) {
+        validated = validate(query, val);
+      }
+    } catch (SolverTimeoutException e) {
+      status = "TIMEOUT";
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot solve " + file, e);
+      status = "ERROR";
+    }
+    results.write(file.getPath(), status, elapsedMillis(start), validated);
+    return !"ERROR".equals(status) && !Boolean.FALSE.equals(validated);
+  }
+
+  private static boolean validate(Expression<Boolean> query, Valuation val) {
+    try {
+      return query.evaluateSMT(val);
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  private static long elapsedMillis(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
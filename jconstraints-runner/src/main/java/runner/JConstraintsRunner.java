@@ -24,7 +24,16 @@ import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.smtlibUtility.SMTProblem;
 import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
 import gov.nasa.jpf.constraints.solvers.encapsulation.ProcessWrapperSolver;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -32,6 +41,7 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import structuralEquivalence.Processor;
+import structuralEquivalence.Scanner;
 
 public class JConstraintsRunner {
 
@@ -39,12 +49,40 @@ public class JConstraintsRunner {
     CommandLineParser parser = new DefaultParser();
     try {
       CommandLine cmd = parser.parse(setupOptions(), args);
-      (new JConstraintsRunner()).runProgram(cmd);
-    } catch (ParseException e) {
+      if (cmd.hasOption("dir")) {
+        (new JConstraintsRunner()).runBatch(cmd);
+      } else if (cmd.hasOption("smt")) {
+        (new JConstraintsRunner()).runProgram(cmd);
+      } else {
+        throw new ParseException("Either --smt_file or --dir is required");
+      }
+    } catch (ParseException | IOException | InterruptedException e) {
       e.printStackTrace();
     }
   }
 
+  private void runBatch(CommandLine cmd) throws IOException, InterruptedException {
+    List<File> files = new Scanner(new File(cmd.getOptionValue("dir"))).getCollectedFiles();
+    int jobs = Integer.parseInt(cmd.getOptionValue("jobs", "1"));
+    int timeout = Integer.parseInt(cmd.getOptionValue("timeout", "60"));
+    String output = cmd.getOptionValue("output");
+    Writer out =
+        output == null
+            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+            : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+    BatchResultWriter.Format format =
+        cmd.hasOption("format")
+            ? BatchResultWriter.Format.valueOf(
+                cmd.getOptionValue("format").toUpperCase(Locale.ROOT))
+            : BatchResultWriter.Format.fromFileName(output == null ? "" : output);
+
+    int failures;
+    try (BatchResultWriter results = new BatchResultWriter(out, format)) {
+      failures = new BatchRunner(cmd.getOptionValue("s"), jobs, timeout).run(files, results);
+    }
+    System.exit(failures == 0 ? 0 : 1);
+  }
+
   private void runProgram(CommandLine cmd) {
     String filepath = cmd.getOptionValue("smt");
     String solver = cmd.getOptionValue("s");
@@ -79,13 +117,27 @@ public class JConstraintsRunner {
 
   private static Options setupOptions() {
 
-    Option smtRootFolder = Option.builder("smt").longOpt("smt_file").hasArg().required().build();
+    Option smtRootFolder = Option.builder("smt").longOpt("smt_file").hasArg().build();
     Option solver = Option.builder("s").longOpt("solver").hasArg().required().build();
+    Option dir =
+        Option.builder("d").longOpt("dir").desc("solve all smt files below dir").hasArg().build();
+    Option jobs =
+        Option.builder("j").longOpt("jobs").desc("parallel solver processes").hasArg().build();
+    Option timeout =
+        Option.builder("t").longOpt("timeout").desc("timeout per file in seconds").hasArg().build();
+    Option output =
+        Option.builder("o").longOpt("output").desc("result file (.csv or .json)").hasArg().build();
+    Option format = Option.builder().longOpt("format").desc("csv or json").hasArg().build();
 
     Options checkerOptions = new Options();
 
     checkerOptions.addOption(smtRootFolder);
     checkerOptions.addOption(solver);
+    checkerOptions.addOption(dir);
+    checkerOptions.addOption(jobs);
+    checkerOptions.addOption(timeout);
+    checkerOptions.addOption(output);
+    checkerOptions.addOption(format);
     return checkerOptions;
   }
 }
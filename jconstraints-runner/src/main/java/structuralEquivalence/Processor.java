@@ -22,18 +22,15 @@ package structuralEquivalence;
 import gov.nasa.jpf.constraints.smtlibUtility.SMTProblem;
 import gov.nasa.jpf.constraints.smtlibUtility.parser.SMTLIBParser;
 import gov.nasa.jpf.constraints.smtlibUtility.parser.SMTLIBParserException;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import structuralEquivalence.expressionVisitor.EquivalenceVisitor;
 
 public class Processor {
 
   public static SMTProblem parseFile(File smtFile) {
-    try (BufferedReader reader = new BufferedReader(new FileReader(smtFile))) {
-      String fileContent = reader.lines().reduce("", (a, b) -> b.startsWith(";") ? a : a + b);
-      return SMTLIBParser.parseSMTProgram(fileContent);
+    try {
+      return SMTLIBParser.parseSMTProgram(smtFile.toPath());
     } catch (IOException | SMTLIBParserException e) {
       e.printStackTrace();
       throw new RuntimeException(e);
@@ -23,9 +23,15 @@ import gov.nasa.jpf.constraints.smtlibUtility.SMTProblem;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -34,31 +40,58 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import structuralEquivalence.expressionVisitor.OperatorStatistics;
+import structuralEquivalence.expressionVisitor.StructuralHash;
 
 public class StructuralEquivalenceCheck {
 
   Logger logger = Logger.getLogger("Main");
 
-  private List<ProblemInstance> knownProblems = new ArrayList<>();
+  private final List<ProblemInstance> knownProblems =
+      Collections.synchronizedList(new ArrayList<>());
 
   public static void main(String args[]) {
     CommandLineParser parser = new DefaultParser();
     try {
       CommandLine cmd = parser.parse(setupOptions(), args);
       (new StructuralEquivalenceCheck()).runProgram(cmd);
-    } catch (ParseException e) {
+    } catch (ParseException | InterruptedException e) {
       e.printStackTrace();
     }
   }
 
-  private void runProgram(CommandLine cmd) {
+  private void runProgram(CommandLine cmd) throws InterruptedException {
     String smtFolder = cmd.getOptionValue("smt");
+    String defaultJobs = Integer.toString(Runtime.getRuntime().availableProcessors());
+    int jobs = Integer.parseInt(cmd.getOptionValue("jobs", defaultJobs));
     File smtFolderFile = new File(smtFolder);
     if (smtFolderFile.exists()) {
       Scanner collectedSMTFiles = new Scanner(smtFolderFile);
-      for (File f : collectedSMTFiles.getCollectedFiles()) {
-        checkSMTFile(f);
+      List<File> files = collectedSMTFiles.getCollectedFiles();
+      SMTProblem[] problems = new SMTProblem[files.size()];
+      long[] hashes = new long[files.size()];
+      ExecutorService pool = Executors.newFixedThreadPool(jobs);
+      for (int i = 0; i < files.size(); i++) {
+        final int index = i;
+        pool.execute(() -> parseSMTFile(files.get(index), index, problems, hashes));
       }
+      pool.shutdown();
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+      // only problems with the same structural hash are compared, in the order of the corpus, so
+      // the first file of every equivalence class represents it regardless of thread timing
+      Map<Long, List<Integer>> buckets = new HashMap<>();
+      for (int i = 0; i < files.size(); i++) {
+        if (problems[i] != null) {
+          buckets.computeIfAbsent(hashes[i], h -> new ArrayList<>()).add(i);
+        }
+      }
+      pool = Executors.newFixedThreadPool(jobs);
+      for (List<Integer> bucket : buckets.values()) {
+        pool.execute(() -> checkBucket(bucket, files, problems));
+      }
+      pool.shutdown();
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      knownProblems.sort(Comparator.comparingInt(p -> p.index));
       System.out.println(generateReport());
 
       HashMap<String, Integer> data = new HashMap<>();
@@ -80,23 +113,44 @@ public class StructuralEquivalenceCheck {
     }
   }
 
-  private void checkSMTFile(File smtFile) {
+  private void parseSMTFile(File smtFile, int index, SMTProblem[] problems, long[] hashes) {
     try {
       SMTProblem problem = Processor.parseFile(smtFile);
-      for (ProblemInstance known : knownProblems) {
-
-        if (Processor.compareProblems(problem, known.problem)) {
-          known.addEquivalentProblem(smtFile);
-          return;
-        }
-      }
-      knownProblems.add(new ProblemInstance(problem, smtFile));
+      hashes[index] = StructuralHash.of(problem.getAllAssertionsAsConjunction());
+      problems[index] = problem;
     } catch (Throwable e) {
       System.out.println(String.format("Cought an exception checking: %s", smtFile));
       e.printStackTrace();
     }
   }
 
+  /** Splits the problems at the ascending {@code indices} into equivalence classes. */
+  private void checkBucket(List<Integer> indices, List<File> files, SMTProblem[] problems) {
+    List<ProblemInstance> unique = new ArrayList<>();
+    for (int index : indices) {
+      File smtFile = files.get(index);
+      try {
+        if (!addToKnown(unique, problems[index], smtFile)) {
+          unique.add(new ProblemInstance(problems[index], smtFile, index));
+        }
+      } catch (Throwable e) {
+        System.out.println(String.format("Cought an exception checking: %s", smtFile));
+        e.printStackTrace();
+      }
+    }
+    knownProblems.addAll(unique);
+  }
+
+  private static boolean addToKnown(List<ProblemInstance> unique, SMTProblem problem, File file) {
+    for (ProblemInstance known : unique) {
+      if (Processor.compareProblems(problem, known.problem)) {
+        known.addEquivalentProblem(file);
+        return true;
+      }
+    }
+    return false;
+  }
+
   private String generateReport() {
     StringBuilder a = new StringBuilder();
     for (ProblemInstance i : knownProblems) {
@@ -120,10 +174,12 @@ public class StructuralEquivalenceCheck {
 
     Option smtRootFolder =
         Option.builder("smt").longOpt("smt root folder").hasArg().required().build();
+    Option jobs = Option.builder("j").longOpt("jobs").desc("worker threads").hasArg().build();
 
     Options checkerOptions = new Options();
 
     checkerOptions.addOption(smtRootFolder);
+    checkerOptions.addOption(jobs);
     return checkerOptions;
   }
 
@@ -132,9 +188,12 @@ public class StructuralEquivalenceCheck {
     public int varCount;
     public File problemLocation;
     public List<File> equivalentProblems;
+    // position of the file in the scanned corpus, used to keep the report order stable
+    public int index;
 
-    public ProblemInstance(SMTProblem problem, File location) {
+    public ProblemInstance(SMTProblem problem, File location, int index) {
       this.problem = problem;
+      this.index = index;
       varCount = ExpressionUtil.freeVariables(problem.getAllAssertionsAsConjunction()).size();
       this.problemLocation = location;
       this.equivalentProblems = new LinkedList<>();
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package structuralEquivalence.expressionVisitor;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.BitvectorExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.expressions.QuantifierExpression;
+import gov.nasa.jpf.constraints.expressions.RegexCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.RegexOperatorExpression;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.StringCompoundExpression;
+import gov.nasa.jpf.constraints.expressions.StringIntegerExpression;
+import gov.nasa.jpf.constraints.util.ExpressionTraversal;
+import java.util.List;
+
+/**
+ * Variable-renaming-invariant structural hash of an expression. Variables only contribute their
+ * type, so expressions considered equal by {@link EquivalenceVisitor} always share a hash and the
+ * expensive visitor comparison can be restricted to problems with the same hash.
+ */
+public final class StructuralHash {
+
+  /** Hash of expressions that cannot be traversed, e.g. let expressions. */
+  public static final long UNHASHABLE = 0L;
+
+  private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+
+  private StructuralHash() {}
+
+  public static long of(Expression<?> expr) {
+    try {
+      long h = hash(expr);
+      return h == UNHASHABLE ? 1L : h;
+    } catch (UnsupportedOperationException e) {
+      return UNHASHABLE;
+    }
+  }
+
+  private static long hash(Expression<?> e) {
+    return e == null ? NULL_HASH : HASHER.apply(e);
+  }
+
+  /** Hashes bottom-up without recursion, path conditions can be very deep. */
+  private static final ExpressionTraversal<Long> HASHER =
+      new ExpressionTraversal<Long>() {
+        @Override
+        protected Long exit(Expression<?> e, List<Long> children) {
+          long h = e.getClass().getName().hashCode();
+          if (e instanceof Variable) {
+            return mix(h, e.getType().getName().hashCode());
+          }
+          if (e instanceof Constant) {
+            Object value = ((Constant<?>) e).getValue();
+            h = mix(h, e.getType().getName().hashCode());
+            return mix(h, value == null ? 0 : value.hashCode());
+          }
+          h = mix(h, String.valueOf(operatorOf(e)).hashCode());
+          for (Long child : children) {
+            h = mix(h, child == null ? NULL_HASH : child);
+          }
+          return h;
+        }
+      };
+
+  /** The operator compared by {@link EquivalenceVisitor}, or {@code null}. */
+  private static Object operatorOf(Expression<?> e) {
+    if (e instanceof NumericBooleanExpression) {
+      return ((NumericBooleanExpression) e).getComparator();
+    } else if (e instanceof NumericCompound) {
+      return ((NumericCompound<?>) e).getOperator();
+    } else if (e instanceof PropositionalCompound) {
+      return ((PropositionalCompound) e).getOperator();
+    } else if (e instanceof BitvectorExpression) {
+      return ((BitvectorExpression<?>) e).getOperator();
+    } else if (e instanceof StringBooleanExpression) {
+      return ((StringBooleanExpression) e).getOperator();
+    } else if (e instanceof StringIntegerExpression) {
+      return ((StringIntegerExpression) e).getOperator();
+    } else if (e instanceof StringCompoundExpression) {
+      return ((StringCompoundExpression) e).getOperator();
+    } else if (e instanceof RegexCompoundExpression) {
+      return ((RegexCompoundExpression) e).getOperator();
+    } else if (e instanceof RegexOperatorExpression) {
+      return ((RegexOperatorExpression) e).getOperator();
+    } else if (e instanceof QuantifierExpression) {
+      return ((QuantifierExpression) e).getQuantifier();
+    }
+    return null;
+  }
+
+  private static long mix(long h, long v) {
+    h = (h ^ v) * 0x100000001B3L;
+    return h ^ (h >>> 29);
+  }
+}
@@ -121,7 +121,7 @@ public class OperationsCounterII {
   private UsedOperations countOperations(Path file) {
     SMTProblem problem = null;
     try {
-      problem = SMTLIBParser.parseSMTProgramFromFile(file.toString());
+      problem = SMTLIBParser.parseSMTProgram(file);
       OperatorStatistics visitor = new OperatorStatistics();
       HashMap<String, Integer> data = new HashMap<>();
       problem.assertions.forEach(
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+public class BatchResultWriterTest {
+
+  private static String write(BatchResultWriter.Format format, StringWriter out)
+      throws IOException {
+    try (BatchResultWriter results = new BatchResultWriter(out, format)) {
+      results.write("a.smt2", "SAT", 12, true);
+      results.write("b,\"c\".smt2", "TIMEOUT", 1000, null);
+      results.write("d\\e.smt2", "ERROR", 3, null);
+    }
+    return out.toString();
+  }
+
+  @Test
+  public void writesCsvWithHeader() throws IOException {
+    assertEquals(
+        "file,status,time_ms,model_validated\n"
+            + "a.smt2,SAT,12,true\n"
+            + "\"b,\"\"c\"\".smt2\",TIMEOUT,1000,\n"
+            + "d\\e.smt2,ERROR,3,\n",
+        write(BatchResultWriter.Format.CSV, new StringWriter()));
+  }
+
+  @Test
+  public void writesJsonLines() throws IOException {
+    assertEquals(
+        "{\"file\":\"a.smt2\",\"status\":\"SAT\",\"time_ms\":12,\"model_validated\":true}\n"
+            + "{\"file\":\"b,\\\"c\\\".smt2\",\"status\":\"TIMEOUT\",\"time_ms\":1000,"
+            + "\"model_validated\":null}\n"
+            + "{\"file\":\"d\\\\e.smt2\",\"status\":\"ERROR\",\"time_ms\":3,"
+            + "\"model_validated\":null}\n",
+        write(BatchResultWriter.Format.JSON, new StringWriter()));
+  }
+
+  @Test
+  public void formatFollowsFileName() {
+    assertEquals(BatchResultWriter.Format.JSON, BatchResultWriter.Format.fromFileName("out.JSONL"));
+    assertEquals(BatchResultWriter.Format.JSON, BatchResultWriter.Format.fromFileName("out.json"));
+    assertEquals(BatchResultWriter.Format.CSV, BatchResultWriter.Format.fromFileName("out.csv"));
+    assertEquals(BatchResultWriter.Format.CSV, BatchResultWriter.Format.fromFileName(""));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchRunnerTest {
+
+  @TempDir Path dir;
+
+  private File smt(String name, String content) throws IOException {
+    return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8)).toFile();
+  }
+
+  @Test
+  public void reportsTimeoutsAndFailures() throws Exception {
+    File unsat = smt("unsat.smt2", "(declare-fun x () Int)\n(assert (> x 0))\n(check-sat)\n");
+    File hang = smt("hang.smt2", "(declare-fun hang () Int)\n(assert (> hang 0))\n(check-sat)\n");
+    File missing = dir.resolve("missing.smt2").toFile();
+
+    StringWriter out = new StringWriter();
+    int failures;
+    try (BatchResultWriter results = new BatchResultWriter(out, BatchResultWriter.Format.CSV)) {
+      failures =
+          new BatchRunner(HangingSolver.NAME, 2, 1)
+              .run(Arrays.asList(unsat, hang, missing), results);
+    }
+
+    Map<String, String> status = new HashMap<>();
+    String[] lines = out.toString().split("\n");
+    assertEquals("file,status,time_ms,model_validated", lines[0]);
+    for (int i = 1; i < lines.length; i++) {
+      String[] row = lines[i].split(",", -1);
+      assertEquals("", row[3]);
+      status.put(row[0], row[1]);
+    }
+    assertEquals("UNSAT", status.get(unsat.getPath()));
+    assertEquals("TIMEOUT", status.get(hang.getPath()));
+    assertEquals("ERROR", status.get(missing.getPath()));
+    assertEquals(3, status.size());
+    assertEquals(1, failures);
+  }
+}
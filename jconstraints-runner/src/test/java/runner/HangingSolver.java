@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package runner;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverProvider;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import java.util.Properties;
+
+/**
+ * Solver for tests of the batch runner. Blocks until it is interrupted if the query has a variable
+ * named {@code hang} and reports every other query as unsatisfiable.
+ */
+public class HangingSolver extends ConstraintSolver {
+
+  public static final String NAME = "hanging";
+
+  public static class Provider implements ConstraintSolverProvider {
+
+    @Override
+    public String[] getNames() {
+      return new String[] {NAME};
+    }
+
+    @Override
+    public ConstraintSolver createSolver(Properties config) {
+      return new HangingSolver();
+    }
+  }
+
+  @Override
+  public Result solve(Expression<Boolean> f, Valuation result) {
+    for (Variable<?> v : ExpressionUtil.freeVariables(f)) {
+      if (v.getName().equals("hang")) {
+        try {
+          Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+          return Result.DONT_KNOW;
+        }
+      }
+    }
+    return Result.UNSAT;
+  }
+}
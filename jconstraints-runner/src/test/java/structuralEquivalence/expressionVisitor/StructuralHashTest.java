@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package structuralEquivalence.expressionVisitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import org.junit.jupiter.api.Test;
+
+public class StructuralHashTest {
+
+  private final Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+  private final Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+  private final Variable<Integer> z = Variable.create(BuiltinTypes.SINT32, "z");
+  private final Constant<Integer> c = Constant.create(BuiltinTypes.SINT32, 5);
+
+  private static Expression<Boolean> cmp(
+      Expression<Integer> l, NumericComparator op, Expression<Integer> r) {
+    return NumericBooleanExpression.create(l, op, r);
+  }
+
+  @Test
+  public void renamedExpressionsShareAHash() {
+    Expression<Boolean> a =
+        ExpressionUtil.and(cmp(x, NumericComparator.LT, y), cmp(y, NumericComparator.GT, c));
+    Expression<Boolean> b =
+        ExpressionUtil.and(cmp(y, NumericComparator.LT, z), cmp(z, NumericComparator.GT, c));
+    assertEquals(StructuralHash.of(a), StructuralHash.of(b));
+    assertTrue(a.accept(new EquivalenceVisitor(), b));
+  }
+
+  @Test
+  public void operatorsAndConstantsChangeTheHash() {
+    Expression<Boolean> lt = cmp(x, NumericComparator.LT, c);
+    assertNotEquals(StructuralHash.of(lt), StructuralHash.of(cmp(x, NumericComparator.GT, c)));
+    assertNotEquals(
+        StructuralHash.of(lt),
+        StructuralHash.of(cmp(x, NumericComparator.LT, Constant.create(BuiltinTypes.SINT32, 6))));
+  }
+}
@@ -28,13 +28,16 @@ import gov.nasa.jpf.constraints.expressions.functions.Function;
 import gov.nasa.jpf.constraints.expressions.functions.FunctionExpression;
 import gov.nasa.jpf.constraints.solvers.nativez3.errors.ConversionErrors;
 import gov.nasa.jpf.constraints.types.*;
+import gov.nasa.jpf.constraints.util.ExpressionTraversal;
+import gov.nasa.jpf.constraints.util.ExpressionUtil;
+import gov.nasa.jpf.constraints.util.ScopedMap;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.logging.Logger;
 
-public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr, Void> {
+public class NativeZ3ExpressionGenerator extends MemoizingExpressionVisitor<Expr, Void> {
 
   protected static Logger logger = Logger.getLogger("constraints");
   protected final Context ctx;
@@ -44,18 +47,32 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
   // This seems to be configured for z3.
   private final int STRING_LENGTH = 30000;
 
-  protected final Map<Variable<?>, Expr<? extends Sort>> variables;
+  protected final ScopedMap<Variable<?>, Expr<? extends Sort>> variables;
+  // scope depth opened in the shared variable map by this generator, 0 for the root
+  private final int scopeDepth;
   protected int count;
   private Map<String, FuncDecl> funcDecls = new HashMap<>();
   private int counter = 0;
   private ArrayList<Sort> types = new ArrayList<>();
   private ArrayList<Symbol> names = new ArrayList<>();
 
+  // terms shared across queries on the same context, null if disabled
+  private final NativeZ3TranslationCache cache;
+  // nodes of the current assertion whose translation had side effects on the solver
+  private final Set<Expression<?>> impure = Collections.newSetFromMap(new IdentityHashMap<>());
+
   public NativeZ3ExpressionGenerator(Context ctx, Solver solver) throws Z3Exception {
+    this(ctx, solver, null);
+  }
+
+  NativeZ3ExpressionGenerator(Context ctx, Solver solver, NativeZ3TranslationCache cache)
+      throws Z3Exception {
     this.ctx = ctx;
     this.solver = solver;
+    this.cache = cache;
     this.tainted = (BoolExpr) ctx.mkFreshConst("__tainted", ctx.getBoolSort());
-    this.variables = new HashMap<>();
+    this.variables = new ScopedMap<>();
+    this.scopeDepth = 0;
 
     this.count = 0;
   }
@@ -64,8 +81,11 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
     this.ctx = parent.ctx;
     this.solver = parent.solver;
 
-    this.variables = new HashMap<>(parent.variables);
+    // the child shares the parent's declarations; its own ones are undone in closeScope()
+    this.variables = parent.variables;
+    this.scopeDepth = variables.pushScope();
     this.tainted = parent.tainted;
+    this.cache = parent.cache;
 
     this.count = parent.count;
   }
@@ -87,7 +107,48 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
 
   public BoolExpr generateAssertion(Expression<Boolean> e) throws Z3Exception {
     logger.finer("assertion: " + e.toString());
-    return (BoolExpr) visit(e, null);
+    // shared subexpressions are translated once per assertion
+    resetMemo();
+    try {
+      translateBottomUp(e);
+      return (BoolExpr) visit(e, null);
+    } finally {
+      resetMemo();
+    }
+  }
+
+  /**
+   * Memoizes the translations of the operators below {@code e}, children first and with an explicit
+   * stack. Visiting an operator afterwards finds its operands memoized, so long chains such as the
+   * conjunctions built by {@link ExpressionUtil#and} do not overflow the thread stack. Other nodes,
+   * e.g. quantifiers, are translated recursively as before.
+   */
+  private void translateBottomUp(Expression<?> e) {
+    Set<Expression<?>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    new ExpressionTraversal<Void>() {
+      @Override
+      protected boolean enter(Expression<?> n) {
+        return translatesAllChildren(n) && seen.add(n);
+      }
+
+      @Override
+      protected Void exit(Expression<?> n, List<Void> childResults) {
+        visit(n, null);
+        return null;
+      }
+    }.apply(e);
+  }
+
+  /** Whether the visit of {@code e} translates exactly its children, in their order. */
+  private static boolean translatesAllChildren(Expression<?> e) {
+    return e instanceof PropositionalCompound
+        || e instanceof Negation
+        || e instanceof NumericBooleanExpression
+        || e instanceof NumericCompound
+        || e instanceof IfThenElse
+        || e instanceof UnaryMinus
+        || e instanceof BitvectorExpression
+        || e instanceof BitvectorNegation;
   }
 
   /* (non-Javadoc)
@@ -105,6 +166,18 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
    */
   @Override
   public <E> Expr visit(Constant<E> c, Void data) {
+    if (cache == null || !isPure(c)) {
+      return translateConstant(c);
+    }
+    Expr term = cache.get(c);
+    if (term == null) {
+      term = translateConstant(c);
+      cache.put(c, term);
+    }
+    return term;
+  }
+
+  private <E> Expr translateConstant(Constant<E> c) {
     Type<E> type = c.getType();
     try {
       if (type.equals(BuiltinTypes.BOOL)) {
@@ -162,6 +235,95 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
     }
   }
 
+  /**
+   * Looks up inner nodes in the translation cache. Translations are stored only if neither the node
+   * nor any node below it asserted side conditions, created auxiliary constants or bound variables;
+   * on a hit, the free variables are declared in the current scope as if they had been visited.
+   */
+  @Override
+  protected Expr visitShared(Expression<?> expression, Void data) {
+    if (cache == null) {
+      return expression.accept(this, data);
+    }
+    Expr term = cache.get(expression);
+    if (term != null) {
+      for (Variable<?> v : ExpressionUtil.freeVariables(expression)) {
+        getOrCreateVar(v);
+      }
+      return term;
+    }
+    term = expression.accept(this, data);
+    if (isPure(expression)) {
+      cache.put(expression, term);
+    } else {
+      impure.add(expression);
+    }
+    return term;
+  }
+
+  @Override
+  protected void resetMemo() {
+    super.resetMemo();
+    impure.clear();
+  }
+
+  private boolean isPure(Expression<?> e) {
+    if (e instanceof Variable) {
+      return !(e.getType() instanceof ArrayType);
+    }
+    if (e instanceof Constant) {
+      Type<?> type = e.getType();
+      return type.equals(BuiltinTypes.BOOL)
+          || type.equals(BuiltinTypes.STRING)
+          || type.equals(BuiltinTypes.REGEX)
+          || type instanceof IntegerType
+          || type.equals(BuiltinTypes.DOUBLE)
+          || type.equals(BuiltinTypes.FLOAT);
+    }
+    if (!isPureOperation(e)) {
+      return false;
+    }
+    for (Expression<?> child : e.getChildren()) {
+      boolean pure =
+          child instanceof Variable || child instanceof Constant
+              ? isPure(child)
+              : !impure.contains(child);
+      if (!pure) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPureOperation(Expression<?> e) {
+    if (e instanceof Negation
+        || e instanceof PropositionalCompound
+        || e instanceof IfThenElse
+        || e instanceof UnaryMinus
+        || e instanceof BitvectorExpression
+        || e instanceof BitvectorNegation) {
+      return true;
+    }
+    if (e instanceof NumericCompound) {
+      // remainders over reals introduce auxiliary constants
+      NumericCompound<?> n = (NumericCompound<?>) e;
+      return n.getOperator() != NumericOperator.REM
+          || n.getType() instanceof IntegerType
+          || n.getType() instanceof FloatingPointType;
+    }
+    if (e instanceof NumericBooleanExpression) {
+      // comparing a bitvector with an arithmetic term converts it through side conditions
+      NumericBooleanExpression n = (NumericBooleanExpression) e;
+      Type<?> lt = n.getLeft().getType();
+      Type<?> rt = n.getRight().getType();
+      return n.getComparator() == NumericComparator.EQ
+          || n.getComparator() == NumericComparator.NE
+          || lt.equals(rt)
+          || !(lt instanceof BVIntegerType || rt instanceof BVIntegerType);
+    }
+    return false;
+  }
+
   /* (non-Javadoc)
    * @see gov.nasa.jpf.constraints.expressions.AbstractExpressionVisitor#visit(gov.nasa.jpf.constraints.expressions
    * .Negation, java.lang.Object)
@@ -585,7 +747,8 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
         variables.put(v, ctx.mkBound(counter, types.get(counter)));
         ++counter;
       }
-      expr = (Expr<BoolSort>) visit(q.getBody());
+      // bound variables differ from the free ones of the same name, do not share results
+      expr = (Expr<BoolSort>) visitUnshared(q.getBody(), null);
       Expr ret;
       Collections.reverse(types);
       Collections.reverse(names);
@@ -1255,10 +1418,16 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
     throw new IllegalArgumentException("Cannot handle variable type " + type);
   }
 
+  /** The constant declared for {@code v} in the current or an enclosing scope, if any. */
+  Expr lookupVariable(Variable<?> v) {
+    return this.variables.get(v);
+  }
+
   private Expr getOrCreateFPVar(Variable<?> v) {
     Expr ret = this.variables.get(v);
     if (ret == null) {
       ret = ctx.mkConst(v.getName(), resolveTypeToSort(v.getType()));
+      this.variables.put(v, ret);
     }
     return ret;
   }
@@ -1598,6 +1767,16 @@ public class NativeZ3ExpressionGenerator extends AbstractExpressionVisitor<Expr,
     return new NativeZ3ExpressionGenerator(this);
   }
 
+  /**
+   * Drops the variable declarations made by this child generator, restoring the parent's view. Must
+   * be called when the corresponding solver scope is popped.
+   */
+  void closeScope() {
+    if (scopeDepth > 0 && variables.depth() == scopeDepth) {
+      variables.popScope();
+    }
+  }
+
   public boolean isTainted(Model model) throws Z3Exception {
 
     BoolExpr eval = (BoolExpr) model.eval(tainted, false);
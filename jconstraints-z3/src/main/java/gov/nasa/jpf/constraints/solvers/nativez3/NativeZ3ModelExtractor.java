@@ -0,0 +1,254 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.nativez3;
+
+import com.microsoft.z3.AlgebraicNum;
+import com.microsoft.z3.BitVecNum;
+import com.microsoft.z3.Expr;
+import com.microsoft.z3.FPNum;
+import com.microsoft.z3.IntNum;
+import com.microsoft.z3.Model;
+import com.microsoft.z3.RatNum;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.exceptions.ImpreciseRepresentationException;
+import gov.nasa.jpf.constraints.expressions.ArrayExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.types.ArrayType;
+import gov.nasa.jpf.constraints.types.BVIntegerType;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.FloatingPointType;
+import gov.nasa.jpf.constraints.types.RealType;
+import gov.nasa.jpf.constraints.types.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import org.apache.commons.math3.fraction.BigFraction;
+
+/**
+ * Reads the values of selected variables from a Z3 model through the typed numeral accessors
+ * instead of printing and re-parsing every constant. Values the accessors cannot represent fall
+ * back to parsing their textual form.
+ */
+final class NativeZ3ModelExtractor {
+
+  /** Digits kept when a rational or algebraic value is stored in a decimal variable. */
+  private static final int DECIMAL_SCALE = 10;
+
+  private NativeZ3ModelExtractor() {}
+
+  /**
+   * Stores the model values of {@code vars} in {@code val}. Variables without a constant in the
+   * generator or an interpretation in the model get their type's default value.
+   */
+  static void extract(
+      final Model model,
+      final NativeZ3ExpressionGenerator gen,
+      final Iterable<? extends Variable<?>> vars,
+      final Valuation val,
+      final boolean unsafe)
+      throws ImpreciseRepresentationException {
+    for (final Variable<?> v : vars) {
+      final Expr constant = gen.lookupVariable(v);
+      final Expr res = constant == null ? null : model.getConstInterp(constant);
+      if (res == null) {
+        val.setDefaultValue(v);
+      } else {
+        setValue(val, v, res, unsafe);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> void setValue(
+      final Valuation val, final Variable<E> v, final Expr res, final boolean unsafe)
+      throws ImpreciseRepresentationException {
+    val.setValue(v, (E) value(v.getType(), res, unsafe));
+  }
+
+  /** Converts the interpretation {@code res} to a value of {@code type}. */
+  static Object value(final Type<?> type, final Expr res, final boolean unsafe)
+      throws ImpreciseRepresentationException {
+    if (type.equals(BuiltinTypes.BOOL) && (res.isTrue() || res.isFalse())) {
+      return res.isTrue();
+    }
+    if (type instanceof BVIntegerType && res instanceof BitVecNum) {
+      final Object bv = bitVectorValue((BVIntegerType<?>) type, (BitVecNum) res);
+      if (bv != null) {
+        return bv;
+      }
+    }
+    if (type.equals(BuiltinTypes.INTEGER) && res instanceof IntNum) {
+      return ((IntNum) res).getBigInteger();
+    }
+    if (type instanceof RealType && res instanceof RatNum) {
+      final RatNum rat = (RatNum) res;
+      return realValue(type, rat.getBigIntNumerator(), rat.getBigIntDenominator());
+    }
+    if (type instanceof RealType && res instanceof AlgebraicNum) {
+      // the decimal expansion ends with '?' if it is inexact
+      final String text = ((AlgebraicNum) res).toDecimal(DECIMAL_SCALE).replace("?", "");
+      final BigDecimal dec = new BigDecimal(text);
+      return realValue(type, dec.unscaledValue(), BigInteger.TEN.pow(dec.scale()));
+    }
+    if (type instanceof FloatingPointType && res instanceof FPNum) {
+      return floatingPointValue(type, (FPNum) res);
+    }
+    if (type.equals(BuiltinTypes.STRING) && res.isString()) {
+      return decodeString(res.getString());
+    }
+    if (type instanceof ArrayType) {
+      return convertArray(res, (ArrayType<?, ?>) type);
+    }
+    String text = res.toString().trim();
+    if (type instanceof RealType) {
+      text = text.replace("?", "");
+    }
+    return unsafe ? type.parseUnsafe(text) : type.parse(text);
+  }
+
+  private static Object bitVectorValue(final BVIntegerType<?> type, final BitVecNum num) {
+    // Z3 numerals are unsigned, narrowing restores the two's complement value
+    final long bits =
+        type.getNumBits() < Long.SIZE ? num.getLong() : num.getBigInteger().longValue();
+    if (type.equals(BuiltinTypes.SINT32)) {
+      return (int) bits;
+    }
+    if (type.equals(BuiltinTypes.SINT64)) {
+      return bits;
+    }
+    if (type.equals(BuiltinTypes.SINT8)) {
+      return (byte) bits;
+    }
+    if (type.equals(BuiltinTypes.SINT16)) {
+      return (short) bits;
+    }
+    if (type.equals(BuiltinTypes.UINT16)) {
+      return (char) bits;
+    }
+    return null;
+  }
+
+  private static Object realValue(final Type<?> type, final BigInteger num, final BigInteger den) {
+    if (type.equals(BuiltinTypes.REAL)) {
+      return new BigFraction(num, den);
+    }
+    final BigDecimal nom = new BigDecimal(num);
+    if (den.equals(BigInteger.ONE)) {
+      return nom;
+    }
+    return nom.divide(new BigDecimal(den), DECIMAL_SCALE, RoundingMode.FLOOR);
+  }
+
+  private static Object floatingPointValue(final Type<?> type, final FPNum num) {
+    final boolean single = type.equals(BuiltinTypes.FLOAT);
+    final double special;
+    if (num.isNaN()) {
+      special = Double.NaN;
+    } else if (num.isInf()) {
+      special = num.isNegative() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    } else if (num.isZero()) {
+      special = num.isNegative() ? -0.0 : 0.0;
+    } else {
+      final long sign = num.getSign() ? 1 : 0;
+      final long exponent = num.isSubnormal() ? 0 : num.getExponentInt64(true);
+      final long significand = num.getSignificandUInt64();
+      if (single) {
+        return Float.intBitsToFloat((int) (sign << 31 | exponent << 23 | significand));
+      }
+      return Double.longBitsToDouble(sign << 63 | exponent << 52 | significand);
+    }
+    return single ? (Object) (float) special : (Object) special;
+  }
+
+  /** Resolves the escape sequences Z3 uses for backslashes and non-printable characters. */
+  static String decodeString(final String encoded) {
+    if (encoded.indexOf('\\') < 0) {
+      return encoded;
+    }
+    final StringBuilder sb = new StringBuilder(encoded.length());
+    final int len = encoded.length();
+    int i = 0;
+    while (i < len) {
+      final char c = encoded.charAt(i++);
+      if (c != '\\' || i == len) {
+        sb.append(c);
+        continue;
+      }
+      final char e = encoded.charAt(i);
+      if (e == '\\') {
+        sb.append('\\');
+        i++;
+      } else if (e == 'x' && isHex(encoded, i + 1, i + 3)) {
+        sb.append((char) Integer.parseInt(encoded.substring(i + 1, i + 3), 16));
+        i += 3;
+      } else if (e == 'u' && i + 1 < len && encoded.charAt(i + 1) == '{') {
+        final int close = encoded.indexOf('}', i + 2);
+        if (close > i + 2 && isHex(encoded, i + 2, close)) {
+          sb.appendCodePoint(Integer.parseInt(encoded.substring(i + 2, close), 16));
+          i = close + 1;
+        } else {
+          sb.append(c);
+        }
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static boolean isHex(final String s, final int from, final int to) {
+    if (to > s.length()) {
+      return false;
+    }
+    for (int i = from; i < to; i++) {
+      if (Character.digit(s.charAt(i), 16) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static <D, R> ArrayExpression<D, R> convertArray(
+      final Expr expr, final ArrayType<D, R> arrayType) {
+    if (expr.getArgs().length > 1) {
+      // store expr
+      final ArrayExpression<D, R> array = convertArray(expr.getArgs()[0], arrayType);
+      final HashMap map = array.getContent();
+      final Constant domain = toConstant(expr.getArgs()[1], arrayType.getDomain());
+      final Constant range = toConstant(expr.getArgs()[2], arrayType.getRange());
+      map.put(domain, range);
+      return new ArrayExpression(arrayType, map);
+    } else {
+      return new ArrayExpression(arrayType);
+    }
+  }
+
+  private static Constant toConstant(final Expr expr, final Type type) {
+    if (type.equals(BuiltinTypes.INTEGER)) {
+      return new Constant(type, ((IntNum) expr).getBigInteger());
+    } else if (type.equals(BuiltinTypes.BOOL)) {
+      return new Constant(type, expr.isTrue());
+    } else {
+      return null;
+    }
+  }
+}
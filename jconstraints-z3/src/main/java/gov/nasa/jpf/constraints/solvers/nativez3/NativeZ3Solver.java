@@ -47,6 +47,8 @@ public class NativeZ3Solver extends ConstraintSolver
 
   private Context ctx;
 
+  private final NativeZ3TranslationCache translationCache = new NativeZ3TranslationCache();
+
   private NativeZ3SolverContext defaultContext;
 
   private final int timeout;
@@ -96,6 +98,7 @@ public class NativeZ3Solver extends ConstraintSolver
   public void dispose() {
     defaultContext.dispose();
     defaultContext = null;
+    translationCache.clear();
     // ctx.dispose();
     ctx = null;
   }
@@ -119,6 +122,14 @@ public class NativeZ3Solver extends ConstraintSolver
     }
   }
 
+  @Override
+  public void interrupt() {
+    final NativeZ3SolverContext ctx = defaultContext;
+    if (ctx != null) {
+      ctx.interrupt();
+    }
+  }
+
   @Override
   public NativeZ3SolverContext createContext() {
     Solver solver = null;
@@ -135,9 +146,9 @@ public class NativeZ3Solver extends ConstraintSolver
         solver.setParameters(p);
       }
 
-      root = new NativeZ3ExpressionGenerator(ctx, solver);
+      root = new NativeZ3ExpressionGenerator(ctx, solver, translationCache);
 
-      return new NativeZ3SolverContext(solver, root);
+      return instrument(new NativeZ3SolverContext(solver, root));
     } catch (final Z3Exception ex) {
       if (solver != null) {
         try {
@@ -152,7 +163,8 @@ public class NativeZ3Solver extends ConstraintSolver
   @Override
   public Expression eliminateQuantifiers(final Expression<Boolean> expr) {
     final Solver solver = ctx.mkSolver();
-    final NativeZ3ExpressionGenerator rootGenerator = new NativeZ3ExpressionGenerator(ctx, solver);
+    final NativeZ3ExpressionGenerator rootGenerator =
+        new NativeZ3ExpressionGenerator(ctx, solver, translationCache);
     final Tactic tactic = ctx.mkTactic("qe");
     // The booleans are model genertation, unsat core, proof generation
     final Goal goal = ctx.mkGoal(true, false, false);
@@ -172,7 +184,8 @@ public class NativeZ3Solver extends ConstraintSolver
   @Override
   public Expression<Boolean> simplify(final Expression<Boolean> expr) {
     final Solver solver = ctx.mkSolver();
-    final NativeZ3ExpressionGenerator rootGenerator = new NativeZ3ExpressionGenerator(ctx, solver);
+    final NativeZ3ExpressionGenerator rootGenerator =
+        new NativeZ3ExpressionGenerator(ctx, solver, translationCache);
 
     final Tactic tactic = ctx.mkTactic("ctx-solver-simplify");
     final Goal goal = ctx.mkGoal(true, false, false);
@@ -22,25 +22,18 @@ package gov.nasa.jpf.constraints.solvers.nativez3;
 import com.microsoft.z3.*;
 import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
 import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.LazyValuation;
 import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.SolverPhase;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.Variable;
 import gov.nasa.jpf.constraints.exceptions.ImpreciseRepresentationException;
-import gov.nasa.jpf.constraints.expressions.ArrayExpression;
-import gov.nasa.jpf.constraints.expressions.Constant;
-import gov.nasa.jpf.constraints.types.ArrayType;
-import gov.nasa.jpf.constraints.types.BuiltinTypes;
-import gov.nasa.jpf.constraints.types.Type;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
-import gov.nasa.jpf.constraints.util.TypeUtil;
+import gov.nasa.jpf.constraints.util.ScopedMap;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class NativeZ3SolverContext extends SolverContext {
 
@@ -48,40 +41,41 @@ public class NativeZ3SolverContext extends SolverContext {
 
   private final Deque<NativeZ3ExpressionGenerator> generatorStack = new ArrayDeque<>();
   private final Deque<Expression<Boolean>> expressionStack = new ArrayDeque<>();
-  private final Deque<Map<String, Variable<?>>> freeVarsStack = new ArrayDeque<>();
+  private final ScopedMap<String, Variable<?>> freeVars = new ScopedMap<>();
 
   private Solver solver;
 
-  private final Pattern bytePattern =
-      Pattern.compile("(?:[^\\\\]|^)(?<toBeReplaced>\\\\x(?<digits>[0-9a-f]{2}))");
+  /** The last model handed out by {@link #solveLazily}, read through the current generators. */
+  private LazyValuation liveModel;
 
   public NativeZ3SolverContext(
       final Solver solver, final NativeZ3ExpressionGenerator rootGenerator) {
     this.solver = solver;
     this.generatorStack.push(rootGenerator);
     this.expressionStack.push(ExpressionUtil.TRUE);
-    this.freeVarsStack.push(new HashMap<String, Variable<?>>());
   }
 
   @Override
   public void push() {
     try {
       solver.push();
-      final Map<String, Variable<?>> fvMap = freeVarsStack.peek();
       generatorStack.push(generatorStack.peek().createChild());
-      freeVarsStack.push(new HashMap<String, Variable<?>>(fvMap));
+      freeVars.pushScope();
       expressionStack.push(ExpressionUtil.TRUE);
     } catch (final Z3Exception ex) {
       throw new RuntimeException(ex);
     }
+    listeners().pushed(generatorStack.size() - 1);
   }
 
   @Override
   public void pop(final int n) {
+    releaseModel();
     for (int i = 0; i < n; i++) {
       final NativeZ3ExpressionGenerator gen = generatorStack.pop();
+      gen.closeScope();
       gen.dispose();
-      freeVarsStack.pop();
+      freeVars.popScope();
       expressionStack.pop();
     }
     try {
@@ -89,12 +83,15 @@ public class NativeZ3SolverContext extends SolverContext {
     } catch (final Z3Exception ex) {
       throw new RuntimeException(ex);
     }
+    listeners().popped(n, generatorStack.size() - 1);
   }
 
   public Result approximate(final Valuation val) {
     logger.finer("Solving ...");
     try {
+      final long checkStart = listeners().start();
       final Status status = solver.check();
+      listeners().phaseFinished(SolverPhase.CHECK, checkStart);
       if (status != Status.SATISFIABLE || val == null) {
         logger.finer("Not satisfiable: " + status);
 
@@ -128,19 +125,10 @@ public class NativeZ3SolverContext extends SolverContext {
         // FIXME mi: using origVars here fixes the issue that variables occuring only in the
         //           scope of quantifiers are part of the valuation. Might it break something
         //           else?
-        final long max = model.getNumConsts();
-        final FuncDecl[] decls = model.getConstDecls();
         try {
-          try {
-            val.putAll(parseModel(model, true));
-          } catch (ImpreciseRepresentationException e) {
-            throw new RuntimeException("Imprecise Representation");
-          }
-
-        } finally {
-          for (int i = 0; i < decls.length; i++) {
-            //            decls[i].dispose();
-          }
+          val.putAll(parseModel(model, true, freeVars.values()));
+        } catch (ImpreciseRepresentationException e) {
+          throw new RuntimeException("Imprecise Representation");
         }
 
       } finally {
@@ -156,9 +144,39 @@ public class NativeZ3SolverContext extends SolverContext {
 
   @Override
   public Result solve(final Valuation val) {
+    return solve(val, freeVars.values());
+  }
+
+  /**
+   * Binds the model to {@code model} without converting it. Values are read from the native model
+   * on first access until this context is popped or disposed.
+   */
+  @Override
+  public Result solveLazily(final LazyValuation model) {
+    final long start = listeners().start();
+    final Result res = check(model, null);
+    listeners().queryFinished(res, start);
+    return res;
+  }
+
+  /**
+   * Like {@link #solve(Valuation)}, but only reads the values of {@code vars} from the model.
+   * Variables that do not occur in the asserted expressions get their type's default value.
+   */
+  public Result solve(final Valuation val, final Collection<? extends Variable<?>> vars) {
+    final long start = listeners().start();
+    final Result res = check(val, vars);
+    listeners().queryFinished(res, start);
+    return res;
+  }
+
+  /** Solves and stores the model in {@code val}; if {@code vars} is null, it is bound lazily. */
+  private Result check(final Valuation val, final Collection<? extends Variable<?>> vars) {
     logger.finer("Solving ...");
     try {
+      final long checkStart = listeners().start();
       final Status status = solver.check();
+      listeners().phaseFinished(SolverPhase.CHECK, checkStart);
       if (status != Status.SATISFIABLE || val == null) {
         logger.finer("Not satisfiable: " + status);
 
@@ -192,30 +210,28 @@ public class NativeZ3SolverContext extends SolverContext {
         // FIXME mi: using origVars here fixes the issue that variables occuring only in the
         //           scope of quantifiers are part of the valuation. Might it break something
         //           else?
-        final long max = model.getNumConsts();
-        final FuncDecl[] decls = model.getConstDecls();
+        if (vars == null) {
+          bindModel((LazyValuation) val, model);
+          return Result.SAT;
+        }
         try {
+          val.putAll(parseModel(model, false, vars));
+        } catch (ImpreciseRepresentationException e) {
+          Valuation testVal = new Valuation();
+          testVal.putAll(val);
           try {
-            val.putAll(parseModel(model));
-          } catch (ImpreciseRepresentationException e) {
-            Valuation testVal = new Valuation();
-            testVal.putAll(val);
-            try {
-              testVal.putAll(parseModel(model, true));
-              if (validateExpressionStack(testVal)) {
-                val.putAll(testVal, true);
-              } else {
-                throw new ImpreciseRepresentationException(
-                    "Cannot fix the imprecise " + "Representation");
+            // validation evaluates the whole stack and needs every free variable
+            testVal.putAll(parseModel(model, true, freeVars.values()));
+            if (validateExpressionStack(testVal)) {
+              for (final Variable<?> v : vars) {
+                copyValue(testVal, val, v);
               }
-            } catch (ImpreciseRepresentationException e2) {
-              throw new RuntimeException("Imprecise Representation");
+            } else {
+              throw new ImpreciseRepresentationException(
+                  "Cannot fix the imprecise " + "Representation");
             }
-          }
-
-        } finally {
-          for (int i = 0; i < decls.length; i++) {
-            //            decls[i].dispose();
+          } catch (ImpreciseRepresentationException e2) {
+            throw new RuntimeException("Imprecise Representation");
           }
         }
 
@@ -231,139 +247,127 @@ public class NativeZ3SolverContext extends SolverContext {
   }
 
   private boolean validateExpressionStack(Valuation val) {
-    Expression<Boolean> combined = ExpressionUtil.and(expressionStack);
-    return combined.evaluate(val);
+    return validate(ExpressionUtil.and(expressionStack), val);
   }
 
-  private Valuation parseModel(final Model model) throws ImpreciseRepresentationException {
-    return parseModel(model, false);
+  private boolean validate(Expression<Boolean> asserted, Valuation val) {
+    final long start = listeners().start();
+    boolean valid = asserted.evaluate(val);
+    listeners().phaseFinished(SolverPhase.MODEL_VALIDATION, start);
+    return valid;
   }
 
-  private Valuation parseModel(final Model model, boolean unsafe)
+  private Valuation parseModel(
+      final Model model, boolean unsafe, final Collection<? extends Variable<?>> vars)
       throws ImpreciseRepresentationException {
-    Valuation val = new Valuation();
-
-    final Map<String, Variable<?>> freeVars = new HashMap<>(freeVarsStack.peek());
-    final long max = model.getNumConsts();
-    final FuncDecl[] decls = model.getConstDecls();
-    for (int i = 0; i < max; i++) {
-      final FuncDecl decl = decls[i];
-      Symbol sym = null;
-      String text = null;
-      try {
-        sym = decl.getName();
-        text = sym.toString().trim();
-      } finally {
-        //              sym.dispose();
-      }
+    final long start = listeners().start();
+    try {
+      Valuation val = new Valuation();
+      NativeZ3ModelExtractor.extract(model, generatorStack.peek(), vars, val, unsafe);
+      return val;
+    } finally {
+      listeners().phaseFinished(SolverPhase.MODEL_PARSING, start);
+    }
+  }
+
+  private void bindModel(final LazyValuation val, final Model model) {
+    releaseModel();
+    final List<Variable<?>> vars = new ArrayList<>(freeVars.values());
+    val.bind(
+        vars,
+        new NativeModelReader(
+            model, generatorStack.peek(), vars, new ArrayList<>(expressionStack)));
+    liveModel = val;
+  }
 
-      final Variable<?> v = freeVars.get(text);
-      if (v == null) {
-        continue;
+  /**
+   * Reads single values of a lazily bound model. Once a value is imprecise, it falls back to the
+   * whole model parsed unsafely, like {@link #check}, provided that model still satisfies the
+   * expressions asserted when it was computed. Those are kept as one conjunction per scope and only
+   * combined when the fallback is taken.
+   */
+  private final class NativeModelReader implements LazyValuation.ModelReader {
+
+    private final Model model;
+    private final NativeZ3ExpressionGenerator gen;
+    private final List<Variable<?>> vars;
+    private final List<Expression<Boolean>> asserted;
+
+    private Valuation unsafeModel;
+
+    NativeModelReader(
+        final Model model,
+        final NativeZ3ExpressionGenerator gen,
+        final List<Variable<?>> vars,
+        final List<Expression<Boolean>> asserted) {
+      this.model = model;
+      this.gen = gen;
+      this.vars = vars;
+      this.asserted = asserted;
+    }
+
+    @Override
+    public void read(final Variable<?> var, final Valuation target) {
+      if (unsafeModel == null && readPrecisely(var, target)) {
+        return;
       }
-      freeVars.remove(text);
-
-      final AST res = model.getConstInterp(decl);
-      final String value = res.toString().trim();
-      if (res instanceof FPNum) {
-        FPNum resFP = (FPNum) res;
-        long rep = resFP.getSignificandUInt64();
-        Double d = Double.longBitsToDouble(rep);
-        if (v.getType().equals(BuiltinTypes.DOUBLE)) {
-          val.setValue((Variable<Double>) v, d);
-          continue;
-        } else if (v.getType().equals(BuiltinTypes.FLOAT)) {
-          val.setValue((Variable<Float>) v, d.floatValue());
-          continue;
-        } else {
-          throw new IllegalArgumentException("Cannot parse the FP value");
-        }
+      if (unsafeModel == null) {
+        unsafeModel = parseUnsafe();
       }
-      if (TypeUtil.isRealSort(v) && value.contains("/")) {
-        final String[] split = value.split("/");
-        final BigDecimal nom = new BigDecimal(split[0].trim());
-        final BigDecimal den = new BigDecimal(split[1].trim());
-        final BigDecimal quot = nom.divide(den, 10, RoundingMode.FLOOR);
-        if (unsafe) {
-          val.setUnsafeParsedValue(v, quot.toPlainString());
-        } else {
-          val.setParsedValue(v, quot.toPlainString());
-        }
-      } else if (TypeUtil.isRealSort(v)) {
-        // Z3 might print a question mark at the end of the number, if it is an inexact
-        // representation
-        // and Z3 is aware of the inexact representation. Java cannot handle the question
-        // mark.
-        // TODO: How to do this right.
-        // Z3 return originally: (root-obj (+ (^ x 2) (- 2)) 2) for root of 2.
-        String tmpValue = value.replace("?", "");
-        if (unsafe) {
-          val.setUnsafeParsedValue(v, tmpValue);
-        } else {
-          val.setParsedValue(v, tmpValue);
-        }
-      } else if (v.getType().equals(BuiltinTypes.STRING)) {
-        String sValue = value.replace("\"", "");
-        Matcher m = bytePattern.matcher(sValue);
-        while (m.find()) {
-          String group = m.group("digits");
-          char c = (char) Integer.parseInt(group, 16);
-          sValue = sValue.replace(m.group("toBeReplaced"), new String(new char[] {c}));
-        }
-        sValue = sValue.replaceAll(Pattern.quote("\\\\"), "\\\\");
-        val.setValue((Variable<String>) v, sValue);
-      } else if (v.getType() instanceof ArrayType) {
-        Expr expr = (Expr) res;
+      copyValue(unsafeModel, target, var);
+    }
 
-        val.setValue((Variable<? super Expression<ArrayType>>) v, (Expression<ArrayType>)convertZ3ToJConstraintsArray(expr, (ArrayType) v.getType()));
-      }
-      else {
-        if (unsafe) {
-          val.setUnsafeParsedValue(v, value);
-        } else {
-          val.setParsedValue(v, value);
-        }
+    private boolean readPrecisely(final Variable<?> var, final Valuation target) {
+      final long start = listeners().start();
+      try {
+        NativeZ3ModelExtractor.extract(model, gen, Collections.singleton(var), target, false);
+        return true;
+      } catch (ImpreciseRepresentationException e) {
+        return false;
+      } finally {
+        listeners().phaseFinished(SolverPhase.MODEL_PARSING, start);
       }
     }
-    for (final Variable<?> r : freeVars.values()) {
-      val.setDefaultValue(r);
+
+    private Valuation parseUnsafe() {
+      final Valuation val = new Valuation();
+      final long start = listeners().start();
+      try {
+        // validation evaluates the whole stack and needs every free variable
+        NativeZ3ModelExtractor.extract(model, gen, vars, val, true);
+      } catch (ImpreciseRepresentationException e) {
+        throw new RuntimeException("Imprecise Representation");
+      } finally {
+        listeners().phaseFinished(SolverPhase.MODEL_PARSING, start);
+      }
+      if (!validate(ExpressionUtil.and(asserted), val)) {
+        throw new RuntimeException("Imprecise Representation");
+      }
+      return val;
     }
-    return val;
   }
 
-  private static <D,R> ArrayExpression<D,R> convertZ3ToJConstraintsArray(Expr expr, ArrayType<D,R> arrayType) {
-    if (expr.getArgs().length > 1) {
-      //store expr
-      ArrayExpression<D,R> array = convertZ3ToJConstraintsArray(expr.getArgs()[0], arrayType);
-      HashMap map = array.getContent();
-      Type domainType = arrayType.getDomain();
-      Type rangeType = arrayType.getRange();
-      Constant domain = exprToConstant(expr.getArgs()[1], domainType);
-      Constant range = exprToConstant(expr.getArgs()[2], rangeType);
-      map.put(domain, range);
-      return new ArrayExpression(arrayType, map);
-    }
-    else {
-      return new ArrayExpression(arrayType);
+  /** Converts the outstanding values of the last lazy model before its scope goes away. */
+  private void releaseModel() {
+    if (liveModel != null) {
+      liveModel.materialize();
+      liveModel = null;
     }
   }
 
-  private static Constant exprToConstant(Expr expr, Type type){
-    if (type.equals(BuiltinTypes.INTEGER)) {
-      return new Constant(type, ((IntNum)expr).getBigInteger());
-    }
-    else if (type.equals(BuiltinTypes.BOOL)) {
-      return new Constant(type, Boolean.parseBoolean(expr.getBoolValue().toString()));
+  private static <E> void copyValue(final Valuation from, final Valuation to, Variable<E> v) {
+    if (from.containsValueFor(v)) {
+      to.setValue(v, from.getValue(v));
     }
-    else return null;
   }
 
   @Override
   public void dispose() {
+    releaseModel();
     while (!generatorStack.isEmpty()) {
       generatorStack.pop().dispose();
     }
-    freeVarsStack.clear();
+    freeVars.clear();
 
     try {
       //      solver.dispose();
@@ -373,6 +377,15 @@ public class NativeZ3SolverContext extends SolverContext {
     }
   }
 
+  /** Cancels a running check of this context's solver, it then reports an unknown result. */
+  @Override
+  public void interrupt() {
+    final Solver s = solver;
+    if (s != null) {
+      s.interrupt();
+    }
+  }
+
   @Override
   protected void finalize() throws Throwable {
     super.finalize();
@@ -388,21 +401,23 @@ public class NativeZ3SolverContext extends SolverContext {
 
     final NativeZ3ExpressionGenerator gen = generatorStack.peek();
 
-    final Map<String, Variable<?>> fvMap = freeVarsStack.peek();
-
     Expression<Boolean> currentExpression = expressionStack.pop();
     expressionStack.push(ExpressionUtil.and(currentExpression, ExpressionUtil.and(expressions)));
 
     int i = 0;
+    final long start = listeners().start();
     try {
       for (final Expression<Boolean> ex : expressions) {
         // logger.finer("Checking " + ex);
         exprs[i++] = gen.generateAssertion(ex);
         final Set<Variable<?>> fvs = ExpressionUtil.freeVariables(ex);
         for (final Variable<?> v : fvs) {
-          fvMap.put(v.getName(), v);
+          if (!freeVars.containsKey(v.getName())) {
+            freeVars.put(v.getName(), v);
+          }
         }
       }
+      listeners().phaseFinished(SolverPhase.TRANSLATION, start);
 
       solver.add(exprs);
     } catch (final Z3Exception ex) {
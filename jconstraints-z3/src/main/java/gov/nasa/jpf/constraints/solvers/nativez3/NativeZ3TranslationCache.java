@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solvers.nativez3;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.microsoft.z3.Expr;
+import gov.nasa.jpf.constraints.api.Expression;
+
+/**
+ * Z3 terms of already translated expressions, shared by all generators of one Z3 context. Keys
+ * are compared structurally, so equal subexpressions of different queries, e.g., sibling path
+ * conditions, map to the same native term. Only translations without side effects on the solver
+ * may be stored; see {@link NativeZ3ExpressionGenerator#visitShared}.
+ */
+final class NativeZ3TranslationCache {
+
+  /** Default maximum number of cached terms. */
+  static final int DEFAULT_SIZE = 1 << 16;
+
+  private final Cache<Expression<?>, Expr> terms;
+
+  NativeZ3TranslationCache() {
+    this(DEFAULT_SIZE);
+  }
+
+  NativeZ3TranslationCache(int maximumSize) {
+    this.terms = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  Expr get(Expression<?> expression) {
+    return terms.getIfPresent(expression);
+  }
+
+  void put(Expression<?> expression, Expr term) {
+    terms.put(expression, term);
+  }
+
+  /** Drops all terms, e.g., when the context is disposed. */
+  void clear() {
+    terms.invalidateAll();
+  }
+}
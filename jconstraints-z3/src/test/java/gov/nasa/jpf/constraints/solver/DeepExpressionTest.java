@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.LogicalOperator;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.PropositionalCompound;
+import gov.nasa.jpf.constraints.solvers.nativez3.NativeZ3ExpressionGenerator;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import org.junit.jupiter.api.Test;
+
+/** Translation must not be limited by the nesting depth of an expression. */
+public class DeepExpressionTest {
+
+  private static final int DEPTH = 100_000;
+
+  @Test
+  public void deepConjunctionsAreTranslated() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Expression<Boolean> e = null;
+    for (int i = 0; i < DEPTH; i++) {
+      Expression<Boolean> atom =
+          NumericBooleanExpression.create(
+              x, NumericComparator.GT, Constant.create(BuiltinTypes.SINT32, -i));
+      e = e == null ? atom : PropositionalCompound.create(e, LogicalOperator.AND, atom);
+    }
+
+    try (Context ctx = new Context()) {
+      NativeZ3ExpressionGenerator gen = new NativeZ3ExpressionGenerator(ctx, ctx.mkSolver());
+      BoolExpr translated = gen.generateAssertion(e);
+      assertTrue(translated.isAnd());
+      assertEquals(2, translated.getNumArgs());
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.LazyValuation;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.expressions.StringBooleanExpression;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.solvers.nativez3.NativeZ3Solver;
+import gov.nasa.jpf.constraints.solvers.nativez3.NativeZ3SolverContext;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import gov.nasa.jpf.constraints.types.Type;
+import java.math.BigDecimal;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+public class ModelExtractionTest {
+
+  private static <T> Expression<Boolean> eq(Variable<T> v, Type<T> type, T value) {
+    return NumericBooleanExpression.create(v, NumericComparator.EQ, Constant.create(type, value));
+  }
+
+  private static NativeZ3SolverContext createContext() {
+    NativeZ3Solver solver = (NativeZ3Solver) ConstraintSolverFactory.createSolver("z3");
+    return solver.createContext();
+  }
+
+  @Test
+  public void readsTypedValues() {
+    Variable<Integer> i = Variable.create(BuiltinTypes.SINT32, "i");
+    Variable<Long> l = Variable.create(BuiltinTypes.SINT64, "l");
+    Variable<Character> c = Variable.create(BuiltinTypes.UINT16, "c");
+    Variable<Byte> b = Variable.create(BuiltinTypes.SINT8, "b");
+    Variable<Double> d = Variable.create(BuiltinTypes.DOUBLE, "d");
+    Variable<Float> f = Variable.create(BuiltinTypes.FLOAT, "f");
+    Variable<BigDecimal> r = Variable.create(BuiltinTypes.DECIMAL, "r");
+    Variable<String> s = Variable.create(BuiltinTypes.STRING, "s");
+
+    NativeZ3SolverContext ctx = createContext();
+    ctx.add(eq(i, BuiltinTypes.SINT32, -5));
+    ctx.add(eq(l, BuiltinTypes.SINT64, Long.MIN_VALUE));
+    ctx.add(eq(c, BuiltinTypes.UINT16, '\uffff'));
+    ctx.add(eq(b, BuiltinTypes.SINT8, (byte) -128));
+    ctx.add(eq(d, BuiltinTypes.DOUBLE, -1.5e-300));
+    ctx.add(eq(f, BuiltinTypes.FLOAT, 0.1f));
+    Constant<BigDecimal> three = Constant.create(BuiltinTypes.DECIMAL, BigDecimal.valueOf(3));
+    ctx.add(
+        NumericBooleanExpression.create(
+            NumericCompound.create(r, NumericOperator.MUL, three),
+            NumericComparator.EQ,
+            Constant.create(BuiltinTypes.DECIMAL, BigDecimal.ONE)));
+    ctx.add(
+        StringBooleanExpression.createEquals(s, Constant.create(BuiltinTypes.STRING, "a\\b\n")));
+
+    Valuation val = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(val));
+    assertEquals(-5, (int) val.getValue(i));
+    assertEquals(Long.MIN_VALUE, (long) val.getValue(l));
+    assertEquals('\uffff', (char) val.getValue(c));
+    assertEquals((byte) -128, (byte) val.getValue(b));
+    assertEquals(-1.5e-300, val.getValue(d), 0.0);
+    assertEquals(0.1f, val.getValue(f), 0.0f);
+    assertEquals(new BigDecimal("0.3333333333"), val.getValue(r));
+    assertEquals("a\\b\n", val.getValue(s));
+    ctx.dispose();
+  }
+
+  @Test
+  public void readsOnlyRequestedVariables() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+
+    NativeZ3SolverContext ctx = createContext();
+    ctx.add(eq(x, BuiltinTypes.SINT32, 3));
+    ctx.add(eq(y, BuiltinTypes.SINT32, 4));
+
+    Valuation val = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(val, Collections.singleton(x)));
+    assertEquals(3, (int) val.getValue(x));
+    assertFalse(val.containsValueFor(y));
+
+    val = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(val));
+    assertTrue(val.containsValueFor(y));
+    ctx.dispose();
+  }
+
+  @Test
+  public void bindsModelLazily() {
+    Variable<Integer> x = Variable.create(BuiltinTypes.SINT32, "x");
+    Variable<Integer> y = Variable.create(BuiltinTypes.SINT32, "y");
+
+    NativeZ3SolverContext ctx = createContext();
+    ctx.add(eq(x, BuiltinTypes.SINT32, 3));
+    ctx.push();
+    ctx.add(eq(y, BuiltinTypes.SINT32, 4));
+
+    LazyValuation model = new LazyValuation();
+    assertEquals(Result.SAT, ctx.solveLazily(model));
+    assertTrue(model.containsValueFor(y));
+    assertEquals(3, (int) model.getValue(x));
+    assertFalse(model.isMaterialized());
+
+    ctx.pop();
+    assertTrue(model.isMaterialized());
+    assertEquals(4, (int) model.getValue(y));
+    ctx.dispose();
+  }
+
+  @Test
+  public void lazyModelAgreesWithEagerModel() {
+    Variable<Double> d = Variable.create(BuiltinTypes.DOUBLE, "d");
+    Variable<Float> f = Variable.create(BuiltinTypes.FLOAT, "f");
+    Variable<BigDecimal> r = Variable.create(BuiltinTypes.DECIMAL, "r");
+
+    NativeZ3SolverContext ctx = createContext();
+    ctx.add(eq(d, BuiltinTypes.DOUBLE, 0.1));
+    ctx.add(eq(f, BuiltinTypes.FLOAT, 0.1f));
+    Constant<BigDecimal> three = Constant.create(BuiltinTypes.DECIMAL, BigDecimal.valueOf(3));
+    ctx.add(
+        NumericBooleanExpression.create(
+            NumericCompound.create(r, NumericOperator.MUL, three),
+            NumericComparator.EQ,
+            Constant.create(BuiltinTypes.DECIMAL, BigDecimal.ONE)));
+
+    Valuation eager = new Valuation();
+    assertEquals(Result.SAT, ctx.solve(eager));
+    LazyValuation lazy = new LazyValuation();
+    assertEquals(Result.SAT, ctx.solveLazily(lazy));
+    // assertions added later do not apply to the bound model
+    ctx.add(eq(d, BuiltinTypes.DOUBLE, 0.2));
+    assertEquals(eager.getValue(r), lazy.getValue(r));
+    assertEquals(eager.getValue(d), lazy.getValue(d));
+    lazy.materialize();
+    assertEquals(eager, lazy.toValuation());
+    ctx.dispose();
+  }
+}
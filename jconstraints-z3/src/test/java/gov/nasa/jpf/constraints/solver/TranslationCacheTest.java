@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 United States Government, as represented by the Administrator
+ *                of the National Aeronautics and Space Administration. All Rights Reserved.
+ *           2017-2021 The jConstraints Authors
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.constraints.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.constraints.api.ConstraintSolver;
+import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.Expression;
+import gov.nasa.jpf.constraints.api.SolverContext;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+import gov.nasa.jpf.constraints.expressions.CastExpression;
+import gov.nasa.jpf.constraints.expressions.Constant;
+import gov.nasa.jpf.constraints.expressions.Negation;
+import gov.nasa.jpf.constraints.expressions.NumericBooleanExpression;
+import gov.nasa.jpf.constraints.expressions.NumericComparator;
+import gov.nasa.jpf.constraints.expressions.NumericCompound;
+import gov.nasa.jpf.constraints.expressions.NumericOperator;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+import gov.nasa.jpf.constraints.types.BuiltinTypes;
+import java.math.BigInteger;
+import org.junit.jupiter.api.Test;
+
+/** Translations reused across scopes and contexts of one solver must keep their meaning. */
+public class TranslationCacheTest {
+
+  private static final Variable<Integer> X = Variable.create(BuiltinTypes.SINT32, "x");
+
+  private static Expression<Boolean> pure() {
+    return NumericBooleanExpression.create(
+        NumericCompound.create(X, NumericOperator.PLUS, Constant.create(BuiltinTypes.SINT32, 1)),
+        NumericComparator.GT,
+        Constant.create(BuiltinTypes.SINT32, 5));
+  }
+
+  private static Expression<Boolean> withSideConditions() {
+    return NumericBooleanExpression.create(
+        CastExpression.create(X, BuiltinTypes.INTEGER),
+        NumericComparator.LT,
+        Constant.create(BuiltinTypes.INTEGER, BigInteger.valueOf(-3)));
+  }
+
+  @Test
+  public void reusesTranslationsAfterPop() {
+    ConstraintSolver solver = ConstraintSolverFactory.createSolver("z3");
+    SolverContext ctx = solver.createContext();
+    for (int i = 0; i < 2; i++) {
+      ctx.push();
+      ctx.add(pure());
+      ctx.add(withSideConditions());
+      Valuation val = new Valuation();
+      assertEquals(Result.UNSAT, ctx.solve(val));
+      ctx.pop();
+
+      ctx.push();
+      ctx.add(withSideConditions());
+      val = new Valuation();
+      assertEquals(Result.SAT, ctx.solve(val));
+      assertTrue(withSideConditions().evaluate(val));
+      ctx.pop();
+    }
+    ctx.push();
+    ctx.add(pure());
+    ctx.add(Negation.create(pure()));
+    assertEquals(Result.UNSAT, ctx.solve(new Valuation()));
+    ctx.pop();
+  }
+
+  @Test
+  public void sharesTranslationsBetweenContexts() {
+    ConstraintSolver solver = ConstraintSolverFactory.createSolver("z3");
+    for (int i = 0; i < 2; i++) {
+      SolverContext ctx = solver.createContext();
+      ctx.add(pure());
+      Valuation val = new Valuation();
+      assertEquals(Result.SAT, ctx.solve(val));
+      assertTrue(val.containsValueFor(X));
+      assertTrue(pure().evaluate(val));
+      ctx.dispose();
+    }
+  }
+}
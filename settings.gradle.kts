@@ -18,6 +18,6 @@
  */
 
 rootProject.name = "jconstraints"
-include("jconstraints-core", "jconstraints-cvc4", "jconstraints-z3", "jconstraints-metasolver", "jconstraints-runner", "jconstraints-benchmarktest")
+include("jconstraints-core", "jconstraints-cvc4", "jconstraints-z3", "jconstraints-metasolver", "jconstraints-runner", "jconstraints-benchmarktest", "jconstraints-jmh")
 
 